@@ -151,7 +151,15 @@ public class CANJaguar implements MotorSafety, PIDOutput, SpeedController, LiveW
         }
     }
 
+    /**
+     * Guards m_transactionOpen and is waited on for it to be cleared
+     */
     private final Object m_transactionMutex = new Object();
+    /**
+     * Whether a transaction with this Jaguar is outstanding, see
+     * {@link #beginTransaction()}
+     */
+    private boolean m_transactionOpen = false;
     private byte m_deviceNumber;
     private ControlMode m_controlMode;
     private double m_maxOutputVoltage;
@@ -342,53 +350,96 @@ public class CANJaguar implements MotorSafety, PIDOutput, SpeedController, LiveW
      * @param syncGroup   The update group to add this set() to, pending updateSyncGroup().  If 0, update immediately.
      */
     public void setX(double outputValue, byte syncGroup) throws CANTimeoutException {
-        int messageID = 0;
         byte[] dataBuffer = new byte[8];
-        byte dataSize = 0;
 
-        if (!m_safetyHelper.isAlive()) {
-            enableControl();
+        checkAlive();
+
+        int messageID = getSetXMessageID();
+        if (messageID == 0) {
+            return;
         }
+        byte dataSize = packX(dataBuffer, outputValue, syncGroup);
+        setTransaction(messageID, dataBuffer, dataSize);
+        m_safetyHelper.feed();
+    }
 
+    /**
+     * Get the message that sets the output set-point in the current control mode.
+     *
+     * @return The messageID, or 0 if the control mode is unknown.
+     */
+    int getSetXMessageID() {
+        switch (m_controlMode.value) {
+            case ControlMode.kPercentVbus_val:
+                return JaguarCANProtocol.LM_API_VOLT_T_SET;
+            case ControlMode.kSpeed_val:
+                return JaguarCANProtocol.LM_API_SPD_T_SET;
+            case ControlMode.kPosition_val:
+                return JaguarCANProtocol.LM_API_POS_T_SET;
+            case ControlMode.kCurrent_val:
+                return JaguarCANProtocol.LM_API_ICTRL_T_SET;
+            case ControlMode.kVoltage_val:
+                return JaguarCANProtocol.LM_API_VCOMP_T_SET;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Pack an output set-point in the units of the current control mode.
+     *
+     * @param buffer      The buffer to pack into.
+     * @param outputValue The set-point.
+     * @param syncGroup   The update group, or 0 to update immediately.
+     * @return The number of bytes packed.
+     */
+    byte packX(byte[] buffer, double outputValue, byte syncGroup) {
+        byte dataSize = 0;
         switch (m_controlMode.value) {
             case ControlMode.kPercentVbus_val:
-                messageID = JaguarCANProtocol.LM_API_VOLT_T_SET;
                 if (outputValue > 1.0) outputValue = 1.0;
                 if (outputValue < -1.0) outputValue = -1.0;
-                packPercentage(dataBuffer, outputValue);
-                dataSize = 2;
+                dataSize = packPercentage(buffer, outputValue);
+                break;
+            case ControlMode.kSpeed_val:
+            case ControlMode.kPosition_val:
+                dataSize = packFXP16_16(buffer, outputValue);
+                break;
+            case ControlMode.kCurrent_val:
+            case ControlMode.kVoltage_val:
+                dataSize = packFXP8_8(buffer, outputValue);
                 break;
-            case ControlMode.kSpeed_val: {
-                messageID = JaguarCANProtocol.LM_API_SPD_T_SET;
-                dataSize = packFXP16_16(dataBuffer, outputValue);
-            }
-            break;
-            case ControlMode.kPosition_val: {
-                messageID = JaguarCANProtocol.LM_API_POS_T_SET;
-                dataSize = packFXP16_16(dataBuffer, outputValue);
-            }
-            break;
-            case ControlMode.kCurrent_val: {
-                messageID = JaguarCANProtocol.LM_API_ICTRL_T_SET;
-                dataSize = packFXP8_8(dataBuffer, outputValue);
-            }
-            break;
-            case ControlMode.kVoltage_val: {
-                messageID = JaguarCANProtocol.LM_API_VCOMP_T_SET;
-                dataSize = packFXP8_8(dataBuffer, outputValue);
-            }
-            break;
-            default:
-                return;
         }
         if (syncGroup != 0) {
-            dataBuffer[dataSize] = syncGroup;
+            buffer[dataSize] = syncGroup;
             dataSize++;
         }
-        setTransaction(messageID, dataBuffer, dataSize);
+        return dataSize;
+    }
+
+    /**
+     * Check that the Jaguar is enabled before a set-point is sent.
+     */
+    void checkAlive() throws CANTimeoutException {
+        if (!m_safetyHelper.isAlive()) {
+            enableControl();
+        }
+    }
+
+    /**
+     * Feed the motor safety after a set-point was sent.
+     */
+    void feed() {
         m_safetyHelper.feed();
     }
 
+    /**
+     * @return The address of the Jaguar on the CAN bus.
+     */
+    byte getDeviceNumber() {
+        return m_deviceNumber;
+    }
+
     /**
      * Set the output set-point value.
      * <p/>
@@ -550,6 +601,11 @@ public class CANJaguar implements MotorSafety, PIDOutput, SpeedController, LiveW
     }
 
     private static final byte[] sendTrustedDataBuffer = new byte[JaguarCANDriver.kMaxMessageDataSize];
+    /**
+     * Shared by every Jaguar, its only state is the ID of the last message
+     * received, which is not used
+     */
+    private static final JaguarCANDriver canDriver = new JaguarCANDriver();
 
     /**
      * Send a message on the CAN bus through the CAN driver in FRC_NetworkCommunication
@@ -599,7 +655,6 @@ public class CANJaguar implements MotorSafety, PIDOutput, SpeedController, LiveW
      * @param timeout   Specify how long to wait for a message (in seconds)
      */
     protected static byte receiveMessage(int messageID, byte[] data, double timeout) throws CANTimeoutException {
-        JaguarCANDriver canDriver = new JaguarCANDriver();
         byte dataSize = canDriver.receiveMessage(messageID, data, timeout);
         return dataSize;
     }
@@ -619,23 +674,71 @@ public class CANJaguar implements MotorSafety, PIDOutput, SpeedController, LiveW
      * @param dataSize  Specify how much of the data in "data" to send
      */
     protected byte setTransaction(int messageID, byte[] data, byte dataSize) throws CANTimeoutException {
-        int ackMessageID = JaguarCANProtocol.LM_API_ACK | m_deviceNumber;
-
         // Make sure we don't have more than one transaction with the same Jaguar outstanding.
-        synchronized (m_transactionMutex) {
-            // Throw away any stale acks.
-            try {
-                receiveMessage(ackMessageID, kNoData, 0.0);
-            } catch (CANTimeoutException e) {
-            }
-            // Send the message with the data.
-            sendMessage(messageID | m_deviceNumber, data, dataSize);
+        beginTransaction();
+        try {
+            startSetTransaction(messageID, data, dataSize);
             // Wait for an ack.
-            dataSize = receiveMessage(ackMessageID, kNoData);
+            dataSize = finishSetTransaction();
+        } finally {
+            endTransaction();
         }
         return dataSize;
     }
 
+    /**
+     * Wait until no transaction with this Jaguar is outstanding, and then
+     * open one. The transaction is not a lock held by the calling thread, so
+     * a {@link CANJaguarBatch} can open transactions with many Jaguars and
+     * close each one as soon as its own reply is in. Every call must be
+     * followed by {@link #endTransaction()}.
+     */
+    void beginTransaction() {
+        synchronized (m_transactionMutex) {
+            while (m_transactionOpen) {
+                try {
+                    m_transactionMutex.wait();
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }
+            m_transactionOpen = true;
+        }
+    }
+
+    /**
+     * Close the transaction opened with {@link #beginTransaction()}, letting
+     * the next one with this Jaguar start.
+     */
+    void endTransaction() {
+        synchronized (m_transactionMutex) {
+            m_transactionOpen = false;
+            m_transactionMutex.notifyAll();
+        }
+    }
+
+    /**
+     * Send the message of a set transaction without waiting for the ack. The
+     * caller must have a transaction open until the ack is received.
+     */
+    void startSetTransaction(int messageID, byte[] data, byte dataSize) throws CANTimeoutException {
+        // Throw away any stale acks.
+        try {
+            receiveMessage(JaguarCANProtocol.LM_API_ACK | m_deviceNumber, kNoData, 0.0);
+        } catch (CANTimeoutException e) {
+        }
+        // Send the message with the data.
+        sendMessage(messageID | m_deviceNumber, data, dataSize);
+    }
+
+    /**
+     * Wait for the ack of a set transaction started with
+     * {@link #startSetTransaction(int, byte[], byte)}.
+     */
+    byte finishSetTransaction() throws CANTimeoutException {
+        return receiveMessage(JaguarCANProtocol.LM_API_ACK | m_deviceNumber, kNoData);
+    }
+
     /**
      * Execute a transaction with a Jaguar that gets some property.
      * <p/>
@@ -646,20 +749,37 @@ public class CANJaguar implements MotorSafety, PIDOutput, SpeedController, LiveW
      * @return Indicates how much data was received
      */
     protected byte getTransaction(int messageID, byte[] data) throws CANTimeoutException {
-        int targetedMessageID = messageID | m_deviceNumber;
         byte dataSize = 0;
         // Make sure we don't have more than one transaction with the same Jaguar outstanding.
-        synchronized (m_transactionMutex) {
+        beginTransaction();
+        try {
             // Send the message requesting data.
-            sendMessage(targetedMessageID, kNoData, 0);
-            // Caller may have set bit31 for remote frame transmission so clear invalid bits[31-29]
-            targetedMessageID &= 0x1FFFFFFF;
+            startGetTransaction(messageID);
             // Wait for the data.
-            dataSize = receiveMessage(targetedMessageID, data);
+            dataSize = finishGetTransaction(messageID, data);
+        } finally {
+            endTransaction();
         }
         return dataSize;
     }
 
+    /**
+     * Send the request of a get transaction without waiting for the reply.
+     * The caller must have a transaction open until the reply is received.
+     */
+    void startGetTransaction(int messageID) throws CANTimeoutException {
+        sendMessage(messageID | m_deviceNumber, kNoData, 0);
+    }
+
+    /**
+     * Wait for the reply to a get transaction started with
+     * {@link #startGetTransaction(int)}.
+     */
+    byte finishGetTransaction(int messageID, byte[] data) throws CANTimeoutException {
+        // Caller may have set bit31 for remote frame transmission so clear invalid bits[31-29]
+        return receiveMessage((messageID | m_deviceNumber) & 0x1FFFFFFF, data);
+    }
+
     /**
      * Set the reference source device for speed controller mode.
      * <p/>
@@ -0,0 +1,418 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj;
+
+import edu.wpi.first.wpilibj.can.CANTimeoutException;
+import edu.wpi.first.wpilibj.can.JaguarCANDriver;
+import edu.wpi.first.wpilibj.can.JaguarCANProtocol;
+
+/**
+ * Runs transactions with many {@link CANJaguar CANJaguars} together. Each
+ * CANJaguar method sends one message and waits for the reply before anything
+ * else can be sent, so reading eight Jaguars waits for eight round trips one
+ * after another. A batch sends a message to every Jaguar first and then
+ * collects the acks and replies, so it waits about as long as the slowest
+ * Jaguar instead.
+ * <p/>
+ * <p>A Jaguar acks every set with the same message, so only one transaction
+ * with each Jaguar can be outstanding. The transactions are run in rounds with
+ * at most one per Jaguar, in the order they were added. Each Jaguar is
+ * released as soon as its own ack or reply is collected. The replies are
+ * collected in order of device number, so a transaction that another thread
+ * starts with a Jaguar in the round waits for its reply, plus up to the 10ms
+ * receive timeout for each Jaguar before it that does not answer.</p>
+ * <p/>
+ * <p>A batch can be cleared and filled again every loop without allocating
+ * any of its own buffers once they are big enough. The CAN driver under it
+ * still allocates its native buffers for every message it sends or
+ * receives.</p>
+ * <p/>
+ * <pre>
+ * batch.clear();
+ * batch.setX(leftJaguar, left);
+ * batch.setX(rightJaguar, right);
+ * int current = batch.getOutputCurrent(leftJaguar);
+ * batch.run();
+ * double amps = batch.getValue(current);
+ * </pre>
+ */
+public class CANJaguarBatch {
+
+    private static final int kRaw = 0;
+    private static final int kSetX = 1;
+    private static final int kFXP8_8 = 2;
+    private static final int kFXP16_16 = 3;
+
+    private static class Transaction {
+
+        CANJaguar m_jaguar;
+        int m_messageID;
+        boolean m_get;
+        int m_kind;
+        final byte[] m_data = new byte[JaguarCANDriver.kMaxMessageDataSize];
+        byte m_dataSize;
+        CANTimeoutException m_error;
+        boolean m_done;
+    }
+
+    private Transaction[] m_transactions = new Transaction[0];
+    private int m_count = 0;
+    /**
+     * The transactions in the current round, sorted by device number
+     */
+    private int[] m_round = new int[0];
+
+    /**
+     * Add a transaction that sets some property.
+     *
+     * @param jaguar    The Jaguar to send to.
+     * @param messageID The messageID from {@link JaguarCANProtocol} (device number is added internally)
+     * @param data      The up to 8 bytes of data to send with the message, which are copied
+     * @param dataSize  Specify how much of the data in "data" to send
+     * @return The index of the transaction, to read its result with after {@link #run()}
+     */
+    public int set(CANJaguar jaguar, int messageID, byte[] data, int dataSize) {
+        if (dataSize < 0 || dataSize > JaguarCANDriver.kMaxMessageDataSize) {
+            throw new IllegalArgumentException("CAN message has too much data.");
+        }
+        Transaction t = add(jaguar, messageID, false, kRaw);
+        System.arraycopy(data, 0, t.m_data, 0, dataSize);
+        t.m_dataSize = (byte) dataSize;
+        return m_count - 1;
+    }
+
+    /**
+     * Add a transaction that gets some property. The reply can be read with
+     * {@link #getData(int)}.
+     *
+     * @param jaguar    The Jaguar to ask.
+     * @param messageID The messageID from {@link JaguarCANProtocol} (device number is added internally)
+     * @return The index of the transaction, to read its result with after {@link #run()}
+     */
+    public int get(CANJaguar jaguar, int messageID) {
+        add(jaguar, messageID, true, kRaw);
+        return m_count - 1;
+    }
+
+    /**
+     * Add a transaction that sets the output set-point value, the same as
+     * {@link CANJaguar#setX(double)}.
+     *
+     * @param jaguar      The Jaguar to send to.
+     * @param outputValue The set-point to sent to the motor controller.
+     * @return The index of the transaction, to read its result with after {@link #run()}
+     */
+    public int setX(CANJaguar jaguar, double outputValue) throws CANTimeoutException {
+        return setX(jaguar, outputValue, (byte) 0);
+    }
+
+    /**
+     * Add a transaction that sets the output set-point value, the same as
+     * {@link CANJaguar#setX(double, byte)}.
+     *
+     * @param jaguar      The Jaguar to send to.
+     * @param outputValue The set-point to sent to the motor controller.
+     * @param syncGroup   The update group to add this set() to, pending updateSyncGroup().  If 0, update immediately.
+     * @return The index of the transaction, to read its result with after {@link #run()}
+     */
+    public int setX(CANJaguar jaguar, double outputValue, byte syncGroup) throws CANTimeoutException {
+        // Enabling the Jaguar is rare, so it is not batched.
+        jaguar.checkAlive();
+        Transaction t = add(jaguar, jaguar.getSetXMessageID(), false, kSetX);
+        if (t.m_messageID != 0) {
+            t.m_dataSize = jaguar.packX(t.m_data, outputValue, syncGroup);
+        }
+        return m_count - 1;
+    }
+
+    /**
+     * Add a transaction that gets the voltage at the battery input terminals
+     * of a Jaguar in Volts.
+     *
+     * @param jaguar The Jaguar to ask.
+     * @return The index to read the value at with {@link #getValue(int)}
+     */
+    public int getBusVoltage(CANJaguar jaguar) {
+        add(jaguar, JaguarCANProtocol.LM_API_STATUS_VOLTBUS, true, kFXP8_8);
+        return m_count - 1;
+    }
+
+    /**
+     * Add a transaction that gets the voltage being output from the motor
+     * terminals of a Jaguar in Volts.
+     *
+     * @param jaguar The Jaguar to ask.
+     * @return The index to read the value at with {@link #getValue(int)}
+     */
+    public int getOutputVoltage(CANJaguar jaguar) {
+        add(jaguar, JaguarCANProtocol.LM_API_STATUS_VOUT, true, kFXP8_8);
+        return m_count - 1;
+    }
+
+    /**
+     * Add a transaction that gets the current through the motor terminals of a
+     * Jaguar in Amps.
+     *
+     * @param jaguar The Jaguar to ask.
+     * @return The index to read the value at with {@link #getValue(int)}
+     */
+    public int getOutputCurrent(CANJaguar jaguar) {
+        add(jaguar, JaguarCANProtocol.LM_API_STATUS_CURRENT, true, kFXP8_8);
+        return m_count - 1;
+    }
+
+    /**
+     * Add a transaction that gets the internal temperature of a Jaguar in
+     * degrees Celsius.
+     *
+     * @param jaguar The Jaguar to ask.
+     * @return The index to read the value at with {@link #getValue(int)}
+     */
+    public int getTemperature(CANJaguar jaguar) {
+        add(jaguar, JaguarCANProtocol.LM_API_STATUS_TEMP, true, kFXP8_8);
+        return m_count - 1;
+    }
+
+    /**
+     * Add a transaction that gets the position of the encoder or
+     * potentiometer of a Jaguar.
+     *
+     * @param jaguar The Jaguar to ask.
+     * @return The index to read the value at with {@link #getValue(int)}
+     */
+    public int getPosition(CANJaguar jaguar) {
+        add(jaguar, JaguarCANProtocol.LM_API_STATUS_POS, true, kFXP16_16);
+        return m_count - 1;
+    }
+
+    /**
+     * Add a transaction that gets the speed of the encoder of a Jaguar in
+     * RPM.
+     *
+     * @param jaguar The Jaguar to ask.
+     * @return The index to read the value at with {@link #getValue(int)}
+     */
+    public int getSpeed(CANJaguar jaguar) {
+        add(jaguar, JaguarCANProtocol.LM_API_STATUS_SPD, true, kFXP16_16);
+        return m_count - 1;
+    }
+
+    private Transaction add(CANJaguar jaguar, int messageID, boolean get, int kind) {
+        if (jaguar == null) {
+            throw new NullPointerException();
+        }
+        if (m_count == m_transactions.length) {
+            Transaction[] grown = new Transaction[Math.max(8, m_count * 2)];
+            System.arraycopy(m_transactions, 0, grown, 0, m_count);
+            for (int i = m_count; i < grown.length; i++) {
+                grown[i] = new Transaction();
+            }
+            m_transactions = grown;
+            m_round = new int[grown.length];
+        }
+        Transaction t = m_transactions[m_count++];
+        t.m_jaguar = jaguar;
+        t.m_messageID = messageID;
+        t.m_get = get;
+        t.m_kind = kind;
+        t.m_dataSize = 0;
+        t.m_error = null;
+        t.m_done = false;
+        return t;
+    }
+
+    /**
+     * @return The number of transactions in the batch.
+     */
+    public int size() {
+        return m_count;
+    }
+
+    /**
+     * Remove every transaction so the batch can be filled again.
+     */
+    public void clear() {
+        for (int i = 0; i < m_count; i++) {
+            m_transactions[i].m_jaguar = null;
+            m_transactions[i].m_error = null;
+        }
+        m_count = 0;
+    }
+
+    /**
+     * Run every transaction in the batch. Each round sends one message to
+     * every Jaguar that has a transaction left, then waits for all of the
+     * acks and replies.
+     * <p/>
+     * A transaction that times out does not stop the others. The batch can
+     * be run again to repeat the same transactions.
+     *
+     * @throws CANTimeoutException the first time out, after every transaction has been tried
+     */
+    public void run() throws CANTimeoutException {
+        for (int i = 0; i < m_count; i++) {
+            Transaction t = m_transactions[i];
+            t.m_error = null;
+            t.m_done = t.m_messageID == 0;
+            if (t.m_get) {
+                t.m_dataSize = 0;
+            }
+        }
+
+        while (true) {
+            int n = 0;
+            for (int i = 0; i < m_count; i++) {
+                Transaction t = m_transactions[i];
+                byte device = t.m_jaguar.getDeviceNumber();
+                if (t.m_done || inRound(device, n)) {
+                    continue;
+                }
+                // Keep the round sorted so transactions are always opened in the same order.
+                int j = n++;
+                while (j > 0 && m_transactions[m_round[j - 1]].m_jaguar.getDeviceNumber() > device) {
+                    m_round[j] = m_round[j - 1];
+                    j--;
+                }
+                m_round[j] = i;
+            }
+            if (n == 0) {
+                break;
+            }
+            runRound(n);
+        }
+
+        for (int i = 0; i < m_count; i++) {
+            if (m_transactions[i].m_error != null) {
+                throw m_transactions[i].m_error;
+            }
+        }
+    }
+
+    private boolean inRound(byte device, int n) {
+        for (int i = 0; i < n; i++) {
+            if (m_transactions[m_round[i]].m_jaguar.getDeviceNumber() == device) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Open a transaction with every Jaguar in the round and send its message,
+     * then collect the acks and replies in the same order. Each Jaguar's
+     * transaction is closed as soon as its own reply is collected, so another
+     * thread waiting on it only waits for the Jaguars before it in the round
+     * that have not answered.
+     */
+    private void runRound(int n) {
+        int opened = 0;
+        int closed = 0;
+        try {
+            while (opened < n) {
+                Transaction t = m_transactions[m_round[opened]];
+                CANJaguar jaguar = t.m_jaguar;
+                jaguar.beginTransaction();
+                opened++;
+                try {
+                    if (t.m_get) {
+                        jaguar.startGetTransaction(t.m_messageID);
+                    } else {
+                        jaguar.startSetTransaction(t.m_messageID, t.m_data, t.m_dataSize);
+                    }
+                } catch (CANTimeoutException e) {
+                    t.m_error = e;
+                }
+            }
+
+            while (closed < n) {
+                Transaction t = m_transactions[m_round[closed]];
+                CANJaguar jaguar = t.m_jaguar;
+                if (t.m_error == null) {
+                    try {
+                        if (t.m_get) {
+                            t.m_dataSize = jaguar.finishGetTransaction(t.m_messageID, t.m_data);
+                        } else {
+                            jaguar.finishSetTransaction();
+                        }
+                    } catch (CANTimeoutException e) {
+                        t.m_error = e;
+                    }
+                }
+                t.m_done = true;
+                closed++;
+                jaguar.endTransaction();
+                if (t.m_error == null && t.m_kind == kSetX) {
+                    jaguar.feed();
+                }
+            }
+        } finally {
+            // only reached with transactions left open if something was thrown
+            while (closed < opened) {
+                m_transactions[m_round[closed++]].m_jaguar.endTransaction();
+            }
+        }
+    }
+
+    private Transaction transaction(int index) {
+        if (index < 0 || index >= m_count) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        return m_transactions[index];
+    }
+
+    /**
+     * Get the value read by one of the status transactions, such as
+     * {@link #getOutputCurrent(CANJaguar)}.
+     *
+     * @param index The index the transaction was added at.
+     * @return The value, or 0.0 if no reply was received.
+     */
+    public double getValue(int index) {
+        Transaction t = transaction(index);
+        switch (t.m_kind) {
+            case kFXP8_8:
+                if (t.m_dataSize == 2) {
+                    return t.m_jaguar.unpackFXP8_8(t.m_data);
+                }
+                break;
+            case kFXP16_16:
+                if (t.m_dataSize == 4) {
+                    return t.m_jaguar.unpackFXP16_16(t.m_data);
+                }
+                break;
+        }
+        return 0.0;
+    }
+
+    /**
+     * Get the data of a transaction: what was received for a get or what was
+     * sent for a set. The buffer is reused when the batch is run again.
+     *
+     * @param index The index the transaction was added at.
+     * @return The up to 8 bytes of data, see {@link #getDataSize(int)}
+     */
+    public byte[] getData(int index) {
+        return transaction(index).m_data;
+    }
+
+    /**
+     * @param index The index the transaction was added at.
+     * @return Indicates how much data was received or sent
+     */
+    public int getDataSize(int index) {
+        return transaction(index).m_dataSize;
+    }
+
+    /**
+     * @param index The index the transaction was added at.
+     * @return The time out of the transaction in the last run, or null if it succeeded
+     */
+    public CANTimeoutException getError(int index) {
+        return transaction(index).m_error;
+    }
+}
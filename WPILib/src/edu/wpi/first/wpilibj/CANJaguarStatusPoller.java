@@ -0,0 +1,439 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj;
+
+import edu.wpi.first.wpilibj.can.CANTimeoutException;
+
+/**
+ * Reads the status of {@link CANJaguar CANJaguars} on its own thread so the
+ * robot loop never has to wait on the CAN bus for telemetry. Every period it
+ * reads the chosen signals of every Jaguar added to it in one
+ * {@link CANJaguarBatch}, and the get methods return the last value read
+ * right away along with when it was read.
+ * <p/>
+ * <p>The batch asks every Jaguar for one signal at a time, and each Jaguar is
+ * released as soon as its own reply is in. A set-point sent from the robot
+ * loop to a Jaguar being read waits for that reply, plus up to the 10ms
+ * receive timeout for each Jaguar with a lower device number that does not
+ * answer.</p>
+ * <p/>
+ * <p>A value that has not been read for a while, because the Jaguar stopped
+ * answering or polling fell behind, is reported as stale. The poller also
+ * estimates how much of the CAN bus it uses so the period can be chosen to
+ * leave room for the set-points.</p>
+ *
+ * <pre>
+ * CANJaguarStatusPoller poller = CANJaguarStatusPoller.getInstance();
+ * poller.add(shooter, CANJaguarStatusPoller.kOutputCurrent | CANJaguarStatusPoller.kSpeed);
+ * poller.setPeriod(0.05);
+ * ...
+ * if (!poller.isStale(shooter, CANJaguarStatusPoller.kSpeed)) {
+ *     double rpm = poller.get(shooter, CANJaguarStatusPoller.kSpeed);
+ * }
+ * </pre>
+ */
+public class CANJaguarStatusPoller implements Runnable {
+
+    public static final int kBusVoltage = 1;
+    public static final int kOutputVoltage = 2;
+    public static final int kOutputCurrent = 4;
+    public static final int kTemperature = 8;
+    public static final int kPosition = 16;
+    public static final int kSpeed = 32;
+    private static final int kSignalCount = 6;
+    /**
+     * The CAN bus between the cRIO and the Jaguars runs at 1Mbit/s
+     */
+    private static final double kBitRate = 1000000;
+    /**
+     * The bits in an extended CAN frame with no data, not counting stuff bits
+     */
+    private static final int kFrameBits = 67;
+
+    private static CANJaguarStatusPoller instance;
+
+    /**
+     * Returns the {@link CANJaguarStatusPoller}, creating it if one does not exist.
+     * It does not poll until {@link #setPeriod(double)} is called.
+     *
+     * @return the {@link CANJaguarStatusPoller}
+     */
+    public static synchronized CANJaguarStatusPoller getInstance() {
+        return instance == null ? instance = new CANJaguarStatusPoller() : instance;
+    }
+
+    private static class Entry {
+
+        final CANJaguar m_jaguar;
+        int m_signals;
+        final double[] m_values = new double[kSignalCount];
+        /**
+         * When each value was read in microseconds, or 0 if it never was
+         */
+        final long[] m_times = new long[kSignalCount];
+
+        Entry(CANJaguar jaguar) {
+            m_jaguar = jaguar;
+        }
+    }
+
+    private Entry[] m_entries = new Entry[0];
+    private long m_periodMillis = 0;
+    /**
+     * The age after which a value is stale in microseconds, or 0 for three periods
+     */
+    private long m_staleTime = 0;
+    /**
+     * The thread that should be polling, or null once stopped
+     */
+    private Thread m_thread = null;
+    /**
+     * The thread that is polling. After a quick stop and start the new
+     * thread waits for the old one to finish its poll.
+     */
+    private Thread m_active = null;
+
+    /**
+     * Only used by the active polling thread
+     */
+    private final CANJaguarBatch m_batch = new CANJaguarBatch();
+    private Entry[] m_batchEntries = new Entry[0];
+    private int[] m_batchSignals = new int[0];
+
+    private long m_polls = 0;
+    private long m_timeouts = 0;
+    private double m_pollTime = 0;
+    private double m_busUtilization = 0;
+
+    private CANJaguarStatusPoller() {
+    }
+
+    /**
+     * Start reading signals from a Jaguar, or change which signals are read.
+     *
+     * @param jaguar  the Jaguar
+     * @param signals the signals to read, such as {@link #kOutputCurrent} | {@link #kSpeed}
+     */
+    public synchronized void add(CANJaguar jaguar, int signals) {
+        if (jaguar == null) {
+            throw new NullPointerException();
+        }
+        Entry entry = entry(jaguar);
+        if (entry == null) {
+            entry = new Entry(jaguar);
+            Entry[] grown = new Entry[m_entries.length + 1];
+            System.arraycopy(m_entries, 0, grown, 0, m_entries.length);
+            grown[m_entries.length] = entry;
+            m_entries = grown;
+        }
+        entry.m_signals = signals & ((1 << kSignalCount) - 1);
+    }
+
+    /**
+     * Stop reading a Jaguar.
+     *
+     * @param jaguar the Jaguar
+     */
+    public synchronized void remove(CANJaguar jaguar) {
+        for (int i = 0; i < m_entries.length; i++) {
+            if (m_entries[i].m_jaguar == jaguar) {
+                Entry[] shrunk = new Entry[m_entries.length - 1];
+                System.arraycopy(m_entries, 0, shrunk, 0, i);
+                System.arraycopy(m_entries, i + 1, shrunk, i, shrunk.length - i);
+                m_entries = shrunk;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sets how often every Jaguar is read, and starts the thread that reads
+     * them. If reading them takes longer than the period, the next read
+     * starts right away.
+     *
+     * @param seconds the period in seconds, more than 0
+     */
+    public synchronized void setPeriod(double seconds) {
+        m_periodMillis = Math.max(1, (long) (seconds * 1000));
+        if (m_thread == null) {
+            m_thread = new Thread(this);
+            m_thread.start();
+        }
+        notifyAll();
+    }
+
+    /**
+     * Stops polling. The last values read can still be read, but they are
+     * stale from then on unless a stale time was set.
+     */
+    public synchronized void stop() {
+        m_periodMillis = 0;
+        m_thread = null;
+        notifyAll();
+    }
+
+    /**
+     * Sets how old a value can be before it is stale.
+     *
+     * @param seconds the age in seconds, or 0 for three periods, which is the default
+     */
+    public synchronized void setStaleTime(double seconds) {
+        m_staleTime = seconds <= 0 ? 0 : (long) (seconds * 1e6);
+    }
+
+    /**
+     * Get the last value read of a signal.
+     *
+     * @param jaguar the Jaguar
+     * @param signal one signal, such as {@link #kOutputCurrent}
+     * @return the value in the units of the matching {@link CANJaguar} method, or 0.0 if it was never read
+     */
+    public synchronized double get(CANJaguar jaguar, int signal) {
+        Entry entry = entry(jaguar);
+        return entry == null ? 0.0 : entry.m_values[index(signal)];
+    }
+
+    /**
+     * Get when a signal was last read.
+     *
+     * @param jaguar the Jaguar
+     * @param signal one signal, such as {@link #kOutputCurrent}
+     * @return the FPGA time it was read at in microseconds, or 0 if it was never read
+     * @see Utility#getFPGATime()
+     */
+    public synchronized long getTimestamp(CANJaguar jaguar, int signal) {
+        Entry entry = entry(jaguar);
+        return entry == null ? 0 : entry.m_times[index(signal)];
+    }
+
+    /**
+     * Get how long ago a signal was last read.
+     *
+     * @param jaguar the Jaguar
+     * @param signal one signal, such as {@link #kOutputCurrent}
+     * @return the age in seconds, or {@link Double#POSITIVE_INFINITY} if it was never read
+     *         or was read too long ago to tell, more than about 35 minutes
+     */
+    public double getAge(CANJaguar jaguar, int signal) {
+        long time = getTimestamp(jaguar, signal);
+        if (time == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        // the FPGA clock wraps, so only the low 32 bits of the difference count
+        int age = (int) (Utility.getFPGATime() - time);
+        return age < 0 ? Double.POSITIVE_INFINITY : age / 1e6;
+    }
+
+    /**
+     * Find out if a signal is too old to be trusted, see
+     * {@link #setStaleTime(double)}.
+     *
+     * @param jaguar the Jaguar
+     * @param signal one signal, such as {@link #kOutputCurrent}
+     * @return true if the signal is stale or was never read
+     */
+    public boolean isStale(CANJaguar jaguar, int signal) {
+        long staleTime;
+        synchronized (this) {
+            staleTime = m_staleTime != 0 ? m_staleTime : 3000 * m_periodMillis;
+        }
+        long time = getTimestamp(jaguar, signal);
+        if (time == 0 || staleTime == 0) {
+            return true;
+        }
+        int age = (int) (Utility.getFPGATime() - time);
+        return age < 0 || age > staleTime;
+    }
+
+    /**
+     * @return the number of times every Jaguar has been read
+     */
+    public synchronized long getPollCount() {
+        return m_polls;
+    }
+
+    /**
+     * @return the number of signals that timed out
+     */
+    public synchronized long getTimeouts() {
+        return m_timeouts;
+    }
+
+    /**
+     * @return how long the last poll took in seconds
+     */
+    public synchronized double getPollTime() {
+        return m_pollTime;
+    }
+
+    /**
+     * Estimate the fraction of the CAN bus the poller uses at its period,
+     * from the size of the messages in the last poll. Stuff bits are not
+     * counted, so the real use can be up to a fifth higher.
+     *
+     * @return the fraction of the bus, from 0 up
+     */
+    public synchronized double getBusUtilization() {
+        return m_busUtilization;
+    }
+
+    private Entry entry(CANJaguar jaguar) {
+        for (int i = 0; i < m_entries.length; i++) {
+            if (m_entries[i].m_jaguar == jaguar) {
+                return m_entries[i];
+            }
+        }
+        return null;
+    }
+
+    private static int index(int signal) {
+        for (int i = 0; i < kSignalCount; i++) {
+            if (signal == 1 << i) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Not a single signal: " + signal);
+    }
+
+    /**
+     * Fill the batch with every signal of every Jaguar. Must hold the lock.
+     */
+    private void fill() {
+        m_batch.clear();
+        for (int i = 0; i < m_entries.length; i++) {
+            Entry entry = m_entries[i];
+            for (int s = 0; s < kSignalCount; s++) {
+                if ((entry.m_signals & (1 << s)) == 0) {
+                    continue;
+                }
+                switch (1 << s) {
+                    case kBusVoltage:
+                        m_batch.getBusVoltage(entry.m_jaguar);
+                        break;
+                    case kOutputVoltage:
+                        m_batch.getOutputVoltage(entry.m_jaguar);
+                        break;
+                    case kOutputCurrent:
+                        m_batch.getOutputCurrent(entry.m_jaguar);
+                        break;
+                    case kTemperature:
+                        m_batch.getTemperature(entry.m_jaguar);
+                        break;
+                    case kPosition:
+                        m_batch.getPosition(entry.m_jaguar);
+                        break;
+                    case kSpeed:
+                        m_batch.getSpeed(entry.m_jaguar);
+                        break;
+                }
+                int index = m_batch.size() - 1;
+                if (index == m_batchEntries.length) {
+                    Entry[] entries = new Entry[Math.max(8, index * 2)];
+                    int[] signals = new int[entries.length];
+                    System.arraycopy(m_batchEntries, 0, entries, 0, index);
+                    System.arraycopy(m_batchSignals, 0, signals, 0, index);
+                    m_batchEntries = entries;
+                    m_batchSignals = signals;
+                }
+                m_batchEntries[index] = entry;
+                m_batchSignals[index] = s;
+            }
+        }
+    }
+
+    /**
+     * Read every Jaguar once with one batch. Each Jaguar is only held until
+     * its own reply is in, see {@link CANJaguarBatch}. The poller's own lock
+     * is not held while waiting on the bus.
+     */
+    private void poll() {
+        synchronized (this) {
+            fill();
+        }
+        long start = Utility.getFPGATime();
+        try {
+            m_batch.run();
+        } catch (CANTimeoutException e) {
+            // counted below
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+        long end = Utility.getFPGATime();
+
+        long bits = 0;
+        synchronized (this) {
+            for (int i = 0; i < m_batch.size(); i++) {
+                // the request has no data, the reply has the value
+                bits += 2 * kFrameBits + 8 * m_batch.getDataSize(i);
+                if (m_batch.getError(i) != null) {
+                    m_timeouts++;
+                } else if (m_batch.getDataSize(i) > 0) {
+                    Entry entry = m_batchEntries[i];
+                    entry.m_values[m_batchSignals[i]] = m_batch.getValue(i);
+                    entry.m_times[m_batchSignals[i]] = end;
+                }
+                m_batchEntries[i] = null;
+            }
+            m_polls++;
+            m_pollTime = (int) (end - start) / 1e6;
+            double period = Math.max(m_periodMillis / 1000.0, m_pollTime);
+            m_busUtilization = period > 0 ? bits / (period * kBitRate) : 0;
+        }
+    }
+
+    /**
+     * The thread that reads the Jaguars. This should not be called directly.
+     */
+    public void run() {
+        Thread self = Thread.currentThread();
+        synchronized (this) {
+            // let a thread from before a quick stop and start finish its poll
+            while (m_active != null && m_thread == self) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }
+            if (m_thread != self) {
+                return;
+            }
+            m_active = self;
+        }
+        try {
+            pollLoop(self);
+        } finally {
+            synchronized (this) {
+                m_active = null;
+                notifyAll();
+            }
+        }
+    }
+
+    private void pollLoop(Thread self) {
+        while (true) {
+            long start = System.currentTimeMillis();
+            synchronized (this) {
+                if (m_thread != self) {
+                    return;
+                }
+            }
+            poll();
+            synchronized (this) {
+                long wait = m_periodMillis - (System.currentTimeMillis() - start);
+                if (m_thread == self && wait > 0) {
+                    try {
+                        wait(wait);
+                    } catch (InterruptedException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -9,11 +9,13 @@ package edu.wpi.first.wpilibj;
 import edu.wpi.first.wpilibj.communication.UsageReporting;
 import edu.wpi.first.wpilibj.parsing.IInputOutput;
 
-import java.util.Stack;
-
 /**
  * Pack data into the "user data" field that gets sent to the dashboard laptop
  * via the driver station.
+ * <p/>
+ * Data is packed into a buffer that is reused for every packet, and open
+ * arrays and clusters are tracked on stacks of ints, so packing and committing
+ * allocate nothing once the stacks have grown to the deepest nesting used.
  */
 public class Dashboard implements IDashboard, IInputOutput {
 
@@ -55,7 +57,13 @@ public class Dashboard implements IDashboard, IInputOutput {
         }
 
         public void setString(int index, String value) {
-            setBytes(index, value.getBytes(), 0, value.length());
+            setString(index, value, value.length());
+        }
+
+        public void setString(int index, String value, int length) {
+            for (int i = 0; i < length; i++) {
+                m_bytes[i + index] = (byte) value.charAt(i);
+            }
         }
 
         public void setBytes(int index, byte[] value, int offset, int number) {
@@ -65,16 +73,16 @@ public class Dashboard implements IDashboard, IInputOutput {
         }
     }
 
-    private static final String kArray = "Array";
-    private static final String kCluster = "Cluster";
-    private static final Integer kByte = new Integer(0);
-    private static final Integer kShort = new Integer(1);
-    private static final Integer kInt = new Integer(2);
-    private static final Integer kFloat = new Integer(3);
-    private static final Integer kDouble = new Integer(4);
-    private static final Integer kString = new Integer(5);
-    private static final Integer kOther = new Integer(6);
-    private static final Integer kBoolean = new Integer(7);
+    private static final int kArray = 0;
+    private static final int kCluster = 1;
+    private static final int kByte = 0;
+    private static final int kShort = 1;
+    private static final int kInt = 2;
+    private static final int kFloat = 3;
+    private static final int kDouble = 4;
+    private static final int kString = 5;
+    private static final int kOther = 6;
+    private static final int kBoolean = 7;
     private static final int kMaxDashboardDataSize = DriverStation.USER_STATUS_DATA_SIZE -
             4 * 3 - 1; // 13 bytes needed for 3 size parameters and the sequence number
     private static boolean m_reported = false;
@@ -82,10 +90,25 @@ public class Dashboard implements IDashboard, IInputOutput {
     protected int m_userStatusSize = 0;
     private MemAccess m_localBuffer;
     private int m_packPtr;
-    private Stack m_expectedArrayElementType = new Stack();
-    private Stack m_arrayElementCount = new Stack();
-    private Stack m_arraySizePtr = new Stack();
-    private Stack m_complexTypeStack = new Stack();
+    /**
+     * kArray or kCluster for each open complex type, innermost last
+     */
+    private int[] m_complexTypeStack = new int[8];
+    private int m_complexTypeDepth = 0;
+    /**
+     * For each open array, innermost last: the element type, which is only
+     * set once the first element is added
+     */
+    private int[] m_expectedArrayElementType = new int[8];
+    /**
+     * For each open array: the number of elements added so far
+     */
+    private int[] m_arrayElementCount = new int[8];
+    /**
+     * For each open array: where its element count is written
+     */
+    private int[] m_arraySizePtr = new int[8];
+    private int m_arrayDepth = 0;
     private final Object m_statusDataSemaphore;
 
     /**
@@ -199,14 +222,7 @@ public class Dashboard implements IDashboard, IInputOutput {
      * @return True on success
      */
     public boolean addString(String value) {
-        if (!validateAdd(value.length() + 4)) {
-            return false;
-        }
-        m_localBuffer.setInt(m_packPtr, value.length());
-        m_packPtr += 4;
-        m_localBuffer.setString(m_packPtr, value);
-        m_packPtr += value.length();
-        return addedElement(kString);
+        return addString(value, value.length());
     }
 
     /**
@@ -217,7 +233,17 @@ public class Dashboard implements IDashboard, IInputOutput {
      * @return True on success
      */
     public boolean addString(String value, int length) {
-        return addString(value.substring(0, length));
+        if (length < 0 || length > value.length()) {
+            throw new StringIndexOutOfBoundsException(length);
+        }
+        if (!validateAdd(length + 4)) {
+            return false;
+        }
+        m_localBuffer.setInt(m_packPtr, length);
+        m_packPtr += 4;
+        m_localBuffer.setString(m_packPtr, value, length);
+        m_packPtr += length;
+        return addedElement(kString);
     }
 
     /**
@@ -235,9 +261,15 @@ public class Dashboard implements IDashboard, IInputOutput {
         if (!validateAdd(4)) {
             return false;
         }
-        m_complexTypeStack.push(kArray);
-        m_arrayElementCount.push(new Integer(0));
-        m_arraySizePtr.push(new Integer(m_packPtr));
+        pushComplexType(kArray);
+        if (m_arrayDepth == m_arraySizePtr.length) {
+            m_expectedArrayElementType = grow(m_expectedArrayElementType);
+            m_arrayElementCount = grow(m_arrayElementCount);
+            m_arraySizePtr = grow(m_arraySizePtr);
+        }
+        m_arrayElementCount[m_arrayDepth] = 0;
+        m_arraySizePtr[m_arrayDepth] = m_packPtr;
+        m_arrayDepth++;
         m_packPtr += 4;
         return true;
     }
@@ -251,19 +283,13 @@ public class Dashboard implements IDashboard, IInputOutput {
      * @return True on success
      */
     public boolean finalizeArray() {
-        if (m_complexTypeStack.peek() != kArray) {
+        if (!isArrayRoot()) {
             System.err.println("Attempted to finalize an array in the middle of a cluster or without starting the array");
             return false;
         }
-        m_complexTypeStack.pop();
-        m_localBuffer.setInt(((Integer) m_arraySizePtr.pop()).intValue(),
-                ((Integer) m_arrayElementCount.peek()).intValue());
-
-
-        if (((Integer) m_arrayElementCount.peek()).intValue() != 0) {
-            m_expectedArrayElementType.pop();
-        }
-        m_arrayElementCount.pop();
+        m_complexTypeDepth--;
+        m_arrayDepth--;
+        m_localBuffer.setInt(m_arraySizePtr[m_arrayDepth], m_arrayElementCount[m_arrayDepth]);
         return addedElement(kOther);
     }
 
@@ -277,7 +303,7 @@ public class Dashboard implements IDashboard, IInputOutput {
      * @return True on success
      */
     public boolean addCluster() {
-        m_complexTypeStack.push(kCluster);
+        pushComplexType(kCluster);
         return true;
     }
 
@@ -290,11 +316,11 @@ public class Dashboard implements IDashboard, IInputOutput {
      * @return True on success
      */
     public boolean finalizeCluster() {
-        if (m_complexTypeStack.peek() != kCluster) {
+        if (m_complexTypeDepth == 0 || m_complexTypeStack[m_complexTypeDepth - 1] != kCluster) {
             System.err.println("Attempted to close a cluster on an open array or without starting the cluster");
             return false;
         }
-        m_complexTypeStack.pop();
+        m_complexTypeDepth--;
         return addedElement(kOther);
     }
 
@@ -311,7 +337,7 @@ public class Dashboard implements IDashboard, IInputOutput {
      */
     public synchronized int commit() {
 
-        if (!m_complexTypeStack.empty()) {
+        if (m_complexTypeDepth != 0) {
             System.err.println("didn't finish complex type");
             m_packPtr = 0;
             System.err.println("didn't finish complex type");
@@ -351,17 +377,18 @@ public class Dashboard implements IDashboard, IInputOutput {
     /**
      * Check for consistent types when adding elements to an array and keep track of the number of elements in the array.
      */
-    private boolean addedElement(Integer type) {
+    private boolean addedElement(int type) {
         if (isArrayRoot()) {
-            if (((Integer) m_arrayElementCount.peek()).intValue() == 0) {
-                m_expectedArrayElementType.push(type);
+            int array = m_arrayDepth - 1;
+            if (m_arrayElementCount[array] == 0) {
+                m_expectedArrayElementType[array] = type;
             } else {
-                if (type != m_expectedArrayElementType.peek()) {
+                if (type != m_expectedArrayElementType[array]) {
                     System.err.println("Attempted to add multiple datatypes to the same array");
                     return false;
                 }
             }
-            m_arrayElementCount.push(new Integer(((Integer) m_arrayElementCount.pop()).intValue() + 1));
+            m_arrayElementCount[array]++;
         }
         return true;
     }
@@ -370,7 +397,20 @@ public class Dashboard implements IDashboard, IInputOutput {
      * If the top of the type stack an array?
      */
     private boolean isArrayRoot() {
-        return !m_complexTypeStack.empty() && m_complexTypeStack.peek() == kArray;
+        return m_complexTypeDepth != 0 && m_complexTypeStack[m_complexTypeDepth - 1] == kArray;
+    }
+
+    private void pushComplexType(int type) {
+        if (m_complexTypeDepth == m_complexTypeStack.length) {
+            m_complexTypeStack = grow(m_complexTypeStack);
+        }
+        m_complexTypeStack[m_complexTypeDepth++] = type;
+    }
+
+    private static int[] grow(int[] stack) {
+        int[] grown = new int[stack.length * 2];
+        System.arraycopy(stack, 0, grown, 0, stack.length);
+        return grown;
     }
 
     public byte[] getBytes() {
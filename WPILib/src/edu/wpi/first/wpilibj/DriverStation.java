@@ -11,6 +11,11 @@ import edu.wpi.first.wpilibj.parsing.IInputOutput;
 
 /**
  * Provide access to the network communication data to / from the Driver Station.
+ * <p/>
+ * Each control packet is captured into an {@link InputFrame}. The stick, input
+ * and mode getters here read from the latest frame without locking, and code
+ * that needs several values from the same packet should get the frame once with
+ * {@link #getInputFrame()} and read them all from it.
  */
 public class DriverStation implements IInputOutput {
 
@@ -94,6 +99,9 @@ public class DriverStation implements IInputOutput {
 
     private static DriverStation instance = new DriverStation();
     private FRCCommonControlData m_controlData;
+    private final InputFrame[] m_frames = new InputFrame[]{new InputFrame(), new InputFrame(), new InputFrame()};
+    private int m_frameIndex = 0;
+    private volatile InputFrame m_frame;
     private AnalogChannel m_batteryChannel;
     private Thread m_thread;
     private final Object m_semaphore;
@@ -131,6 +139,7 @@ public class DriverStation implements IInputOutput {
      */
     protected DriverStation() {
         m_controlData = new FRCCommonControlData();
+        m_frame = m_frames[0];
         m_semaphore = new Object();
         m_dataSem = new Object();
 
@@ -230,6 +239,12 @@ public class DriverStation implements IInputOutput {
     protected synchronized void getData() {
         FRCControl.getCommonControlData(m_controlData, Semaphore.WAIT_FOREVER);
 
+        // Fill in the frame replaced two packets ago, then swap it in
+        m_frameIndex = (m_frameIndex + 1) % m_frames.length;
+        InputFrame next = m_frames[m_frameIndex];
+        next.capture(m_controlData);
+        m_frame = next;
+
         if (!lastEnabled && isEnabled()) {
             // If starting teleop, assume that autonomous just took up 15 seconds
             if (isAutonomous()) {
@@ -278,6 +293,17 @@ public class DriverStation implements IInputOutput {
         return m_batteryChannel.getAverageVoltage() * (1680.0 / 1000.0);
     }
 
+    /**
+     * Get the input frame captured from the latest control packet. Every value
+     * in it came from the same packet, so read all the inputs needed for one
+     * loop from one frame.
+     *
+     * @return The latest input frame.
+     */
+    public InputFrame getInputFrame() {
+        return m_frame;
+    }
+
     /**
      * Get the value of the axis on a joystick.
      * This depends on the mapping of the joystick connected to the specified port.
@@ -287,42 +313,7 @@ public class DriverStation implements IInputOutput {
      * @return The value of the axis on the joystick.
      */
     public double getStickAxis(int stick, int axis) {
-        if (axis < 1 || axis > kJoystickAxes) {
-            return 0.0;
-        }
-
-        int value;
-        switch (stick) {
-            case 1:
-                value = m_controlData.stick0Axes[axis - 1];
-                break;
-            case 2:
-                value = m_controlData.stick1Axes[axis - 1];
-                break;
-            case 3:
-                value = m_controlData.stick2Axes[axis - 1];
-                break;
-            case 4:
-                value = m_controlData.stick3Axes[axis - 1];
-                break;
-            default:
-                return 0.0;
-        }
-
-        double result;
-        if (value < 0) {
-            result = ((double) value) / 128.0;
-        } else {
-            result = ((double) value) / 127.0;
-        }
-
-        // wpi_assert(result <= 1.0 && result >= -1.0);
-        if (result > 1.0) {
-            result = 1.0;
-        } else if (result < -1.0) {
-            result = -1.0;
-        }
-        return result;
+        return m_frame.getStickAxis(stick, axis);
     }
 
     /**
@@ -333,18 +324,7 @@ public class DriverStation implements IInputOutput {
      * @return The state of the buttons on the joystick.
      */
     public int getStickButtons(final int stick) {
-        switch (stick) {
-            case 1:
-                return m_controlData.stick0Buttons;
-            case 2:
-                return m_controlData.stick1Buttons;
-            case 3:
-                return m_controlData.stick2Buttons;
-            case 4:
-                return m_controlData.stick3Buttons;
-            default:
-                return 0;
-        }
+        return m_frame.getStickButtons(stick);
     }
 
     /**
@@ -357,18 +337,7 @@ public class DriverStation implements IInputOutput {
      * @return The analog voltage on the input.
      */
     public double getAnalogIn(final int channel) {
-        switch (channel) {
-            case 1:
-                return kDSAnalogInScaling * m_controlData.analog1;
-            case 2:
-                return kDSAnalogInScaling * m_controlData.analog2;
-            case 3:
-                return kDSAnalogInScaling * m_controlData.analog3;
-            case 4:
-                return kDSAnalogInScaling * m_controlData.analog4;
-            default:
-                return 0.0;
-        }
+        return m_frame.getAnalogIn(channel);
     }
 
     /**
@@ -380,7 +349,7 @@ public class DriverStation implements IInputOutput {
      * @return The value of the digital input
      */
     public boolean getDigitalIn(final int channel) {
-        return ((m_controlData.dsDigitalIn >> (channel - 1)) & 0x1) == 0x1;
+        return m_frame.getDigitalIn(channel);
     }
 
     /**
@@ -414,7 +383,7 @@ public class DriverStation implements IInputOutput {
      * @return True if the robot is enabled, false otherwise.
      */
     public boolean isEnabled() {
-        return m_controlData.enabled();
+        return m_frame.isEnabled();
     }
 
     /**
@@ -424,7 +393,7 @@ public class DriverStation implements IInputOutput {
      * @return True if the robot should be disabled, false otherwise.
      */
     public boolean isDisabled() {
-        return !m_controlData.enabled();
+        return !m_frame.isEnabled();
     }
 
     /**
@@ -434,7 +403,7 @@ public class DriverStation implements IInputOutput {
      * @return True if autonomous mode should be enabled, false otherwise.
      */
     public boolean isAutonomous() {
-        return m_controlData.autonomous();
+        return m_frame.isAutonomous();
     }
 
     /**
@@ -444,7 +413,7 @@ public class DriverStation implements IInputOutput {
      * @return True if test mode should be enabled, false otherwise.
      */
     public boolean isTest() {
-        return m_controlData.testMode();
+        return m_frame.isTest();
     }
 
     /**
@@ -454,7 +423,7 @@ public class DriverStation implements IInputOutput {
      * @return True if operator-controlled mode should be enabled, false otherwise.
      */
     public boolean isOperatorControl() {
-        return !(m_controlData.autonomous() || m_controlData.testMode());
+        return m_frame.isOperatorControl();
     }
 
     /**
@@ -476,7 +445,7 @@ public class DriverStation implements IInputOutput {
      * @return The DS packet number.
      */
     public int getPacketNumber() {
-        return m_controlData.packetIndex;
+        return m_frame.getPacketNumber();
     }
 
     /**
@@ -485,14 +454,7 @@ public class DriverStation implements IInputOutput {
      * @return the current alliance
      */
     public Alliance getAlliance() {
-        switch (m_controlData.dsID_Alliance) {
-            case 'R':
-                return Alliance.kRed;
-            case 'B':
-                return Alliance.kBlue;
-            default:
-                return Alliance.kInvalid;
-        }
+        return m_frame.getAlliance();
     }
 
     /**
@@ -501,7 +463,7 @@ public class DriverStation implements IInputOutput {
      * @return the location of the team's driver station controls: 1, 2, or 3
      */
     public int getLocation() {
-        return m_controlData.dsID_Position - '0';
+        return m_frame.getLocation();
     }
 
     /**
@@ -510,7 +472,7 @@ public class DriverStation implements IInputOutput {
      * @return The team number
      */
     public int getTeamNumber() {
-        return m_controlData.teamID;
+        return m_frame.getTeamNumber();
     }
 
     /**
@@ -608,7 +570,7 @@ public class DriverStation implements IInputOutput {
      * @return True if the robot is competing on a field being controlled by a Field Management System
      */
     public boolean isFMSAttached() {
-        return (m_controlData.control & FRCCommonControlData.FMS_ATTATCHED) > 0;
+        return m_frame.isFMSAttached();
     }
 
     /**
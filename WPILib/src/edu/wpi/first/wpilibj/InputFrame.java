@@ -0,0 +1,236 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+package edu.wpi.first.wpilibj;
+
+import edu.wpi.first.wpilibj.communication.FRCCommonControlData;
+
+/**
+ * Everything the Driver Station sent in one control packet: joystick axes and
+ * buttons, the driver station analog and digital inputs, and the mode bits.
+ * <p/>
+ * The {@link DriverStation} keeps three frames and takes turns filling them.
+ * When a packet arrives the oldest frame is filled in and then swapped in as
+ * the current frame, so every value read from one frame came from the same
+ * packet, and reading a frame needs no lock. A frame is not changed until two
+ * more packets have arrived after the one that replaced it, about 40ms at the
+ * usual 50 packets a second, so get the frame at the start of a loop, read
+ * everything from it, and then let go of it. A loop that may hold a frame
+ * longer than that can compare {@link #getVersion()} before and after reading.
+ *
+ * @see DriverStation#getInputFrame()
+ */
+public final class InputFrame {
+
+    private final double[] m_axes = new double[DriverStation.kJoystickPorts * DriverStation.kJoystickAxes];
+    private final int[] m_buttons = new int[DriverStation.kJoystickPorts];
+    private final double[] m_analogIn = new double[4];
+    private int m_digitalIn;
+    private int m_control;
+    private int m_packetNumber;
+    private int m_teamNumber;
+    private char m_alliance;
+    private char m_position;
+    /**
+     * Incremented before and after each capture, so it is odd while the frame is being filled in
+     */
+    private volatile int m_version;
+
+    InputFrame() {
+    }
+
+    /**
+     * Copy a packet into this frame, scaling the axes and analog inputs once
+     * so reading them is only an array lookup.
+     */
+    void capture(FRCCommonControlData data) {
+        m_version++;
+        captureStick(0, data.stick0Axes, data.stick0Buttons);
+        captureStick(1, data.stick1Axes, data.stick1Buttons);
+        captureStick(2, data.stick2Axes, data.stick2Buttons);
+        captureStick(3, data.stick3Axes, data.stick3Buttons);
+        m_analogIn[0] = DriverStation.kDSAnalogInScaling * data.analog1;
+        m_analogIn[1] = DriverStation.kDSAnalogInScaling * data.analog2;
+        m_analogIn[2] = DriverStation.kDSAnalogInScaling * data.analog3;
+        m_analogIn[3] = DriverStation.kDSAnalogInScaling * data.analog4;
+        m_digitalIn = data.dsDigitalIn;
+        m_control = data.control;
+        m_packetNumber = data.packetIndex;
+        m_teamNumber = data.teamID;
+        m_alliance = data.dsID_Alliance;
+        m_position = data.dsID_Position;
+        m_version++;
+    }
+
+    /**
+     * Get the version of this frame. The frame was not changed while it was
+     * being read if the version was even before reading and the same after.
+     *
+     * @return A number that changes each time the frame is filled in, odd while it is being filled in.
+     */
+    public int getVersion() {
+        return m_version;
+    }
+
+    private void captureStick(int stick, byte[] axes, int buttons) {
+        int offset = stick * DriverStation.kJoystickAxes;
+        for (int i = 0; i < DriverStation.kJoystickAxes; i++) {
+            int value = axes[i];
+            double result;
+            if (value < 0) {
+                result = ((double) value) / 128.0;
+            } else {
+                result = ((double) value) / 127.0;
+            }
+            if (result > 1.0) {
+                result = 1.0;
+            } else if (result < -1.0) {
+                result = -1.0;
+            }
+            m_axes[offset + i] = result;
+        }
+        m_buttons[stick] = buttons;
+    }
+
+    /**
+     * Get the value of the axis on a joystick.
+     *
+     * @param stick The joystick to read, 1 through 4.
+     * @param axis  The analog axis value to read from the joystick, 1 through 6.
+     * @return The value of the axis on the joystick, or 0 if either is out of range.
+     */
+    public double getStickAxis(int stick, int axis) {
+        if (stick < 1 || stick > DriverStation.kJoystickPorts || axis < 1 || axis > DriverStation.kJoystickAxes) {
+            return 0.0;
+        }
+        return m_axes[(stick - 1) * DriverStation.kJoystickAxes + axis - 1];
+    }
+
+    /**
+     * The state of the buttons on the joystick.
+     * 12 buttons (4 msb are unused) from the joystick.
+     *
+     * @param stick The joystick to read, 1 through 4.
+     * @return The state of the buttons on the joystick, or 0 if stick is out of range.
+     */
+    public int getStickButtons(int stick) {
+        if (stick < 1 || stick > DriverStation.kJoystickPorts) {
+            return 0;
+        }
+        return m_buttons[stick - 1];
+    }
+
+    /**
+     * Get the state of one button on a joystick.
+     *
+     * @param stick  The joystick to read, 1 through 4.
+     * @param button The button number, starting at 1.
+     * @return True if the button is pressed.
+     */
+    public boolean getStickButton(int stick, int button) {
+        return ((0x1 << (button - 1)) & getStickButtons(stick)) != 0;
+    }
+
+    /**
+     * Get an analog voltage from the Driver Station.
+     *
+     * @param channel The analog input channel, 1 through 4.
+     * @return The analog voltage on the input, or 0 if channel is out of range.
+     */
+    public double getAnalogIn(int channel) {
+        if (channel < 1 || channel > m_analogIn.length) {
+            return 0.0;
+        }
+        return m_analogIn[channel - 1];
+    }
+
+    /**
+     * Get a digital input from the Driver Station.
+     *
+     * @param channel The digital input, 1 through 8.
+     * @return The value of the digital input
+     */
+    public boolean getDigitalIn(int channel) {
+        return ((m_digitalIn >> (channel - 1)) & 0x1) == 0x1;
+    }
+
+    /**
+     * @return True if the robot is enabled.
+     */
+    public boolean isEnabled() {
+        return (m_control & FRCCommonControlData.ENABLED_BIT) != 0;
+    }
+
+    /**
+     * @return True if the robot is in autonomous mode.
+     */
+    public boolean isAutonomous() {
+        return (m_control & FRCCommonControlData.AUTONOMOUS_BIT) != 0;
+    }
+
+    /**
+     * @return True if the robot is in test mode.
+     */
+    public boolean isTest() {
+        return (m_control & FRCCommonControlData.TEST_MODE_BIT) != 0;
+    }
+
+    /**
+     * @return True if the robot is in operator-controlled mode.
+     */
+    public boolean isOperatorControl() {
+        return (m_control & (FRCCommonControlData.AUTONOMOUS_BIT | FRCCommonControlData.TEST_MODE_BIT)) == 0;
+    }
+
+    /**
+     * @return True if the Driver Station is attached to a Field Management System.
+     */
+    public boolean isFMSAttached() {
+        return (m_control & FRCCommonControlData.FMS_ATTATCHED) != 0;
+    }
+
+    /**
+     * @return The control byte with all of the mode bits.
+     */
+    public int getControlWord() {
+        return m_control;
+    }
+
+    /**
+     * @return The DS packet number this frame came from.
+     */
+    public int getPacketNumber() {
+        return m_packetNumber;
+    }
+
+    /**
+     * @return The team number the Driver Station is configured for.
+     */
+    public int getTeamNumber() {
+        return m_teamNumber;
+    }
+
+    /**
+     * @return The alliance from the FMS.
+     */
+    public DriverStation.Alliance getAlliance() {
+        switch (m_alliance) {
+            case 'R':
+                return DriverStation.Alliance.kRed;
+            case 'B':
+                return DriverStation.Alliance.kBlue;
+            default:
+                return DriverStation.Alliance.kInvalid;
+        }
+    }
+
+    /**
+     * @return The location of the team's driver station controls: 1, 2, or 3.
+     */
+    public int getLocation() {
+        return m_position - '0';
+    }
+}
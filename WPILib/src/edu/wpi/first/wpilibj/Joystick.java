@@ -207,6 +207,18 @@ public class Joystick extends GenericHID implements IInputOutput {
         return m_ds.getStickAxis(m_port, axis);
     }
 
+    /**
+     * Get the value of the axis from an input frame, so that every value read
+     * from the frame in one loop came from the same packet.
+     *
+     * @param frame The frame to read, see {@link DriverStation#getInputFrame()}.
+     * @param axis  The axis to read [1-6].
+     * @return The value of the axis.
+     */
+    public double getRawAxis(InputFrame frame, final int axis) {
+        return frame.getStickAxis(m_port, axis);
+    }
+
     /**
      * For the current joystick, return the axis determined by the argument.
      * <p/>
@@ -233,6 +245,17 @@ public class Joystick extends GenericHID implements IInputOutput {
         }
     }
 
+    /**
+     * Get the axis determined by the argument from an input frame.
+     *
+     * @param frame The frame to read, see {@link DriverStation#getInputFrame()}.
+     * @param axis  The axis to read.
+     * @return The value of the axis.
+     */
+    public double getAxis(InputFrame frame, final AxisType axis) {
+        return getRawAxis(frame, m_axes[axis.value]);
+    }
+
     /**
      * Read the state of the trigger on the joystick.
      * <p/>
@@ -281,6 +304,17 @@ public class Joystick extends GenericHID implements IInputOutput {
         return ((0x1 << (button - 1)) & m_ds.getStickButtons(m_port)) != 0;
     }
 
+    /**
+     * Get the button value for buttons 1 through 12 from an input frame.
+     *
+     * @param frame  The frame to read, see {@link DriverStation#getInputFrame()}.
+     * @param button The button number to be read.
+     * @return The state of the button.
+     */
+    public boolean getRawButton(InputFrame frame, final int button) {
+        return frame.getStickButton(m_port, button);
+    }
+
     /**
      * Get buttons based on an enumerated type.
      * <p/>
@@ -307,7 +341,20 @@ public class Joystick extends GenericHID implements IInputOutput {
      * @return The magnitude of the direction vector
      */
     public double getMagnitude() {
-        return Math.sqrt(MathUtils.pow(getX(), 2) + MathUtils.pow(getY(), 2));
+        return getMagnitude(m_ds.getInputFrame());
+    }
+
+    /**
+     * Get the magnitude of the direction vector from an input frame, so X
+     * and Y come from the same packet.
+     *
+     * @param frame The frame to read, see {@link DriverStation#getInputFrame()}.
+     * @return The magnitude of the direction vector
+     */
+    public double getMagnitude(InputFrame frame) {
+        double x = getAxis(frame, AxisType.kX);
+        double y = getAxis(frame, AxisType.kY);
+        return Math.sqrt(MathUtils.pow(x, 2) + MathUtils.pow(y, 2));
     }
 
     /**
@@ -317,7 +364,18 @@ public class Joystick extends GenericHID implements IInputOutput {
      * @return The direction of the vector in radians
      */
     public double getDirectionRadians() {
-        return MathUtils.atan2(getX(), -getY());
+        return getDirectionRadians(m_ds.getInputFrame());
+    }
+
+    /**
+     * Get the direction of the vector from an input frame, so X and Y come
+     * from the same packet.
+     *
+     * @param frame The frame to read, see {@link DriverStation#getInputFrame()}.
+     * @return The direction of the vector in radians
+     */
+    public double getDirectionRadians(InputFrame frame) {
+        return MathUtils.atan2(getAxis(frame, AxisType.kX), -getAxis(frame, AxisType.kY));
     }
 
     /**
@@ -333,6 +391,15 @@ public class Joystick extends GenericHID implements IInputOutput {
         return Math.toDegrees(getDirectionRadians());
     }
 
+    /**
+     * Get the port on the driver station that the joystick is plugged into.
+     *
+     * @return The port, 1 through 4.
+     */
+    public int getPort() {
+        return m_port;
+    }
+
     /**
      * Get the channel currently associated with the specified axis.
      *
@@ -21,33 +21,73 @@ import java.util.TimerTask;
  * Creates a separate thread which reads the given PIDSource and takes
  * care of the integral calculations, as well as writing the given
  * PIDOutput
+ * <p/>
+ * The control loop never takes a lock. Gains, ranges, the setpoint and the
+ * enabled flag are kept in an immutable {@link Config} that setters copy,
+ * change and swap in, so the loop always works from one consistent set of
+ * values. The loop publishes its error and output through a sequence
+ * counter, so getters never wait on the loop and the loop never waits on
+ * them.
  */
 public class PIDController implements IUtility, LiveWindowSendable, Controller {
 
     public static final double kDefaultPeriod = .05;
     private static int instances = 0;
-    private double m_P;            // factor for "proportional" control
-    private double m_I;            // factor for "integral" control
-    private double m_D;            // factor for "derivative" control
-    private double m_F;                 // factor for feedforward term
-    private double m_maximumOutput = 1.0;    // |maximum output|
-    private double m_minimumOutput = -1.0;    // |minimum output|
-    private double m_maximumInput = 0.0;        // maximum input - limit setpoint to this
-    private double m_minimumInput = 0.0;        // minimum input - limit setpoint to this
-    private boolean m_continuous = false;    // do the endpoints wrap around? eg. Absolute encoder
-    private boolean m_enabled = false;            //is the pid controller enabled
-    private double m_prevError = 0.0;    // the prior sensor input (used to compute velocity)
-    private double m_totalError = 0.0; //the sum of the errors for use in the integral calc
-    private Tolerance m_tolerance;    //the tolerance object used to check if on target
-    private double m_setpoint = 0.0;
-    private double m_error = 0.0;
-    private double m_result = 0.0;
+    private static boolean m_useSharedExecutor = false;
+    private volatile Config m_config;    // the current configuration, replaced as a whole by setters
+    private double m_prevError = 0.0;    // the prior sensor input (used to compute velocity), loop thread only
+    private double m_totalError = 0.0; //the sum of the errors for use in the integral calc, loop thread only
+    private int m_resetCount = 0;    // the Config reset count the loop has applied, loop thread only
+    private volatile int m_stateSeq = 0;    // odd while the loop is publishing m_error and m_result
+    private volatile double m_error = 0.0;
+    private volatile double m_result = 0.0;
+    private volatile int m_resultResetCount = 0;    // the Config reset count m_result was calculated under
     private double m_period = kDefaultPeriod;
     PIDSource m_pidInput;
     PIDOutput m_pidOutput;
     java.util.Timer m_controlLoop;
     private boolean m_usingPercentTolerance;
 
+    /**
+     * The settings of a PIDController. A Config is never changed after it is
+     * published: setters copy the current Config, change the copy and
+     * replace it, so the control loop always sees one consistent set.
+     */
+    private static final class Config {
+
+        double m_P;            // factor for "proportional" control
+        double m_I;            // factor for "integral" control
+        double m_D;            // factor for "derivative" control
+        double m_F;                 // factor for feedforward term
+        double m_maximumOutput = 1.0;    // |maximum output|
+        double m_minimumOutput = -1.0;    // |minimum output|
+        double m_maximumInput = 0.0;        // maximum input - limit setpoint to this
+        double m_minimumInput = 0.0;        // minimum input - limit setpoint to this
+        boolean m_continuous = false;    // do the endpoints wrap around? eg. Absolute encoder
+        boolean m_enabled = false;            //is the pid controller enabled
+        double m_setpoint = 0.0;
+        Tolerance m_tolerance;    //the tolerance object used to check if on target
+        int m_resetCount = 0;    // incremented by reset() to clear the loop's integral and output
+
+        Config copy() {
+            Config c = new Config();
+            c.m_P = m_P;
+            c.m_I = m_I;
+            c.m_D = m_D;
+            c.m_F = m_F;
+            c.m_maximumOutput = m_maximumOutput;
+            c.m_minimumOutput = m_minimumOutput;
+            c.m_maximumInput = m_maximumInput;
+            c.m_minimumInput = m_minimumInput;
+            c.m_continuous = m_continuous;
+            c.m_enabled = m_enabled;
+            c.m_setpoint = m_setpoint;
+            c.m_tolerance = m_tolerance;
+            c.m_resetCount = m_resetCount;
+            return c;
+        }
+    }
+
     /**
      * Tolerance is the type of tolerance used to specify if the PID controller is on target.
      * The various implementations of this class such as PercentageTolerance and AbsoluteTolerance
@@ -65,8 +105,9 @@ public class PIDController implements IUtility, LiveWindowSendable, Controller {
         }
 
         public boolean onTarget() {
+            Config config = m_config;
             return (Math.abs(getError()) < percentage / 100
-                    * (m_maximumInput - m_minimumInput));
+                    * (config.m_maximumInput - config.m_minimumInput));
         }
     }
 
@@ -128,23 +169,27 @@ public class PIDController implements IUtility, LiveWindowSendable, Controller {
             throw new NullPointerException("Null PIDOutput was given");
         }
 
-        m_controlLoop = new java.util.Timer();
-
-
-        m_P = Kp;
-        m_I = Ki;
-        m_D = Kd;
-        m_F = Kf;
+        Config config = new Config();
+        config.m_P = Kp;
+        config.m_I = Ki;
+        config.m_D = Kd;
+        config.m_F = Kf;
+        config.m_tolerance = new NullTolerance();
+        m_config = config;
 
         m_pidInput = source;
         m_pidOutput = output;
         m_period = period;
 
-        m_controlLoop.schedule(new PIDTask(this), 0L, (long) (m_period * 1000));
+        if (isSharedExecutorEnabled()) {
+            PIDExecutor.getInstance().add(this, m_period);
+        } else {
+            m_controlLoop = new java.util.Timer();
+            m_controlLoop.schedule(new PIDTask(this), 0L, (long) (m_period * 1000));
+        }
 
         instances++;
         UsageReporting.report(UsageReporting.kResourceType_PIDController, instances);
-        m_tolerance = new NullTolerance();
     }
 
     /**
@@ -191,82 +236,117 @@ public class PIDController implements IUtility, LiveWindowSendable, Controller {
         this(Kp, Ki, Kd, Kf, source, output, kDefaultPeriod);
     }
 
+    /**
+     * Choose how PIDControllers created from now on are run. By default each
+     * controller runs on its own java.util.Timer thread. When the shared
+     * executor is enabled, every controller runs on the single
+     * {@link PIDExecutor} thread instead, and controllers with the same period
+     * are calculated together in one wakeup. Controllers that already exist
+     * are not affected.
+     *
+     * @param enabled true to use the shared executor
+     */
+    public static synchronized void setSharedExecutorEnabled(boolean enabled) {
+        m_useSharedExecutor = enabled;
+    }
+
+    /**
+     * Check if new PIDControllers will use the shared executor
+     *
+     * @return true if the shared executor is enabled
+     */
+    public static synchronized boolean isSharedExecutorEnabled() {
+        return m_useSharedExecutor;
+    }
+
     /**
      * Free the PID object
      */
     public void free() {
-        m_controlLoop.cancel();
-        m_controlLoop = null;
+        if (m_controlLoop != null) {
+            m_controlLoop.cancel();
+            m_controlLoop = null;
+        } else {
+            PIDExecutor.getInstance().remove(this);
+        }
     }
 
     /**
      * Read the input, calculate the output accordingly, and write to the output.
-     * This should only be called by the PIDTask
+     * This should only be called by the PIDTask or the PIDExecutor
      * and is created during initialization.
      */
-    private void calculate() {
-        boolean enabled;
-        PIDSource pidInput;
+    void calculate() {
+        if (m_pidInput == null) {
+            return;
+        }
+        if (m_pidOutput == null) {
+            return;
+        }
+        Config config = m_config; // take snapshot of these values...
 
-        synchronized (this) {
-            if (m_pidInput == null) {
-                return;
-            }
-            if (m_pidOutput == null) {
-                return;
-            }
-            enabled = m_enabled; // take snapshot of these values...
-            pidInput = m_pidInput;
+        if (config.m_resetCount != m_resetCount) {
+            m_resetCount = config.m_resetCount;
+            m_prevError = 0;
+            m_totalError = 0;
+            publish(m_error, 0, m_resetCount);
         }
 
-        if (enabled) {
-            double input = pidInput.pidGet();
-            double result;
-            PIDOutput pidOutput = null;
-
-            synchronized (this) {
-                m_error = m_setpoint - input;
-                if (m_continuous) {
-                    if (Math.abs(m_error)
-                            > (m_maximumInput - m_minimumInput) / 2) {
-                        if (m_error > 0) {
-                            m_error = m_error - m_maximumInput + m_minimumInput;
-                        } else {
-                            m_error = m_error
-                                    + m_maximumInput - m_minimumInput;
-                        }
+        if (config.m_enabled) {
+            double input = m_pidInput.pidGet();
+            double error = config.m_setpoint - input;
+            if (config.m_continuous) {
+                if (Math.abs(error)
+                        > (config.m_maximumInput - config.m_minimumInput) / 2) {
+                    if (error > 0) {
+                        error = error - config.m_maximumInput + config.m_minimumInput;
+                    } else {
+                        error = error
+                                + config.m_maximumInput - config.m_minimumInput;
                     }
                 }
+            }
 
-                if (m_I != 0) {
-                    double potentialIGain = (m_totalError + m_error) * m_I;
-                    if (potentialIGain < m_maximumOutput) {
-                        if (potentialIGain > m_minimumOutput) {
-                            m_totalError += m_error;
-                        } else {
-                            m_totalError = m_minimumOutput / m_I;
-                        }
+            if (config.m_I != 0) {
+                double potentialIGain = (m_totalError + error) * config.m_I;
+                if (potentialIGain < config.m_maximumOutput) {
+                    if (potentialIGain > config.m_minimumOutput) {
+                        m_totalError += error;
                     } else {
-                        m_totalError = m_maximumOutput / m_I;
+                        m_totalError = config.m_minimumOutput / config.m_I;
                     }
+                } else {
+                    m_totalError = config.m_maximumOutput / config.m_I;
                 }
+            }
 
-                m_result = m_P * m_error + m_I * m_totalError + m_D * (m_error - m_prevError) + m_setpoint * m_F;
-                m_prevError = m_error;
+            double result = config.m_P * error + config.m_I * m_totalError
+                    + config.m_D * (error - m_prevError) + config.m_setpoint * config.m_F;
+            m_prevError = error;
 
-                if (m_result > m_maximumOutput) {
-                    m_result = m_maximumOutput;
-                } else if (m_result < m_minimumOutput) {
-                    m_result = m_minimumOutput;
-                }
-                pidOutput = m_pidOutput;
-                result = m_result;
+            if (result > config.m_maximumOutput) {
+                result = config.m_maximumOutput;
+            } else if (result < config.m_minimumOutput) {
+                result = config.m_minimumOutput;
             }
+            publish(error, result, config.m_resetCount);
 
-            pidOutput.pidWrite(result);
+            m_pidOutput.pidWrite(result);
         }
     }
 
+    /**
+     * Publish the latest error and output for other threads. Only the control
+     * loop calls this, so the sequence counter has a single writer.
+     */
+    private void publish(double error, double result, int resetCount) {
+        m_stateSeq++;
+        m_error = error;
+        m_result = result;
+        m_resultResetCount = resetCount;
+        m_stateSeq++;
+    }
+
     /**
      * Set the PID Controller gain parameters.
      * Set the proportional, integral, and differential coefficients.
@@ -276,9 +356,11 @@ public class PIDController implements IUtility, LiveWindowSendable, Controller {
      * @param d Differential coefficient
      */
     public synchronized void setPID(double p, double i, double d) {
-        m_P = p;
-        m_I = i;
-        m_D = d;
+        Config config = m_config.copy();
+        config.m_P = p;
+        config.m_I = i;
+        config.m_D = d;
+        m_config = config;
 
         if (table != null) {
             table.putNumber("p", p);
@@ -297,10 +379,12 @@ public class PIDController implements IUtility, LiveWindowSendable, Controller {
      * @param f Feed forward coefficient
      */
     public synchronized void setPID(double p, double i, double d, double f) {
-        m_P = p;
-        m_I = i;
-        m_D = d;
-        m_F = f;
+        Config config = m_config.copy();
+        config.m_P = p;
+        config.m_I = i;
+        config.m_D = d;
+        config.m_F = f;
+        m_config = config;
 
         if (table != null) {
             table.putNumber("p", p);
@@ -316,7 +400,7 @@ public class PIDController implements IUtility, LiveWindowSendable, Controller {
      * @return proportional coefficient
      */
     public double getP() {
-        return m_P;
+        return m_config.m_P;
     }
 
     /**
@@ -325,7 +409,7 @@ public class PIDController implements IUtility, LiveWindowSendable, Controller {
      * @return integral coefficient
      */
     public double getI() {
-        return m_I;
+        return m_config.m_I;
     }
 
     /**
@@ -333,8 +417,8 @@ public class PIDController implements IUtility, LiveWindowSendable, Controller {
      *
      * @return differential coefficient
      */
-    public synchronized double getD() {
-        return m_D;
+    public double getD() {
+        return m_config.m_D;
     }
 
     /**
@@ -342,8 +426,8 @@ public class PIDController implements IUtility, LiveWindowSendable, Controller {
      *
      * @return feed forward coefficient
      */
-    public synchronized double getF() {
-        return m_F;
+    public double getF() {
+        return m_config.m_F;
     }
 
     /**
@@ -352,8 +436,17 @@ public class PIDController implements IUtility, LiveWindowSendable, Controller {
      *
      * @return the latest calculated output
      */
-    public synchronized double get() {
-        return m_result;
+    public double get() {
+        int seq;
+        double result;
+        int resetCount;
+        do {
+            seq = m_stateSeq;
+            result = m_result;
+            resetCount = m_resultResetCount;
+        } while ((seq & 1) != 0 || seq != m_stateSeq);
+        // a reset the loop has not picked up yet still clears the result
+        return resetCount == m_config.m_resetCount ? result : 0.0;
     }
 
     /**
@@ -365,7 +458,9 @@ public class PIDController implements IUtility, LiveWindowSendable, Controller {
      * @param continuous Set to true turns on continuous, false turns off continuous
      */
     public synchronized void setContinuous(boolean continuous) {
-        m_continuous = continuous;
+        Config config = m_config.copy();
+        config.m_continuous = continuous;
+        m_config = config;
     }
 
     /**
@@ -388,9 +483,11 @@ public class PIDController implements IUtility, LiveWindowSendable, Controller {
         if (minimumInput > maximumInput) {
             throw new BoundaryException("Lower bound is greater than upper bound");
         }
-        m_minimumInput = minimumInput;
-        m_maximumInput = maximumInput;
-        setSetpoint(m_setpoint);
+        Config config = m_config.copy();
+        config.m_minimumInput = minimumInput;
+        config.m_maximumInput = maximumInput;
+        m_config = config;
+        setSetpoint(config.m_setpoint);
     }
 
     /**
@@ -403,8 +500,10 @@ public class PIDController implements IUtility, LiveWindowSendable, Controller {
         if (minimumOutput > maximumOutput) {
             throw new BoundaryException("Lower bound is greater than upper bound");
         }
-        m_minimumOutput = minimumOutput;
-        m_maximumOutput = maximumOutput;
+        Config config = m_config.copy();
+        config.m_minimumOutput = minimumOutput;
+        config.m_maximumOutput = maximumOutput;
+        m_config = config;
     }
 
     /**
@@ -413,20 +512,22 @@ public class PIDController implements IUtility, LiveWindowSendable, Controller {
      * @param setpoint the desired setpoint
      */
     public synchronized void setSetpoint(double setpoint) {
-        if (m_maximumInput > m_minimumInput) {
-            if (setpoint > m_maximumInput) {
-                m_setpoint = m_maximumInput;
-            } else if (setpoint < m_minimumInput) {
-                m_setpoint = m_minimumInput;
+        Config config = m_config.copy();
+        if (config.m_maximumInput > config.m_minimumInput) {
+            if (setpoint > config.m_maximumInput) {
+                config.m_setpoint = config.m_maximumInput;
+            } else if (setpoint < config.m_minimumInput) {
+                config.m_setpoint = config.m_minimumInput;
             } else {
-                m_setpoint = setpoint;
+                config.m_setpoint = setpoint;
             }
         } else {
-            m_setpoint = setpoint;
+            config.m_setpoint = setpoint;
         }
+        m_config = config;
 
         if (table != null)
-            table.putNumber("setpoint", m_setpoint);
+            table.putNumber("setpoint", config.m_setpoint);
     }
 
     /**
@@ -434,8 +535,8 @@ public class PIDController implements IUtility, LiveWindowSendable, Controller {
      *
      * @return the current setpoint
      */
-    public synchronized double getSetpoint() {
-        return m_setpoint;
+    public double getSetpoint() {
+        return m_config.m_setpoint;
     }
 
     /**
@@ -443,7 +544,7 @@ public class PIDController implements IUtility, LiveWindowSendable, Controller {
      *
      * @return the current error
      */
-    public synchronized double getError() {
+    public double getError() {
         //return m_error;
         return getSetpoint() - m_pidInput.pidGet();
     }
@@ -456,7 +557,7 @@ public class PIDController implements IUtility, LiveWindowSendable, Controller {
      * @deprecated Use setTolerance(Tolerance), i.e. setTolerance(new PIDController.PercentageTolerance(15))
      */
     public synchronized void setTolerance(double percent) {
-        m_tolerance = new PercentageTolerance(percent);
+        setTolerance(new PercentageTolerance(percent));
     }
 
     /**
@@ -468,8 +569,10 @@ public class PIDController implements IUtility, LiveWindowSendable, Controller {
      * @param tolerance a tolerance object of the right type, e.g. PercentTolerance
      *                  or AbsoluteTolerance
      */
-    private void setTolerance(Tolerance tolerance) {
-        m_tolerance = tolerance;
+    private synchronized void setTolerance(Tolerance tolerance) {
+        Config config = m_config.copy();
+        config.m_tolerance = tolerance;
+        m_config = config;
     }
 
     /**
@@ -479,7 +582,7 @@ public class PIDController implements IUtility, LiveWindowSendable, Controller {
      * @param absolute error which is tolerable in the units of the input object
      */
     public synchronized void setAbsoluteTolerance(double absvalue) {
-        m_tolerance = new AbsoluteTolerance(absvalue);
+        setTolerance(new AbsoluteTolerance(absvalue));
     }
 
     /**
@@ -489,7 +592,7 @@ public class PIDController implements IUtility, LiveWindowSendable, Controller {
      * @param percent error which is tolerable
      */
     public synchronized void setPercentTolerance(double percentage) {
-        m_tolerance = new PercentageTolerance(percentage);
+        setTolerance(new PercentageTolerance(percentage));
     }
 
     /**
@@ -499,15 +602,17 @@ public class PIDController implements IUtility, LiveWindowSendable, Controller {
      *
      * @return true if the error is less than the tolerance
      */
-    public synchronized boolean onTarget() {
-        return m_tolerance.onTarget();
+    public boolean onTarget() {
+        return m_config.m_tolerance.onTarget();
     }
 
     /**
      * Begin running the PIDController
      */
     public synchronized void enable() {
-        m_enabled = true;
+        Config config = m_config.copy();
+        config.m_enabled = true;
+        m_config = config;
 
         if (table != null) {
             table.putBoolean("enabled", true);
@@ -519,7 +624,9 @@ public class PIDController implements IUtility, LiveWindowSendable, Controller {
      */
     public synchronized void disable() {
         m_pidOutput.pidWrite(0);
-        m_enabled = false;
+        Config config = m_config.copy();
+        config.m_enabled = false;
+        m_config = config;
 
         if (table != null) {
             table.putBoolean("enabled", false);
@@ -529,18 +636,20 @@ public class PIDController implements IUtility, LiveWindowSendable, Controller {
     /**
      * Return true if PIDController is enabled.
      */
-    public synchronized boolean isEnable() {
-        return m_enabled;
+    public boolean isEnable() {
+        return m_config.m_enabled;
     }
 
     /**
      * Reset the previous error,, the integral term, and disable the controller.
+     * The control loop clears its integral term the next time it runs; until
+     * then {@link #get()} already returns 0.
      */
     public synchronized void reset() {
         disable();
-        m_prevError = 0;
-        m_totalError = 0;
-        m_result = 0;
+        Config config = m_config.copy();
+        config.m_resetCount++;
+        m_config = config;
     }
 
     public String getSmartDashboardType() {
@@ -550,14 +659,15 @@ public class PIDController implements IUtility, LiveWindowSendable, Controller {
     private ITableListener listener = new ITableListener() {
         public void valueChanged(ITable table, String key, Object value, boolean isNew) {
             if (key.equals("p") || key.equals("i") || key.equals("d") || key.equals("f")) {
-                if (m_P != table.getNumber("p", 0.0) || m_I != table.getNumber("i", 0.0) ||
-                        m_D != table.getNumber("d", 0.0) || m_F != table.getNumber("f", 0.0))
+                Config config = m_config;
+                if (config.m_P != table.getNumber("p", 0.0) || config.m_I != table.getNumber("i", 0.0) ||
+                        config.m_D != table.getNumber("d", 0.0) || config.m_F != table.getNumber("f", 0.0))
                     setPID(table.getNumber("p", 0.0), table.getNumber("i", 0.0), table.getNumber("d", 0.0), table.getNumber("f", 0.0));
             } else if (key.equals("setpoint")) {
-                if (m_setpoint != ((Double) value).doubleValue())
+                if (getSetpoint() != ((Double) value).doubleValue())
                     setSetpoint(((Double) value).doubleValue());
             } else if (key.equals("enabled")) {
-                if (m_enabled != ((Boolean) value).booleanValue()) {
+                if (isEnable() != ((Boolean) value).booleanValue()) {
                     if (((Boolean) value).booleanValue()) {
                         enable();
                     } else {
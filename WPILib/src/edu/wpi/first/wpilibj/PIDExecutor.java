@@ -0,0 +1,353 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+package edu.wpi.first.wpilibj;
+
+/**
+ * Runs PIDControllers on a single shared thread.
+ * <p/>
+ * By default every PIDController creates its own java.util.Timer, and so its
+ * own thread. When {@link PIDController#setSharedExecutorEnabled(boolean)} is
+ * turned on, new controllers are added to this executor instead. Controllers
+ * with the same period are put in the same group, and every controller in a
+ * group is calculated back to back in a single wakeup. Wakeups are scheduled
+ * against the FPGA clock in microseconds, and timing statistics are kept for
+ * each group.
+ */
+public class PIDExecutor implements Runnable {
+
+    private static PIDExecutor m_instance = null;
+
+    private Group[] m_groups = new Group[0];
+    private Thread m_thread = null;
+
+    /**
+     * A set of controllers that share a period and are calculated together
+     */
+    public static final class Group {
+
+        final long m_periodUs;
+        volatile PIDController[] m_controllers = new PIDController[0];
+        long m_next = 0;
+        boolean m_scheduled = false;
+        private volatile long m_ticks = 0;
+        private volatile long m_overruns = 0;
+        private volatile long m_lastJitter = 0;
+        private volatile long m_maxJitter = 0;
+        private volatile long m_totalJitter = 0;
+        private volatile long m_lastExecution = 0;
+        private volatile long m_maxExecution = 0;
+        private volatile long m_totalExecution = 0;
+
+        Group(long periodUs) {
+            m_periodUs = periodUs;
+        }
+
+        void record(long jitter, long execution, boolean overrun) {
+            if (jitter < 0) {
+                jitter = 0;
+            }
+            m_lastJitter = jitter;
+            if (jitter > m_maxJitter) {
+                m_maxJitter = jitter;
+            }
+            m_totalJitter += jitter;
+            m_lastExecution = execution;
+            if (execution > m_maxExecution) {
+                m_maxExecution = execution;
+            }
+            m_totalExecution += execution;
+            if (overrun) {
+                m_overruns++;
+            }
+            m_ticks++;
+        }
+
+        /**
+         * @return the time between runs of this group in seconds
+         */
+        public double getPeriod() {
+            return m_periodUs / 1e6;
+        }
+
+        /**
+         * @return the number of controllers in this group
+         */
+        public int getControllerCount() {
+            return m_controllers.length;
+        }
+
+        /**
+         * @return the number of times this group has run
+         */
+        public long getTickCount() {
+            return m_ticks;
+        }
+
+        /**
+         * @return the number of runs that finished after the next run was due
+         */
+        public long getOverrunCount() {
+            return m_overruns;
+        }
+
+        /**
+         * @return how late the last run started, in microseconds
+         */
+        public long getLastJitter() {
+            return m_lastJitter;
+        }
+
+        /**
+         * @return the latest any run started, in microseconds
+         */
+        public long getMaxJitter() {
+            return m_maxJitter;
+        }
+
+        /**
+         * @return how late runs started on average, in microseconds
+         */
+        public double getAverageJitter() {
+            long ticks = m_ticks;
+            return ticks == 0 ? 0 : (double) m_totalJitter / ticks;
+        }
+
+        /**
+         * @return how long the last run took, in microseconds
+         */
+        public long getLastExecutionTime() {
+            return m_lastExecution;
+        }
+
+        /**
+         * @return the longest any run took, in microseconds
+         */
+        public long getMaxExecutionTime() {
+            return m_maxExecution;
+        }
+
+        /**
+         * @return how long runs took on average, in microseconds
+         */
+        public double getAverageExecutionTime() {
+            long ticks = m_ticks;
+            return ticks == 0 ? 0 : (double) m_totalExecution / ticks;
+        }
+
+        public String toString() {
+            return "PID group " + getPeriod() + "s: " + m_controllers.length
+                    + " controllers, " + m_ticks + " runs, " + m_overruns
+                    + " overruns, jitter avg " + (long) getAverageJitter()
+                    + "us max " + m_maxJitter + "us, execution avg "
+                    + (long) getAverageExecutionTime() + "us max "
+                    + m_maxExecution + "us";
+        }
+    }
+
+    /**
+     * Get the executor shared by all PIDControllers
+     *
+     * @return the shared executor
+     */
+    public static synchronized PIDExecutor getInstance() {
+        if (m_instance == null) {
+            m_instance = new PIDExecutor();
+        }
+        return m_instance;
+    }
+
+    private PIDExecutor() {
+    }
+
+    /**
+     * Add a controller to the group for its period, creating the group and
+     * starting the executor thread if needed
+     *
+     * @param controller the controller to run
+     * @param period     the time between calculations in seconds
+     */
+    synchronized void add(PIDController controller, double period) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("PID period must be greater than 0");
+        }
+        long periodUs = (long) (period * 1e6);
+        Group group = null;
+        for (int i = 0; i < m_groups.length; i++) {
+            if (m_groups[i].m_periodUs == periodUs) {
+                group = m_groups[i];
+            }
+        }
+        if (group == null) {
+            group = new Group(periodUs);
+            Group[] groups = new Group[m_groups.length + 1];
+            System.arraycopy(m_groups, 0, groups, 0, m_groups.length);
+            groups[m_groups.length] = group;
+            m_groups = groups;
+        }
+        PIDController[] old = group.m_controllers;
+        PIDController[] controllers = new PIDController[old.length + 1];
+        System.arraycopy(old, 0, controllers, 0, old.length);
+        controllers[old.length] = controller;
+        group.m_controllers = controllers;
+
+        if (m_thread == null) {
+            m_thread = new Thread(this);
+            m_thread.setPriority(Thread.MAX_PRIORITY);
+            m_thread.start();
+        }
+        notify();
+    }
+
+    /**
+     * Remove a controller. Empty groups are removed too. The controller may
+     * still be calculated once more if its group is running right now.
+     *
+     * @param controller the controller to stop running
+     */
+    synchronized void remove(PIDController controller) {
+        for (int i = 0; i < m_groups.length; i++) {
+            Group group = m_groups[i];
+            PIDController[] old = group.m_controllers;
+            for (int j = 0; j < old.length; j++) {
+                if (old[j] != controller) {
+                    continue;
+                }
+                if (old.length == 1) {
+                    Group[] groups = new Group[m_groups.length - 1];
+                    System.arraycopy(m_groups, 0, groups, 0, i);
+                    System.arraycopy(m_groups, i + 1, groups, i, m_groups.length - i - 1);
+                    m_groups = groups;
+                } else {
+                    PIDController[] controllers = new PIDController[old.length - 1];
+                    System.arraycopy(old, 0, controllers, 0, j);
+                    System.arraycopy(old, j + 1, controllers, j, old.length - j - 1);
+                    group.m_controllers = controllers;
+                }
+                notify();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Get the groups that are currently running
+     *
+     * @return a copy of the array of groups
+     */
+    public synchronized Group[] getGroups() {
+        Group[] groups = new Group[m_groups.length];
+        System.arraycopy(m_groups, 0, groups, 0, m_groups.length);
+        return groups;
+    }
+
+    /**
+     * Get the group for a period
+     *
+     * @param period the period in seconds
+     * @return the group, or null if no controllers run at that period
+     */
+    public synchronized Group getGroup(double period) {
+        long periodUs = (long) (period * 1e6);
+        for (int i = 0; i < m_groups.length; i++) {
+            if (m_groups[i].m_periodUs == periodUs) {
+                return m_groups[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The executor thread. This should not be called directly.
+     */
+    public void run() {
+        while (true) {
+            Group[] groups;
+            synchronized (this) {
+                groups = m_groups;
+            }
+            // the FPGA clock is 32 bits and wraps, so compare differences
+            long now = Utility.getFPGATime();
+            long wait = Long.MAX_VALUE;
+            for (int i = 0; i < groups.length; i++) {
+                long remaining = groups[i].m_scheduled ? (int) (groups[i].m_next - now) : 0;
+                if (remaining < wait) {
+                    wait = remaining;
+                }
+            }
+            if (!waitUntil(now + wait, groups)) {
+                continue;
+            }
+
+            now = Utility.getFPGATime();
+            for (int i = 0; i < groups.length; i++) {
+                Group group = groups[i];
+                if (!group.m_scheduled) {
+                    group.m_next = now;
+                    group.m_scheduled = true;
+                }
+                if ((int) (now - group.m_next) < 0) {
+                    continue;
+                }
+                long start = Utility.getFPGATime();
+                PIDController[] controllers = group.m_controllers;
+                for (int j = 0; j < controllers.length; j++) {
+                    try {
+                        controllers[j].calculate();
+                    } catch (RuntimeException ex) {
+                        ex.printStackTrace();
+                    }
+                }
+                long end = Utility.getFPGATime();
+
+                long deadline = group.m_next;
+                group.m_next += group.m_periodUs;
+                long late = (int) (end - group.m_next);
+                boolean overrun = late > 0;
+                if (overrun) {
+                    // skip the runs we missed so we stay on the original schedule
+                    group.m_next += (late / group.m_periodUs + 1) * group.m_periodUs;
+                }
+                group.record((int) (start - deadline), (int) (end - start), overrun);
+            }
+        }
+    }
+
+    /**
+     * Sleep until the FPGA clock reaches the given time. Thread.sleep only has
+     * millisecond resolution, so the last partial millisecond is spent
+     * yielding. Adding or removing a controller cuts the wait short.
+     *
+     * @return true if the time was reached, false if the wait was cut short
+     */
+    private boolean waitUntil(long time, Group[] groups) {
+        synchronized (this) {
+            while (groups.length == 0 && m_groups == groups) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }
+            long remaining;
+            while (m_groups == groups
+                    && (remaining = (int) (time - Utility.getFPGATime())) >= 1000) {
+                try {
+                    wait(remaining / 1000);
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }
+            if (m_groups != groups) {
+                return false;
+            }
+        }
+        while ((int) (Utility.getFPGATime() - time) < 0) {
+            Thread.yield();
+        }
+        return true;
+    }
+}
@@ -12,9 +12,11 @@ import edu.wpi.first.wpilibj.networktables.NetworkTable;
 import edu.wpi.first.wpilibj.tables.ITable;
 import edu.wpi.first.wpilibj.tables.ITableListener;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.Vector;
 import javax.microedition.io.Connector;
@@ -35,6 +37,11 @@ import javax.microedition.io.Connector;
  * {@link NetworkTable}, simply set the boolean at position ~S A V E~ to true.
  * Also, if the value of any variable is " in the {@link NetworkTable}, then
  * that represents non-existence in the {@link Preferences} table</p>
+ * <p/>
+ * <p>If {@link Preferences#setJournaled(boolean) journaled}, saving only
+ * appends the values that changed to a second file, which is read after the
+ * preferences file at startup and folded back into it once it grows too
+ * large.</p>
  *
  * @author Joe Grinstead
  */
@@ -52,6 +59,19 @@ public class Preferences {
      * The file to save to
      */
     private static final String FILE_NAME = "file:///wpilib-preferences.ini";
+    /**
+     * The file that changed values are appended to between full saves
+     */
+    private static final String JOURNAL_NAME = "file:///wpilib-preferences.journal";
+    /**
+     * The size in bytes the journal can grow to before it is compacted into
+     * the preferences file
+     */
+    private static final long JOURNAL_LIMIT = 4096;
+    /**
+     * How long a journaled save waits for more saves, in milliseconds
+     */
+    private static final long SAVE_DELAY = 250;
     /**
      * The characters to put between a field and value
      */
@@ -90,7 +110,7 @@ public class Preferences {
      */
     private final Object lock = new Object();
     /**
-     * The actual values (String->String)
+     * The actual values, parsed when they are put (String->Value)
      */
     private Hashtable values;
     /**
@@ -106,6 +126,31 @@ public class Preferences {
      * The comment at the end of the file
      */
     private Comment endComment;
+    /**
+     * The keys that were put or removed since the last save (String->String)
+     */
+    private Hashtable changed = new Hashtable();
+    /**
+     * The size of the journal in bytes up to the end of its last whole
+     * record. Anything after that was cut off and is written over.
+     */
+    private long journalSize = 0;
+    /**
+     * The semaphore for starting journaled saves
+     */
+    private final Object saveLock = new Object();
+    /**
+     * Whether saves are appended to the journal
+     */
+    private boolean journaled = false;
+    /**
+     * Whether a journaled save has been asked for and not started
+     */
+    private boolean savePending = false;
+    /**
+     * The thread that writes journaled saves, or null if it has not started
+     */
+    private Thread journalThread;
 
     /**
      * Creates a preference class that will automatically read the file in a
@@ -156,9 +201,10 @@ public class Preferences {
                 throw new NullPointerException();
             }
             ImproperPreferenceKeyException.confirmString(key);
-            if (values.put(key, value) == null) {
+            if (values.put(key, new Value(value)) == null) {
                 keys.addElement(key);
             }
+            changed.put(key, key);
             NetworkTable.getTable(TABLE_NAME).putString(key, value);
         }
     }
@@ -287,12 +333,12 @@ public class Preferences {
      * @return the value (or null if none exists)
      * @throws NullPointerException if the key is null
      */
-    private String get(String key) {
+    private Value get(String key) {
         synchronized (lock) {
             if (key == null) {
                 throw new NullPointerException();
             }
-            return (String) values.get(key);
+            return (Value) values.get(key);
         }
     }
 
@@ -320,6 +366,7 @@ public class Preferences {
             }
             values.remove(key);
             keys.removeElement(key);
+            changed.put(key, key);
         }
     }
 
@@ -333,8 +380,8 @@ public class Preferences {
      * @throws NullPointerException if the key is null
      */
     public String getString(String key, String backup) {
-        String value = get(key);
-        return value == null ? backup : value;
+        Value value = get(key);
+        return value == null ? backup : value.m_string;
     }
 
     /**
@@ -348,15 +395,13 @@ public class Preferences {
      *                                   converted to an int
      */
     public int getInt(String key, int backup) {
-        String value = get(key);
+        Value value = get(key);
         if (value == null) {
             return backup;
+        } else if ((value.m_types & Value.kInt) != 0) {
+            return value.m_int;
         } else {
-            try {
-                return Integer.parseInt(value);
-            } catch (NumberFormatException e) {
-                throw new IncompatibleTypeException(value, "int");
-            }
+            throw new IncompatibleTypeException(value.m_string, "int");
         }
     }
 
@@ -371,15 +416,13 @@ public class Preferences {
      *                                   converted to an double
      */
     public double getDouble(String key, double backup) {
-        String value = get(key);
+        Value value = get(key);
         if (value == null) {
             return backup;
+        } else if ((value.m_types & Value.kDouble) != 0) {
+            return value.m_double;
         } else {
-            try {
-                return Double.parseDouble(value);
-            } catch (NumberFormatException e) {
-                throw new IncompatibleTypeException(value, "double");
-            }
+            throw new IncompatibleTypeException(value.m_string, "double");
         }
     }
 
@@ -394,17 +437,13 @@ public class Preferences {
      *                                   converted to a boolean
      */
     public boolean getBoolean(String key, boolean backup) {
-        String value = get(key);
+        Value value = get(key);
         if (value == null) {
             return backup;
+        } else if ((value.m_types & Value.kBoolean) != 0) {
+            return value.m_boolean;
         } else {
-            if (value.equalsIgnoreCase("true")) {
-                return true;
-            } else if (value.equalsIgnoreCase("false")) {
-                return false;
-            } else {
-                throw new IncompatibleTypeException(value, "boolean");
-            }
+            throw new IncompatibleTypeException(value.m_string, "boolean");
         }
     }
 
@@ -419,15 +458,13 @@ public class Preferences {
      *                                   converted to a float
      */
     public float getFloat(String key, float backup) {
-        String value = get(key);
+        Value value = get(key);
         if (value == null) {
             return backup;
+        } else if ((value.m_types & Value.kFloat) != 0) {
+            return value.m_float;
         } else {
-            try {
-                return Float.parseFloat(value);
-            } catch (NumberFormatException e) {
-                throw new IncompatibleTypeException(value, "float");
-            }
+            throw new IncompatibleTypeException(value.m_string, "float");
         }
     }
 
@@ -442,16 +479,14 @@ public class Preferences {
      *                                   converted to a long
      */
     public long getLong(String key, long backup) {
-        String value = get(key);
+        Value value = get(key);
         if (value == null) {
             put(key, String.valueOf(backup));
             return backup;
+        } else if ((value.m_types & Value.kLong) != 0) {
+            return value.m_long;
         } else {
-            try {
-                return Long.parseLong(value);
-            } catch (NumberFormatException e) {
-                throw new IncompatibleTypeException(value, "long");
-            }
+            throw new IncompatibleTypeException(value.m_string, "long");
         }
     }
 
@@ -466,8 +501,27 @@ public class Preferences {
      * <p>The actual writing of the file is done in a separate thread. However,
      * any call to a get or put method will wait until the table is fully saved
      * before continuing.</p>
+     * <p/>
+     * <p>If {@link Preferences#setJournaled(boolean) journaled}, this returns
+     * right away. Saves that arrive close together are written as one, and
+     * only the values that changed are written.</p>
      */
     public void save() {
+        synchronized (saveLock) {
+            if (journaled) {
+                savePending = true;
+                if (journalThread == null) {
+                    journalThread = new Thread() {
+                        public void run() {
+                            journal();
+                        }
+                    };
+                    journalThread.start();
+                }
+                saveLock.notifyAll();
+                return;
+            }
+        }
         synchronized (fileLock) {
             new Thread() {
                 public void run() {
@@ -481,6 +535,236 @@ public class Preferences {
         }
     }
 
+    /**
+     * Sets whether {@link Preferences#save() save()} appends the values that
+     * changed to a journal instead of rewriting the whole file. This is better
+     * for values that are tuned and saved often from the dashboard. Values
+     * saved in the journal are still read at startup if this is turned off
+     * again, and the next full save folds them into the file.
+     *
+     * @param journaled whether to journal saves
+     */
+    public void setJournaled(boolean journaled) {
+        synchronized (saveLock) {
+            this.journaled = journaled;
+        }
+    }
+
+    /**
+     * @return whether saves are journaled
+     * @see Preferences#setJournaled(boolean)
+     */
+    public boolean isJournaled() {
+        synchronized (saveLock) {
+            return journaled;
+        }
+    }
+
+    /**
+     * Internal method run by the journal thread. It waits for a save, waits a
+     * little longer so that a burst of saves is written once, and then
+     * appends the changes.
+     */
+    private void journal() {
+        while (true) {
+            synchronized (saveLock) {
+                while (!savePending) {
+                    try {
+                        saveLock.wait();
+                    } catch (InterruptedException ex) {
+                    }
+                }
+            }
+            try {
+                Thread.sleep(SAVE_DELAY);
+            } catch (InterruptedException ex) {
+            }
+            synchronized (saveLock) {
+                savePending = false;
+            }
+            append();
+        }
+    }
+
+    /**
+     * Internal method that appends the keys that changed since the last save
+     * to the journal. A removed key is written with nothing after the equals
+     * sign. If the journal grows past {@link Preferences#JOURNAL_LIMIT} it is
+     * compacted: every key is appended to the journal first, so the journal
+     * alone still has every value if power is lost while the whole table is
+     * rewritten to the file, and only then is the file rewritten and the
+     * journal deleted.
+     */
+    private void append() {
+        synchronized (lock) {
+            if (!changed.isEmpty()) {
+                ByteArrayOutputStream records = new ByteArrayOutputStream();
+                for (Enumeration e = changed.keys(); e.hasMoreElements(); ) {
+                    record(records, (String) e.nextElement());
+                }
+                if (appendJournal(records.toByteArray())) {
+                    changed.clear();
+                }
+            }
+
+            if (journalSize > JOURNAL_LIMIT) {
+                ByteArrayOutputStream records = new ByteArrayOutputStream();
+                for (int i = 0; i < keys.size(); i++) {
+                    record(records, (String) keys.elementAt(i));
+                }
+                if (appendJournal(records.toByteArray())) {
+                    write();
+                    return;
+                }
+            }
+            NetworkTable.getTable(TABLE_NAME).putBoolean(SAVE_FIELD, false);
+        }
+    }
+
+    /**
+     * Internal method that adds the journal record of a key to a buffer. A
+     * record is one line, so new lines, carriage returns and backslashes in
+     * the value are written as \n, \r and \\.
+     *
+     * @param records the buffer
+     * @param key     the key
+     */
+    private void record(ByteArrayOutputStream records, String key) {
+        Value value = (Value) values.get(key);
+        byte[] bytes = key.getBytes();
+        records.write(bytes, 0, bytes.length);
+        records.write('=');
+        if (value != null) {
+            bytes = escape(value.m_string).getBytes();
+            records.write('"');
+            records.write(bytes, 0, bytes.length);
+            records.write('"');
+        }
+        records.write('\n');
+    }
+
+    /**
+     * Internal method that escapes a value for a journal record.
+     *
+     * @param value the value
+     * @return the value with new lines, carriage returns and backslashes
+     *         escaped
+     */
+    private static String escape(String value) {
+        if (value.indexOf('\\') == -1 && value.indexOf('\n') == -1 && value.indexOf('\r') == -1) {
+            return value;
+        }
+        StringBuffer buffer = new StringBuffer(value.length() + 8);
+        for (int i = 0; i < value.length(); i++) {
+            char letter = value.charAt(i);
+            switch (letter) {
+                case '\\':
+                    buffer.append("\\\\");
+                    break;
+                case '\n':
+                    buffer.append("\\n");
+                    break;
+                case '\r':
+                    buffer.append("\\r");
+                    break;
+                default:
+                    buffer.append(letter);
+            }
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Internal method that undoes {@link Preferences#escape(String)}.
+     *
+     * @param value the value from a journal record
+     * @return the value that was put
+     */
+    private static String unescape(String value) {
+        if (value.indexOf('\\') == -1) {
+            return value;
+        }
+        StringBuffer buffer = new StringBuffer(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char letter = value.charAt(i);
+            if (letter == '\\' && i + 1 < value.length()) {
+                letter = value.charAt(++i);
+                if (letter == 'n') {
+                    letter = '\n';
+                } else if (letter == 'r') {
+                    letter = '\r';
+                }
+            }
+            buffer.append(letter);
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Internal method that writes records to the journal after its last whole
+     * record. Whatever a failed write or a power loss left after that is
+     * written over, and the part the records do not reach is filled with
+     * empty lines, which are skipped when the journal is read, so a record
+     * that was cut off can never be joined to a new one.
+     *
+     * @param records the records, each ending in a new line
+     * @return whether the records were written
+     */
+    private boolean appendJournal(byte[] records) {
+        FileConnection file = null;
+        try {
+            file = (FileConnection) Connector.open(JOURNAL_NAME, Connector.READ_WRITE);
+            if (!file.exists()) {
+                file.create();
+                journalSize = 0;
+            }
+            long end = journalSize + records.length;
+            long size = file.fileSize();
+            OutputStream output = file.openOutputStream(journalSize);
+            output.write(records);
+            for (long i = end; i < size; i++) {
+                output.write('\n');
+            }
+            output.close();
+            journalSize = Math.max(end, size);
+            return true;
+        } catch (IOException ex) {
+            ex.printStackTrace();
+            return false;
+        } finally {
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (IOException ex) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Internal method that deletes the journal after the whole table has been
+     * written to the file.
+     */
+    private void deleteJournal() {
+        FileConnection file = null;
+        try {
+            file = (FileConnection) Connector.open(JOURNAL_NAME, Connector.READ_WRITE);
+            if (file.exists()) {
+                file.delete();
+            }
+            journalSize = 0;
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        } finally {
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (IOException ex) {
+                }
+            }
+        }
+    }
+
     /**
      * Internal method that actually writes the table to a file. This is called
      * in its own thread when {@link Preferences#save() save()} is called.
@@ -491,6 +775,7 @@ public class Preferences {
                 fileLock.notifyAll();
             }
 
+            boolean written = false;
             FileConnection file = null;
             try {
                 file = (FileConnection) Connector.open(FILE_NAME, Connector.WRITE);
@@ -501,7 +786,7 @@ public class Preferences {
 
                 for (int i = 0; i < keys.size(); i++) {
                     String key = (String) keys.elementAt(i);
-                    String value = (String) values.get(key);
+                    String value = ((Value) values.get(key)).m_string;
 
                     if (comments != null) {
                         Comment comment = (Comment) comments.get(key);
@@ -519,6 +804,7 @@ public class Preferences {
                 if (endComment != null) {
                     endComment.write(output);
                 }
+                written = true;
             } catch (IOException ex) {
                 ex.printStackTrace();
             } finally {
@@ -528,6 +814,11 @@ public class Preferences {
                     } catch (IOException ex) {
                     }
                 }
+                // Only drop the journal once everything in it is in the file
+                if (written) {
+                    changed.clear();
+                    deleteJournal();
+                }
                 NetworkTable.getTable(TABLE_NAME).putBoolean(SAVE_FIELD, false);
             }
         }
@@ -637,7 +928,7 @@ public class Preferences {
                             String result = buffer.toString();
 
                             keys.addElement(name);
-                            values.put(name, result);
+                            values.put(name, new Value(result));
                             NetworkTable.getTable(TABLE_NAME).putString(name, result);
 
                             if (comment != null) {
@@ -648,7 +939,7 @@ public class Preferences {
                                 comment = null;
                             }
 
-                            System.out.println(name + "=" + values.get(name));
+                            System.out.println(name + "=" + result);
 
                             if (shouldBreak) {
                                 break;
@@ -672,6 +963,8 @@ public class Preferences {
             if (comment != null) {
                 endComment = comment;
             }
+
+            readJournal();
         }
 
         NetworkTable.getTable(TABLE_NAME).putBoolean(SAVE_FIELD, false);
@@ -689,12 +982,14 @@ public class Preferences {
                             if (values.contains(key) || keys.contains(key)) {
                                 values.remove(key);
                                 keys.removeElement(key);
+                                changed.put(key, key);
                                 NetworkTable.getTable(TABLE_NAME).putString(key, "\"");
                             }
                         } else {
-                            if (values.put(key, value.toString()) == null) {
+                            if (values.put(key, new Value(value.toString())) == null) {
                                 keys.addElement(key);
                             }
+                            changed.put(key, key);
                         }
                     }
                 }
@@ -702,6 +997,119 @@ public class Preferences {
         });
     }
 
+    /**
+     * Internal method that reads the journal, if there is one, over the values
+     * read from the file. A record cut off by losing power has no new line
+     * after it, so it is ignored, and the next append writes over it.
+     */
+    private void readJournal() {
+        FileConnection file = null;
+        try {
+            file = (FileConnection) Connector.open(JOURNAL_NAME, Connector.READ);
+
+            if (file.exists()) {
+                InputStream input = file.openInputStream();
+                StringBuffer record = new StringBuffer(30);
+                long offset = 0;
+                for (int value = input.read(); value != -1; value = input.read()) {
+                    offset++;
+                    if (value == '\n') {
+                        replay(record.toString());
+                        record.setLength(0);
+                        journalSize = offset;
+                    } else {
+                        record.append((char) value);
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        } finally {
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (IOException ex) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Internal method that applies one record from the journal.
+     *
+     * @param record the record, without its new line
+     */
+    private void replay(String record) {
+        int equals = record.indexOf('=');
+        if (equals <= 0) {
+            return;
+        }
+        String key = record.substring(0, equals);
+        String value = record.substring(equals + 1);
+        if (value.length() == 0) {
+            if (values.remove(key) != null) {
+                keys.removeElement(key);
+                NetworkTable.getTable(TABLE_NAME).putString(key, "\"");
+            }
+        } else if (value.length() >= 2 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"') {
+            value = unescape(value.substring(1, value.length() - 1));
+            if (values.put(key, new Value(value)) == null) {
+                keys.addElement(key);
+            }
+            NetworkTable.getTable(TABLE_NAME).putString(key, value);
+        }
+    }
+
+    /**
+     * A value in the table along with every type it can be read as. The
+     * string is parsed once when it is put, so the get methods do not parse
+     * or allocate anything.
+     */
+    private static class Value {
+
+        private static final int kInt = 1;
+        private static final int kLong = 2;
+        private static final int kFloat = 4;
+        private static final int kDouble = 8;
+        private static final int kBoolean = 16;
+        final String m_string;
+        /**
+         * The types the string could be parsed as
+         */
+        int m_types = 0;
+        int m_int;
+        long m_long;
+        float m_float;
+        double m_double;
+        boolean m_boolean;
+
+        Value(String string) {
+            m_string = string;
+            if (string.equalsIgnoreCase("true") || string.equalsIgnoreCase("false")) {
+                m_boolean = string.equalsIgnoreCase("true");
+                m_types = kBoolean;
+                return;
+            }
+            try {
+                m_double = Double.parseDouble(string);
+                m_types |= kDouble;
+            } catch (NumberFormatException e) {
+            }
+            try {
+                m_float = Float.parseFloat(string);
+                m_types |= kFloat;
+            } catch (NumberFormatException e) {
+            }
+            try {
+                m_long = Long.parseLong(string);
+                m_types |= kLong;
+                m_int = Integer.parseInt(string);
+                m_types |= kInt;
+            } catch (NumberFormatException e) {
+            }
+        }
+    }
+
     /**
      * A class representing some comment lines in the ini file. This is used so
      * that if a programmer ever directly modifies the ini file, then his/her
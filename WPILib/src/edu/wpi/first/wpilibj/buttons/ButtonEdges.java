@@ -0,0 +1,82 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+package edu.wpi.first.wpilibj.buttons;
+
+/**
+ * Finds which buttons in a word of up to 32 buttons were pressed or released
+ * since the last word it was given. Bit (n - 1) is button n, as in
+ * {@link edu.wpi.first.wpilibj.DriverStation#getStickButtons(int)}. Every
+ * button is handled at once with XOR and AND, so the cost does not depend on
+ * how many buttons there are.
+ *
+ * @see ButtonEngine
+ */
+public class ButtonEdges {
+
+    private int m_buttons;
+    private int m_pressed;
+    private int m_released;
+
+    /**
+     * Creates edges with no buttons held.
+     */
+    public ButtonEdges() {
+        this(0);
+    }
+
+    /**
+     * Creates edges with the given buttons already held, so they are not
+     * reported as pressed by the first update.
+     *
+     * @param buttons the buttons that are held
+     */
+    public ButtonEdges(int buttons) {
+        m_buttons = buttons;
+    }
+
+    /**
+     * Takes a new word of buttons.
+     *
+     * @param buttons the buttons that are held now
+     * @return the buttons that changed since the last update
+     */
+    public int update(int buttons) {
+        int changed = buttons ^ m_buttons;
+        m_pressed = changed & buttons;
+        m_released = changed & m_buttons;
+        m_buttons = buttons;
+        return changed;
+    }
+
+    /**
+     * @return the buttons held as of the last update
+     */
+    public int getButtons() {
+        return m_buttons;
+    }
+
+    /**
+     * @return the buttons that went down in the last update
+     */
+    public int getPressed() {
+        return m_pressed;
+    }
+
+    /**
+     * @return the buttons that went up in the last update
+     */
+    public int getReleased() {
+        return m_released;
+    }
+
+    /**
+     * @return the buttons that went up or down in the last update
+     */
+    public int getChanged() {
+        return m_pressed | m_released;
+    }
+}
@@ -0,0 +1,322 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+package edu.wpi.first.wpilibj.buttons;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.InputFrame;
+import edu.wpi.first.wpilibj.command.Command;
+import edu.wpi.first.wpilibj.command.Scheduler;
+import edu.wpi.first.wpilibj.tables.ITable;
+
+import java.util.Vector;
+
+/**
+ * Runs every joystick button binding from one place. Once per
+ * {@link Scheduler#run()} it reads each joystick's button word once from the
+ * current {@link InputFrame} and finds the buttons that were pressed or
+ * released with {@link ButtonEdges}. Bindings are only looked at when a
+ * button they are on changed, or when one of them is a
+ * {@link #whileHeld(int, int, Command) whileHeld(...)} binding and its button
+ * is down.
+ * <p/>
+ * <p>{@link JoystickButton JoystickButtons} on a plain
+ * {@link edu.wpi.first.wpilibj.Joystick} use this automatically. Bindings run
+ * in the opposite order they were made, together with every other
+ * {@link Trigger}, just as if each one polled its own button. So when two
+ * commands that need the same subsystem start in the same tick, the one that
+ * was bound first wins.</p>
+ */
+public class ButtonEngine {
+
+    private static final int WHEN_PRESSED = 0;
+    private static final int WHILE_HELD = 1;
+    private static final int WHEN_RELEASED = 2;
+
+    private static ButtonEngine instance;
+
+    /**
+     * Returns the {@link ButtonEngine}, creating it if one does not exist.
+     *
+     * @return the {@link ButtonEngine}
+     */
+    public static synchronized ButtonEngine getInstance() {
+        return instance == null ? instance = new ButtonEngine() : instance;
+    }
+
+    private static class Binding {
+
+        final int m_stick;
+        final int m_mask;
+        final int m_kind;
+        final Command m_command;
+
+        Binding(int stick, int mask, int kind, Command command) {
+            m_stick = stick;
+            m_mask = mask;
+            m_kind = kind;
+            m_command = command;
+        }
+    }
+
+    /**
+     * Bindings that were made one after another with no other
+     * {@link Trigger} bound in between. Each is polled by the
+     * {@link Scheduler} from where it was started, so its bindings keep their
+     * place among the Triggers bound before and after them.
+     */
+    private class Segment extends Trigger.ButtonScheduler {
+
+        Binding[] m_bindings = new Binding[8];
+        int m_count = 0;
+        /**
+         * The buttons of each joystick that have a binding in this segment
+         */
+        final int[] m_boundMask = new int[DriverStation.kJoystickPorts];
+        /**
+         * The buttons of each joystick that have a whileHeld binding in this segment
+         */
+        final int[] m_heldMask = new int[DriverStation.kJoystickPorts];
+        /**
+         * The value of {@link Trigger#started} once this segment was started
+         */
+        int m_sequence;
+
+        Segment() {
+            m_owner.super();
+        }
+
+        void add(Binding binding) {
+            if (m_count == m_bindings.length) {
+                Binding[] grown = new Binding[m_count * 2];
+                System.arraycopy(m_bindings, 0, grown, 0, m_count);
+                m_bindings = grown;
+            }
+            m_bindings[m_count++] = binding;
+            m_boundMask[binding.m_stick] |= binding.m_mask;
+            if (binding.m_kind == WHILE_HELD) {
+                m_heldMask[binding.m_stick] |= binding.m_mask;
+            }
+        }
+
+        public void execute() {
+            synchronized (ButtonEngine.this) {
+                // the newest segment is polled first, so it reads the joysticks for the tick
+                if (this == m_newest) {
+                    read();
+                }
+                dispatch(this);
+            }
+        }
+    }
+
+    /**
+     * Owns the {@link Segment Segments}, which have to belong to a Trigger
+     */
+    private final Trigger m_owner = new Trigger() {
+        public boolean get() {
+            return false;
+        }
+    };
+    /**
+     * The edges of each joystick, or null if it has no bindings
+     */
+    private final ButtonEdges[] m_edges = new ButtonEdges[DriverStation.kJoystickPorts];
+    /**
+     * The segment bindings are added to until another Trigger is bound
+     */
+    private Segment m_newest;
+    /**
+     * Buttons that have been put on SmartDashboard, which can be pressed from there
+     */
+    private final Vector m_dashboardButtons = new Vector();
+    private final int[] m_dashboardPressed = new int[DriverStation.kJoystickPorts];
+
+    private ButtonEngine() {
+    }
+
+    /**
+     * Starts the given command whenever the button is newly pressed.
+     *
+     * @param stick   the joystick port, 1 through 4
+     * @param button  the button number, starting at 1
+     * @param command the command to start
+     * @throws IllegalArgumentException if stick or button is out of range or command is null
+     */
+    public synchronized void whenPressed(int stick, int button, Command command) {
+        bind(stick, button, WHEN_PRESSED, command);
+    }
+
+    /**
+     * Constantly starts the given command while the button is held.
+     * <p/>
+     * {@link Command#start()} will be called repeatedly while the button is held,
+     * and will be canceled when the button is released.
+     *
+     * @param stick   the joystick port, 1 through 4
+     * @param button  the button number, starting at 1
+     * @param command the command to start
+     * @throws IllegalArgumentException if stick or button is out of range or command is null
+     */
+    public synchronized void whileHeld(int stick, int button, Command command) {
+        bind(stick, button, WHILE_HELD, command);
+    }
+
+    /**
+     * Starts the command when the button is released.
+     *
+     * @param stick   the joystick port, 1 through 4
+     * @param button  the button number, starting at 1
+     * @param command the command to start
+     * @throws IllegalArgumentException if stick or button is out of range or command is null
+     */
+    public synchronized void whenReleased(int stick, int button, Command command) {
+        bind(stick, button, WHEN_RELEASED, command);
+    }
+
+    private void bind(int stick, int button, int kind, Command command) {
+        if (stick < 1 || stick > DriverStation.kJoystickPorts) {
+            throw new IllegalArgumentException("Joystick port must be 1 through " + DriverStation.kJoystickPorts);
+        }
+        if (button < 1 || button > 32) {
+            throw new IllegalArgumentException("Button must be 1 through 32");
+        }
+        if (command == null) {
+            throw new IllegalArgumentException("Given null command");
+        }
+        int s = stick - 1;
+        if (m_edges[s] == null) {
+            // buttons already down when bound are not reported as pressed
+            m_edges[s] = new ButtonEdges(DriverStation.getInstance().getStickButtons(stick));
+        }
+
+        // a Trigger bound since the newest segment has to run between them
+        if (m_newest == null || m_newest.m_sequence != Trigger.started) {
+            Segment segment = new Segment();
+            segment.start();
+            segment.m_sequence = Trigger.started;
+            m_newest = segment;
+        }
+        m_newest.add(new Binding(s, 1 << (button - 1), kind, command));
+    }
+
+    /**
+     * Lets a button be pressed from SmartDashboard, the same way
+     * {@link Trigger} allows.
+     */
+    synchronized void addDashboardButton(JoystickButton button) {
+        if (!m_dashboardButtons.contains(button)) {
+            m_dashboardButtons.addElement(button);
+        }
+    }
+
+    /**
+     * Reads every bound joystick from the current {@link InputFrame}.
+     */
+    private void read() {
+        if (!m_dashboardButtons.isEmpty()) {
+            readDashboard();
+        }
+        InputFrame frame = DriverStation.getInstance().getInputFrame();
+        for (int s = 0; s < DriverStation.kJoystickPorts; s++) {
+            if (m_edges[s] != null) {
+                m_edges[s].update(frame.getStickButtons(s + 1) | m_dashboardPressed[s]);
+            }
+        }
+    }
+
+    private void readDashboard() {
+        for (int s = 0; s < DriverStation.kJoystickPorts; s++) {
+            m_dashboardPressed[s] = 0;
+        }
+        for (int i = 0; i < m_dashboardButtons.size(); i++) {
+            JoystickButton button = (JoystickButton) m_dashboardButtons.elementAt(i);
+            ITable table = button.getTable();
+            if (table != null && table.getBoolean("pressed", false)) {
+                m_dashboardPressed[button.m_port - 1] |= 1 << (button.m_buttonNumber - 1);
+            }
+        }
+    }
+
+    /**
+     * Runs the bindings of a segment that have something to do, newest first.
+     */
+    private void dispatch(Segment segment) {
+        int fire = 0;
+        for (int s = 0; s < DriverStation.kJoystickPorts; s++) {
+            ButtonEdges edges = m_edges[s];
+            if (edges != null) {
+                fire |= (edges.getChanged() & segment.m_boundMask[s]) | (edges.getButtons() & segment.m_heldMask[s]);
+            }
+        }
+        if (fire == 0) {
+            return;
+        }
+        for (int i = segment.m_count - 1; i >= 0; i--) {
+            Binding binding = segment.m_bindings[i];
+            ButtonEdges edges = m_edges[binding.m_stick];
+            switch (binding.m_kind) {
+                case WHEN_PRESSED:
+                    if ((edges.getPressed() & binding.m_mask) != 0) {
+                        binding.m_command.start();
+                    }
+                    break;
+                case WHILE_HELD:
+                    if ((edges.getButtons() & binding.m_mask) != 0) {
+                        binding.m_command.start();
+                    } else if ((edges.getReleased() & binding.m_mask) != 0) {
+                        binding.m_command.cancel();
+                    }
+                    break;
+                case WHEN_RELEASED:
+                    if ((edges.getReleased() & binding.m_mask) != 0) {
+                        binding.m_command.start();
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Returns the buttons of a joystick as of the last update.
+     *
+     * @param stick the joystick port, 1 through 4
+     * @return the button word, or 0 if the joystick has no bindings
+     */
+    public synchronized int getButtons(int stick) {
+        ButtonEdges edges = edges(stick);
+        return edges == null ? 0 : edges.getButtons();
+    }
+
+    /**
+     * Returns the buttons of a joystick that went down in the last update.
+     *
+     * @param stick the joystick port, 1 through 4
+     * @return the button word, or 0 if the joystick has no bindings
+     */
+    public synchronized int getPressed(int stick) {
+        ButtonEdges edges = edges(stick);
+        return edges == null ? 0 : edges.getPressed();
+    }
+
+    /**
+     * Returns the buttons of a joystick that went up in the last update.
+     *
+     * @param stick the joystick port, 1 through 4
+     * @return the button word, or 0 if the joystick has no bindings
+     */
+    public synchronized int getReleased(int stick) {
+        ButtonEdges edges = edges(stick);
+        return edges == null ? 0 : edges.getReleased();
+    }
+
+    private ButtonEdges edges(int stick) {
+        if (stick < 1 || stick > DriverStation.kJoystickPorts) {
+            return null;
+        }
+        return m_edges[stick - 1];
+    }
+}
@@ -7,15 +7,27 @@
 
 package edu.wpi.first.wpilibj.buttons;
 
+import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.GenericHID;
+import edu.wpi.first.wpilibj.Joystick;
+import edu.wpi.first.wpilibj.command.Command;
+import edu.wpi.first.wpilibj.tables.ITable;
 
 /**
+ * A button on a joystick. Commands bound to a button on a plain {@link Joystick},
+ * or on a driver station port, are run by the {@link ButtonEngine} instead of
+ * each binding polling the button on its own.
+ *
  * @author bradmiller
  */
 public class JoystickButton extends Button {
 
     GenericHID m_joystick;
     int m_buttonNumber;
+    /**
+     * The driver station port, or 0 if the button can only be read through m_joystick
+     */
+    int m_port;
 
     /**
      * Create a joystick button for triggering commands
@@ -26,6 +38,22 @@ public class JoystickButton extends Button {
     public JoystickButton(GenericHID joystick, int buttonNumber) {
         m_joystick = joystick;
         m_buttonNumber = buttonNumber;
+        // subclasses may change how buttons are read, so only plain joysticks use the engine
+        if (joystick != null && joystick.getClass() == Joystick.class) {
+            m_port = ((Joystick) joystick).getPort();
+        }
+    }
+
+    /**
+     * Create a button for triggering commands that reads straight from a port
+     * on the driver station, whatever kind of controller is plugged into it
+     *
+     * @param port         The port on the driver station, 1 through 4
+     * @param buttonNumber The button number, starting at 1
+     */
+    public JoystickButton(int port, int buttonNumber) {
+        m_port = port;
+        m_buttonNumber = buttonNumber;
     }
 
     /**
@@ -34,6 +62,40 @@ public class JoystickButton extends Button {
      * @return The value of the joystick button
      */
     public boolean get() {
+        if (m_joystick == null) {
+            return ((0x1 << (m_buttonNumber - 1)) & DriverStation.getInstance().getStickButtons(m_port)) != 0;
+        }
         return m_joystick.getRawButton(m_buttonNumber);
     }
+
+    public void whenActive(Command command) {
+        if (m_port > 0) {
+            ButtonEngine.getInstance().whenPressed(m_port, m_buttonNumber, command);
+        } else {
+            super.whenActive(command);
+        }
+    }
+
+    public void whileActive(Command command) {
+        if (m_port > 0) {
+            ButtonEngine.getInstance().whileHeld(m_port, m_buttonNumber, command);
+        } else {
+            super.whileActive(command);
+        }
+    }
+
+    public void whenInactive(Command command) {
+        if (m_port > 0) {
+            ButtonEngine.getInstance().whenReleased(m_port, m_buttonNumber, command);
+        } else {
+            super.whenInactive(command);
+        }
+    }
+
+    public void initTable(ITable table) {
+        super.initTable(table);
+        if (m_port > 0 && table != null) {
+            ButtonEngine.getInstance().addDashboardButton(this);
+        }
+    }
 }
@@ -28,6 +28,12 @@ import edu.wpi.first.wpilibj.tables.ITable;
  */
 public abstract class Trigger implements Sendable {
 
+    /**
+     * The number of {@link ButtonScheduler ButtonSchedulers} started so far.
+     * The {@link Scheduler} polls them in the opposite order they were started.
+     */
+    static int started = 0;
+
     /**
      * Returns whether or not the trigger is active
      * <p/>
@@ -127,6 +133,7 @@ public abstract class Trigger implements Sendable {
         public abstract void execute();
 
         protected void start() {
+            started++;
             Scheduler.getInstance().addButton(this);
         }
     }
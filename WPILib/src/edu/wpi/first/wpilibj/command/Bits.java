@@ -0,0 +1,206 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+package edu.wpi.first.wpilibj.command;
+
+/**
+ * Helpers for bit sets stored in int arrays, where bit i is bit (i % 32) of
+ * word (i / 32). The {@link Scheduler} uses these to track subsystems by their
+ * id. Arrays only grow when a bit past the end is set; bits past the end of an
+ * array read as clear.
+ */
+final class Bits {
+
+    private Bits() {
+    }
+
+    /**
+     * Sets a bit, growing the array if needed.
+     *
+     * @param words the bit set
+     * @param bit   the bit to set
+     * @return the bit set, which is a new array if it had to grow
+     */
+    static int[] set(int[] words, int bit) {
+        int word = bit >> 5;
+        if (word >= words.length) {
+            int[] grown = new int[Math.max(word + 1, words.length * 2)];
+            System.arraycopy(words, 0, grown, 0, words.length);
+            words = grown;
+        }
+        words[word] |= 1 << (bit & 31);
+        return words;
+    }
+
+    /**
+     * Clears a bit.
+     *
+     * @param words the bit set
+     * @param bit   the bit to clear
+     */
+    static void clear(int[] words, int bit) {
+        int word = bit >> 5;
+        if (word < words.length) {
+            words[word] &= ~(1 << (bit & 31));
+        }
+    }
+
+    /**
+     * Clears every bit.
+     *
+     * @param words the bit set
+     */
+    static void clearAll(int[] words) {
+        for (int i = 0; i < words.length; i++) {
+            words[i] = 0;
+        }
+    }
+
+    /**
+     * Returns whether a bit is set.
+     *
+     * @param words the bit set
+     * @param bit   the bit
+     * @return true if the bit is set
+     */
+    static boolean get(int[] words, int bit) {
+        int word = bit >> 5;
+        return bit >= 0 && word < words.length && (words[word] & (1 << (bit & 31))) != 0;
+    }
+
+    /**
+     * Returns the first bit at or after the given bit that is set.
+     *
+     * @param words the bit set
+     * @param from  the bit to start at
+     * @return the bit, or -1 if there is none
+     */
+    static int nextSetBit(int[] words, int from) {
+        int word = from >> 5;
+        if (word >= words.length) {
+            return -1;
+        }
+        int bits = words[word] & (-1 << (from & 31));
+        while (true) {
+            if (bits != 0) {
+                return (word << 5) + lowestBit(bits);
+            }
+            if (++word >= words.length) {
+                return -1;
+            }
+            bits = words[word];
+        }
+    }
+
+    /**
+     * Returns the first bit at or after the given bit that is set in both bit
+     * sets.
+     *
+     * @param a    the first bit set
+     * @param b    the second bit set
+     * @param from the bit to start at
+     * @return the bit, or -1 if there is none
+     */
+    static int nextCommonBit(int[] a, int[] b, int from) {
+        int length = Math.min(a.length, b.length);
+        int word = from >> 5;
+        if (word >= length) {
+            return -1;
+        }
+        int bits = a[word] & b[word] & (-1 << (from & 31));
+        while (true) {
+            if (bits != 0) {
+                return (word << 5) + lowestBit(bits);
+            }
+            if (++word >= length) {
+                return -1;
+            }
+            bits = a[word] & b[word];
+        }
+    }
+
+    /**
+     * Returns the first bit at or after the given bit that is clear in both
+     * bit sets.
+     *
+     * @param a     the first bit set
+     * @param b     the second bit set
+     * @param from  the bit to start at
+     * @param limit one past the last bit to check
+     * @return the bit, or -1 if every bit up to the limit is set in either
+     */
+    static int nextClearBit(int[] a, int[] b, int from, int limit) {
+        int word = from >> 5;
+        int bits = ~(word < a.length ? a[word] : 0) & ~(word < b.length ? b[word] : 0)
+                & (-1 << (from & 31));
+        while ((word << 5) < limit) {
+            if (bits != 0) {
+                int bit = (word << 5) + lowestBit(bits);
+                return bit < limit ? bit : -1;
+            }
+            word++;
+            bits = ~(word < a.length ? a[word] : 0) & ~(word < b.length ? b[word] : 0);
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the highest set bit of a positive int.
+     *
+     * @param bits the int
+     * @return the index of its highest set bit
+     */
+    static int highestBit(int bits) {
+        int n = 0;
+        if ((bits & 0xffff0000) != 0) {
+            n += 16;
+            bits >>>= 16;
+        }
+        if ((bits & 0xff00) != 0) {
+            n += 8;
+            bits >>>= 8;
+        }
+        if ((bits & 0xf0) != 0) {
+            n += 4;
+            bits >>>= 4;
+        }
+        if ((bits & 0xc) != 0) {
+            n += 2;
+            bits >>>= 2;
+        }
+        if ((bits & 0x2) != 0) {
+            n += 1;
+        }
+        return n;
+    }
+
+    /**
+     * Returns the index of the lowest set bit of a non-zero int.
+     */
+    private static int lowestBit(int bits) {
+        int n = 0;
+        if ((bits & 0xffff) == 0) {
+            n += 16;
+            bits >>>= 16;
+        }
+        if ((bits & 0xff) == 0) {
+            n += 8;
+            bits >>>= 8;
+        }
+        if ((bits & 0xf) == 0) {
+            n += 4;
+            bits >>>= 4;
+        }
+        if ((bits & 0x3) == 0) {
+            n += 2;
+            bits >>>= 2;
+        }
+        if ((bits & 0x1) == 0) {
+            n += 1;
+        }
+        return n;
+    }
+}
@@ -66,6 +66,22 @@ public abstract class Command implements NamedSendable {
      * The requirements (or null if no requirements)
      */
     private Set m_requirements;
+    /**
+     * The requirements as a bit set of {@link Subsystem} ids, used by the
+     * {@link Scheduler} to find conflicts without searching
+     */
+    int[] m_requirementBits = new int[1];
+    /**
+     * The index of this command in the {@link Scheduler}'s running array, or
+     * -1 if the {@link Scheduler} is not running it
+     */
+    int m_schedulerIndex = -1;
+    /**
+     * Where the time taken by {@link Command#run()} is recorded by the
+     * {@link Scheduler}, or null if
+     * the {@link Scheduler} is not profiling this command
+     */
+    CommandProfile m_profile;
     /**
      * Whether or not it is running
      */
@@ -87,9 +103,9 @@ public abstract class Command implements NamedSendable {
      */
     private boolean m_runWhenDisabled = false;
     /**
-     * The {@link CommandGroup} this is in
+     * The {@link CommandGroup} or {@link ScriptCommand} this is in
      */
-    private CommandGroup m_parent;
+    private Command m_parent;
 
     /**
      * Creates a new command.
@@ -198,6 +214,7 @@ public abstract class Command implements NamedSendable {
                 m_requirements = new Set();
             }
             m_requirements.add(subsystem);
+            m_requirementBits = Bits.set(m_requirementBits, subsystem.getId());
         } else {
             throw new IllegalArgumentException("Subsystem must not be null.");
         }
@@ -347,6 +364,16 @@ public abstract class Command implements NamedSendable {
         return m_requirements == null ? emptyEnumeration : m_requirements.getElements();
     }
 
+    /**
+     * Returns whether this command requires any {@link Subsystem}. Requirements
+     * can not change once a command has started.
+     *
+     * @return true if it has at least one requirement
+     */
+    boolean hasRequirements() {
+        return m_requirements != null;
+    }
+
     /**
      * Prevents further changes from being made
      */
@@ -368,10 +395,10 @@ public abstract class Command implements NamedSendable {
     /**
      * Sets the parent of this command.  No actual change is made to the group.
      *
-     * @param parent the parent
+     * @param parent the parent, a {@link CommandGroup} or {@link ScriptCommand}
      * @throws IllegalUseOfCommandException if this {@link Command} already is already in a group
      */
-    synchronized void setParent(CommandGroup parent) {
+    synchronized void setParent(Command parent) {
         if (this.m_parent != null) {
             throw new IllegalUseOfCommandException("Can not give command to a command group after already being put in a command group");
         }
@@ -488,7 +515,7 @@ public abstract class Command implements NamedSendable {
      * @return whether or not the subsystem is required, or false if given null
      */
     public synchronized boolean doesRequire(Subsystem system) {
-        return m_requirements != null && m_requirements.contains(system);
+        return system != null && Bits.get(m_requirementBits, system.getId());
     }
 
     /**
@@ -498,7 +525,18 @@ public abstract class Command implements NamedSendable {
      * @return the {@link CommandGroup} that this command is a part of (or null if not in group)
      */
     public synchronized CommandGroup getGroup() {
-        return m_parent;
+        return m_parent instanceof CommandGroup ? (CommandGroup) m_parent : null;
+    }
+
+    /**
+     * Returns how long this command has been taking to run, if the
+     * {@link Scheduler} is profiling it.
+     *
+     * @return the profile, or null if this command is not being profiled
+     * @see Scheduler#setProfilingEnabled(boolean)
+     */
+    public CommandProfile getProfile() {
+        return m_profile;
     }
 
     /**
@@ -0,0 +1,162 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+package edu.wpi.first.wpilibj.command;
+
+import edu.wpi.first.wpilibj.Utility;
+
+/**
+ * A histogram of how long something took to run, in microseconds. The
+ * {@link Scheduler} keeps one for every running {@link Command} and one for
+ * its own loop while profiling is turned on, see
+ * {@link Scheduler#setProfilingEnabled(boolean)}.
+ * <p/>
+ * <p>Times below 16us are counted exactly. Above that, every power of two is
+ * split into 8 buckets, so a percentile is never more than an eighth above
+ * the real time. All buckets are allocated up front and recording a time
+ * allocates nothing. The largest time is also kept exactly.</p>
+ */
+public final class CommandProfile {
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    /**
+     * Times of 2^31us and over all go in the last bucket
+     */
+    private static final int BUCKETS = (30 - SUB_BITS + 2) * SUB_COUNT;
+
+    private final int[] m_buckets = new int[BUCKETS];
+    private long m_count = 0;
+    private long m_total = 0;
+    private long m_max = 0;
+
+    CommandProfile() {
+    }
+
+    /**
+     * Records one run.
+     *
+     * @param time how long it took in microseconds
+     */
+    void record(long time) {
+        if (time < 0) {
+            time = 0;
+        }
+        m_buckets[bucket(time)]++;
+        m_count++;
+        m_total += time;
+        if (time > m_max) {
+            m_max = time;
+        }
+    }
+
+    /**
+     * Records the run of a command that started at the given FPGA time and
+     * ended now, if the command is being profiled. Commands run one after
+     * the other share a clock read, the end of one run being the start of
+     * the next.
+     *
+     * @param command the command that just ran
+     * @param start   the FPGA time it started at in microseconds
+     * @return the FPGA time now, to start the next run from
+     */
+    static long lap(Command command, long start) {
+        long now = Utility.getFPGATime();
+        CommandProfile profile = command.m_profile;
+        if (profile != null) {
+            // the FPGA clock wraps
+            profile.record((int) (now - start));
+        }
+        return now;
+    }
+
+    private static int bucket(long time) {
+        if (time < 2 * SUB_COUNT) {
+            return (int) time;
+        }
+        if (time > Integer.MAX_VALUE) {
+            return BUCKETS - 1;
+        }
+        int value = (int) time;
+        int exponent = Bits.highestBit(value);
+        return (exponent - SUB_BITS + 1) * SUB_COUNT + ((value >> (exponent - SUB_BITS)) & (SUB_COUNT - 1));
+    }
+
+    /**
+     * Returns the largest time that falls in a bucket.
+     */
+    private static long bucketTop(int bucket) {
+        if (bucket < 2 * SUB_COUNT) {
+            return bucket;
+        }
+        int shift = bucket / SUB_COUNT - 1;
+        long bottom = (long) (SUB_COUNT + bucket % SUB_COUNT) << shift;
+        return bottom + (1L << shift) - 1;
+    }
+
+    /**
+     * @return the number of runs recorded
+     */
+    public long getCount() {
+        return m_count;
+    }
+
+    /**
+     * @return the longest run, in microseconds
+     */
+    public long getMax() {
+        return m_max;
+    }
+
+    /**
+     * @return the average run, in microseconds
+     */
+    public double getAverage() {
+        return m_count == 0 ? 0 : (double) m_total / m_count;
+    }
+
+    /**
+     * Returns the time that the given fraction of runs took no longer than,
+     * rounded up to the top of its bucket.
+     *
+     * @param fraction the fraction of runs, for example 0.99 for the 99th percentile
+     * @return the time in microseconds, or 0 if nothing has been recorded
+     */
+    public long getPercentile(double fraction) {
+        if (m_count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(fraction * m_count);
+        if (rank < 1) {
+            rank = 1;
+        }
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += m_buckets[i];
+            if (seen >= rank) {
+                return Math.min(bucketTop(i), m_max);
+            }
+        }
+        return m_max;
+    }
+
+    /**
+     * Forgets every recorded run.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            m_buckets[i] = 0;
+        }
+        m_count = 0;
+        m_total = 0;
+        m_max = 0;
+    }
+
+    public String toString() {
+        return m_count + " runs, p50 " + getPercentile(0.5) + "us p99 "
+                + getPercentile(0.99) + "us max " + m_max + "us";
+    }
+}
@@ -0,0 +1,192 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+package edu.wpi.first.wpilibj.command;
+
+import edu.wpi.first.wpilibj.Utility;
+
+/**
+ * A fixed pool of threads that the {@link Scheduler} uses to run commands in
+ * parallel. The thread that calls {@link #runAll(Command[], boolean[], int, boolean)}
+ * works alongside the pool, each thread repeatedly claims the next unclaimed
+ * command, and the call does not return until every claimed command has
+ * finished. Only commands that require at least one {@link Subsystem} are
+ * claimed; the rest are left for the {@link Scheduler} to run itself.
+ * <p/>
+ * <p>Nothing is allocated per tick: the command and result arrays are the
+ * {@link Scheduler Scheduler's} own.</p>
+ */
+class ParallelCommandRunner {
+
+    private final Thread[] m_workers;
+    private Command[] m_commands;
+    private boolean[] m_results;
+    private int m_count;
+    private boolean m_profiling;
+    /**
+     * The index of the next command to claim
+     */
+    private int m_next;
+    /**
+     * The number of pool threads that have not finished the current tick
+     */
+    private int m_pending;
+    /**
+     * Incremented for every tick, so pool threads know there is new work
+     */
+    private int m_generation;
+    private boolean m_stopped;
+    private Throwable m_failure;
+
+    /**
+     * Creates a runner and starts its pool.
+     *
+     * @param threads the total number of threads to run commands on,
+     *                including the one calling runAll
+     */
+    ParallelCommandRunner(int threads) {
+        m_workers = new Thread[threads - 1];
+        for (int i = 0; i < m_workers.length; i++) {
+            m_workers[i] = new Thread() {
+                public void run() {
+                    workerLoop();
+                }
+            };
+            m_workers[i].start();
+        }
+    }
+
+    /**
+     * Returns the total number of threads commands run on, including the one
+     * calling runAll.
+     *
+     * @return the number of threads
+     */
+    int getThreads() {
+        return m_workers.length + 1;
+    }
+
+    /**
+     * Runs every command that has requirements and stores whether it should
+     * keep running.
+     *
+     * @param commands  the commands, which may contain nulls
+     * @param results   set to the result of {@link Command#run()} for each
+     *                  command that was run
+     * @param count     the number of slots of commands to look at
+     * @param profiling whether or not to record how long each command takes
+     * @return the first exception thrown by a command, or null
+     */
+    Throwable runAll(Command[] commands, boolean[] results, int count, boolean profiling) {
+        synchronized (this) {
+            m_commands = commands;
+            m_results = results;
+            m_count = count;
+            m_profiling = profiling;
+            m_next = 0;
+            // once stopped the pool may be gone, so the caller does it all
+            m_pending = m_stopped ? 0 : m_workers.length;
+            m_generation++;
+            notifyAll();
+        }
+        work();
+        Throwable failure;
+        synchronized (this) {
+            while (m_pending > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    // keep waiting, the tick is not done until every thread is
+                }
+            }
+            m_commands = null;
+            m_results = null;
+            failure = m_failure;
+            m_failure = null;
+        }
+        return failure;
+    }
+
+    /**
+     * Stops the pool threads once they finish what they are doing. A tick
+     * that has already started is finished first, so a runAll that is in
+     * progress on another thread still returns.
+     */
+    synchronized void stop() {
+        m_stopped = true;
+        notifyAll();
+    }
+
+    /**
+     * Claims the next command with requirements.
+     *
+     * @return its index, or -1 if there are none left
+     */
+    private synchronized int claim() {
+        while (m_next < m_count) {
+            int i = m_next++;
+            Command c = m_commands[i];
+            if (c != null && c.hasRequirements()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void work() {
+        Command[] commands;
+        boolean[] results;
+        boolean profiling;
+        synchronized (this) {
+            commands = m_commands;
+            results = m_results;
+            profiling = m_profiling;
+        }
+        long lap = profiling ? Utility.getFPGATime() : 0;
+        int i;
+        while ((i = claim()) >= 0) {
+            try {
+                results[i] = commands[i].run();
+                if (profiling) {
+                    lap = CommandProfile.lap(commands[i], lap);
+                }
+            } catch (Throwable t) {
+                // keep the command so the Scheduler sees the failure, not a finished command
+                results[i] = true;
+                synchronized (this) {
+                    if (m_failure == null) {
+                        m_failure = t;
+                    }
+                }
+            }
+        }
+    }
+
+    private void workerLoop() {
+        int seen = 0;
+        while (true) {
+            synchronized (this) {
+                while (m_generation == seen && !m_stopped) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        // check again
+                    }
+                }
+                if (m_generation == seen) {
+                    return;
+                }
+                seen = m_generation;
+            }
+            work();
+            synchronized (this) {
+                if (--m_pending == 0) {
+                    notifyAll();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,380 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+package edu.wpi.first.wpilibj.command;
+
+import java.util.Enumeration;
+import java.util.Vector;
+
+/**
+ * A {@link ScriptCommand} runs a list of steps in order, like an autonomous
+ * routine written as a script: do something, wait until something is true,
+ * do the next thing.
+ * <p/>
+ * <p>Steps are added in the constructor with {@link #addAction(Runnable) addAction(...)},
+ * {@link #addWait(double) addWait(...)}, {@link #addWaitUntil(ScriptCommand.Condition) addWaitUntil(...)},
+ * {@link #addCommand(Command) addCommand(...)} or {@link #addStep(ScriptCommand.Step) addStep(...)}.
+ * Each time the {@link Scheduler} runs, the script picks up at the step it
+ * was waiting on and keeps going until a step has to wait again, so a script
+ * never blocks and does not need a thread of its own. Any number of scripts
+ * can run at once.</p>
+ * <pre>
+ * public DriveAndShoot() {
+ *     requires(drive);
+ *     addAction(new Runnable() {
+ *         public void run() {
+ *             drive.tankDrive(0.5, 0.5);
+ *         }
+ *     });
+ *     addWaitUntil(new Condition() {
+ *         public boolean isTrue() {
+ *             return encoder.getDistance() >= 60;
+ *         }
+ *     }, 3);
+ *     addAction(new Runnable() {
+ *         public void run() {
+ *             drive.tankDrive(0, 0);
+ *         }
+ *     });
+ *     addCommand(new Shoot());
+ * }
+ * </pre>
+ * <p>A {@link Command} given to {@link #addCommand(Command) addCommand(...)} is
+ * run by the script itself, the same way a {@link CommandGroup} runs its
+ * sequential commands, and its requirements are added to the script.</p>
+ *
+ * @see CommandGroup
+ */
+public class ScriptCommand extends Command {
+
+    /**
+     * One step of a script.
+     */
+    public interface Step {
+
+        /**
+         * Called once each time the script runs while this is the current
+         * step.
+         *
+         * @param elapsed the time in seconds since this step started
+         * @return true when the step is done and the script should move on
+         */
+        boolean run(double elapsed);
+    }
+
+    /**
+     * Something a script can wait for.
+     */
+    public interface Condition {
+
+        /**
+         * @return whether the script can move on
+         */
+        boolean isTrue();
+    }
+
+    /**
+     * The steps in this script
+     */
+    private Vector m_steps = new Vector();
+    /**
+     * The index of the current step
+     */
+    private int m_currentStep;
+    /**
+     * Whether the current step has been started
+     */
+    private boolean m_stepStarted;
+    /**
+     * When the current step started, in seconds since this command was initialized
+     */
+    private double m_stepStartTime;
+
+    /**
+     * Creates a new {@link ScriptCommand ScriptCommand}.
+     * The name of this command will be set to its class name.
+     */
+    public ScriptCommand() {
+    }
+
+    /**
+     * Creates a new {@link ScriptCommand ScriptCommand} with the given name.
+     *
+     * @param name the name for this command
+     * @throws IllegalArgumentException if name is null
+     */
+    public ScriptCommand(String name) {
+        super(name);
+    }
+
+    /**
+     * Adds a step to the end of the script.
+     * <p/>
+     * <p>It is recommended that this method be called in the constructor.</p>
+     *
+     * @param step the step to add
+     * @throws IllegalUseOfCommandException if the script has been started before or been given to a group
+     * @throws IllegalArgumentException     if step is null
+     */
+    public synchronized final void addStep(Step step) {
+        validate("Can not add new step to script");
+        if (step == null) {
+            throw new IllegalArgumentException("Given null step");
+        }
+        m_steps.addElement(step);
+    }
+
+    /**
+     * Adds a step that runs the given action once and moves straight on.
+     *
+     * @param action the action to run
+     * @throws IllegalUseOfCommandException if the script has been started before or been given to a group
+     * @throws IllegalArgumentException     if action is null
+     */
+    public synchronized final void addAction(Runnable action) {
+        if (action == null) {
+            throw new IllegalArgumentException("Given null action");
+        }
+        addStep(new ActionStep(action));
+    }
+
+    /**
+     * Adds a step that waits for the given time.
+     *
+     * @param seconds the time to wait in seconds
+     * @throws IllegalUseOfCommandException if the script has been started before or been given to a group
+     * @throws IllegalArgumentException     if seconds is negative
+     */
+    public synchronized final void addWait(double seconds) {
+        if (seconds < 0) {
+            throw new IllegalArgumentException("Can not be given a negative time");
+        }
+        addStep(new WaitStep(null, seconds));
+    }
+
+    /**
+     * Adds a step that waits until the given condition is true.
+     *
+     * @param condition the condition to wait for
+     * @throws IllegalUseOfCommandException if the script has been started before or been given to a group
+     * @throws IllegalArgumentException     if condition is null
+     */
+    public synchronized final void addWaitUntil(Condition condition) {
+        if (condition == null) {
+            throw new IllegalArgumentException("Given null condition");
+        }
+        addStep(new WaitStep(condition, -1));
+    }
+
+    /**
+     * Adds a step that waits until the given condition is true or the timeout
+     * expires, whichever is sooner.
+     *
+     * @param condition the condition to wait for
+     * @param timeout   the longest time to wait in seconds
+     * @throws IllegalUseOfCommandException if the script has been started before or been given to a group
+     * @throws IllegalArgumentException     if condition is null or timeout is negative
+     */
+    public synchronized final void addWaitUntil(Condition condition, double timeout) {
+        if (condition == null) {
+            throw new IllegalArgumentException("Given null condition");
+        }
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Can not be given a negative timeout");
+        }
+        addStep(new WaitStep(condition, timeout));
+    }
+
+    /**
+     * Adds a step that runs the given {@link Command} until it finishes.
+     * <p/>
+     * <p>Note that any requirements the given {@link Command} has will be added to the
+     * script.  For this reason, a {@link Command Command's} requirements can not be changed after
+     * being added to a script.</p>
+     *
+     * @param command the {@link Command} to run
+     * @throws IllegalUseOfCommandException if the script or the command has been started before or been given to a group
+     * @throws IllegalArgumentException     if command is null
+     */
+    public synchronized final void addCommand(Command command) {
+        validate("Can not add new step to script");
+        if (command == null) {
+            throw new IllegalArgumentException("Given null command");
+        }
+        addCommandStep(command, -1);
+    }
+
+    /**
+     * Adds a step that runs the given {@link Command} until it finishes or the
+     * timeout expires, whichever is sooner.
+     * <p/>
+     * <p>Note that any requirements the given {@link Command} has will be added to the
+     * script.  For this reason, a {@link Command Command's} requirements can not be changed after
+     * being added to a script.</p>
+     *
+     * @param command the {@link Command} to run
+     * @param timeout the timeout (in seconds)
+     * @throws IllegalUseOfCommandException if the script or the command has been started before or been given to a group
+     * @throws IllegalArgumentException     if command is null or timeout is negative
+     */
+    public synchronized final void addCommand(Command command, double timeout) {
+        validate("Can not add new step to script");
+        if (command == null) {
+            throw new IllegalArgumentException("Given null command");
+        }
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Can not be given a negative timeout");
+        }
+        addCommandStep(command, timeout);
+    }
+
+    private void addCommandStep(Command command, double timeout) {
+        command.setParent(this);
+        m_steps.addElement(new CommandStep(command, timeout));
+        for (Enumeration e = command.getRequirements(); e.hasMoreElements(); ) {
+            requires((Subsystem) e.nextElement());
+        }
+    }
+
+    void _initialize() {
+        m_currentStep = 0;
+        m_stepStarted = false;
+    }
+
+    void _execute() {
+        while (m_currentStep < m_steps.size()) {
+            Step step = (Step) m_steps.elementAt(m_currentStep);
+            if (!m_stepStarted) {
+                m_stepStarted = true;
+                m_stepStartTime = timeSinceInitialized();
+                if (step instanceof CommandStep) {
+                    ((CommandStep) step).m_command.startRunning();
+                }
+            }
+            if (!step.run(timeSinceInitialized() - m_stepStartTime)) {
+                break;
+            }
+            m_currentStep++;
+            m_stepStarted = false;
+        }
+    }
+
+    void _end() {
+        if (m_stepStarted && m_currentStep < m_steps.size()) {
+            Object step = m_steps.elementAt(m_currentStep);
+            if (step instanceof CommandStep) {
+                Command cmd = ((CommandStep) step).m_command;
+                cmd._cancel();
+                cmd.removed();
+            }
+        }
+        m_stepStarted = false;
+    }
+
+    void _interrupted() {
+        _end();
+    }
+
+    /**
+     * Returns true once every step of the script has finished.
+     * <p/>
+     * <p>Teams may override this method, although they should probably
+     * reference super.isFinished() if they do.</p>
+     *
+     * @return whether this {@link ScriptCommand} is finished
+     */
+    protected boolean isFinished() {
+        return m_currentStep >= m_steps.size();
+    }
+
+    // Can be overwritten by teams
+    protected void initialize() {
+    }
+
+    // Can be overwritten by teams
+    protected void execute() {
+    }
+
+    // Can be overwritten by teams
+    protected void end() {
+    }
+
+    // Can be overwritten by teams
+    protected void interrupted() {
+    }
+
+    /**
+     * Returns whether or not this script is interruptible.
+     * A script will be uninterruptible if {@link Command#setInterruptible(boolean) setInterruptable(false)}
+     * was called or if it is currently running an uninterruptible command.
+     *
+     * @return whether or not this {@link ScriptCommand} is interruptible.
+     */
+    public synchronized boolean isInterruptible() {
+        if (!super.isInterruptible()) {
+            return false;
+        }
+        if (m_stepStarted && m_currentStep < m_steps.size()) {
+            Object step = m_steps.elementAt(m_currentStep);
+            if (step instanceof CommandStep) {
+                return ((CommandStep) step).m_command.isInterruptible();
+            }
+        }
+        return true;
+    }
+
+    private static class ActionStep implements Step {
+
+        private final Runnable m_action;
+
+        ActionStep(Runnable action) {
+            m_action = action;
+        }
+
+        public boolean run(double elapsed) {
+            m_action.run();
+            return true;
+        }
+    }
+
+    private static class WaitStep implements Step {
+
+        private final Condition m_condition;
+        private final double m_timeout;
+
+        WaitStep(Condition condition, double timeout) {
+            m_condition = condition;
+            m_timeout = timeout;
+        }
+
+        public boolean run(double elapsed) {
+            return (m_condition != null && m_condition.isTrue())
+                    || (m_timeout != -1 && elapsed >= m_timeout);
+        }
+    }
+
+    private static class CommandStep implements Step {
+
+        private final Command m_command;
+        private final double m_timeout;
+
+        CommandStep(Command command, double timeout) {
+            m_command = command;
+            m_timeout = timeout;
+        }
+
+        public boolean run(double elapsed) {
+            if (m_timeout != -1 && elapsed >= m_timeout) {
+                m_command._cancel();
+            }
+            if (m_command.run()) {
+                return false;
+            }
+            m_command.removed();
+            return true;
+        }
+    }
+}
@@ -49,6 +49,10 @@ public abstract class Subsystem implements NamedSendable {
      * The name
      */
     private String name;
+    /**
+     * The dense id given to this subsystem by the {@link Scheduler}
+     */
+    private int id = -1;
     /**
      * List of all subsystems created
      */
@@ -109,6 +113,7 @@ public abstract class Subsystem implements NamedSendable {
             }
             defaultCommand = command;
         }
+        Scheduler.getInstance().defaultCommandChanged(this);
         if (table != null) {
             if (defaultCommand != null) {
                 table.putBoolean("hasDefault", true);
@@ -170,6 +175,26 @@ public abstract class Subsystem implements NamedSendable {
         return currentCommand;
     }
 
+    /**
+     * Sets the id of this subsystem. This is called once by the
+     * {@link Scheduler} when the subsystem is registered.
+     *
+     * @param id the id
+     */
+    void setId(int id) {
+        this.id = id;
+    }
+
+    /**
+     * Returns the dense id the {@link Scheduler} uses for this subsystem, which
+     * is its position in the order subsystems were created.
+     *
+     * @return the id
+     */
+    int getId() {
+        return id;
+    }
+
     public String toString() {
         return getName();
     }
@@ -4,13 +4,13 @@
  */
 package edu.wpi.first.wpilibj.livewindow;
 
+import edu.wpi.first.wpilibj.Utility;
 import edu.wpi.first.wpilibj.command.Scheduler;
 import edu.wpi.first.wpilibj.networktables.NetworkTable;
 import edu.wpi.first.wpilibj.tables.ITable;
 
 import java.util.Enumeration;
 import java.util.Hashtable;
-import java.util.Vector;
 
 /**
  * A LiveWindow component is a device (sensor or actuator) that should be added to the
@@ -24,11 +24,23 @@ class LiveWindowComponent {
     String m_subsystem;
     String m_name;
     boolean m_isSensor;
+    LiveWindowSendable m_component;
+    LiveWindowGroup m_group;
+    /**
+     * Set when the component has to be sent again, such as an actuator that
+     * was changed
+     */
+    boolean m_dirty = true;
+    /**
+     * The LiveWindow cycle the component was last sent in
+     */
+    int m_cycle = 0;
 
-    public LiveWindowComponent(String subsystem, String name, boolean isSensor) {
+    public LiveWindowComponent(String subsystem, String name, boolean isSensor, LiveWindowSendable component) {
         m_subsystem = subsystem;
         m_name = name;
         m_isSensor = isSensor;
+        m_component = component;
     }
 
     public String getName() {
@@ -44,6 +56,22 @@ class LiveWindowComponent {
     }
 }
 
+/**
+ * The table of one subsystem on the LiveWindow, and whether the dashboard is
+ * showing it. A dashboard that does not say is assumed to show everything.
+ */
+class LiveWindowGroup {
+
+    static final String kViewedKey = "~VIEWED~";
+
+    final ITable m_table;
+    boolean m_viewed = true;
+
+    LiveWindowGroup(ITable table) {
+        m_table = table;
+    }
+}
+
 /**
  * The LiveWindow class is the public interface for putting sensors and
  * actuators on the LiveWindow.
@@ -52,13 +80,28 @@ class LiveWindowComponent {
  */
 public class LiveWindow {
 
-    private static Vector sensors = new Vector();
-    //    private static Vector actuators = new Vector();
     private static Hashtable components = new Hashtable();
     private static ITable livewindowTable = NetworkTable.getTable("LiveWindow");
     private static ITable statusTable = livewindowTable.getSubTable("~STATUS~");
     private static boolean liveWindowEnabled = false;
     private static boolean firstTime = true;
+    /**
+     * Every component with a table, in the order they are refreshed
+     */
+    private static LiveWindowComponent[] refreshList = new LiveWindowComponent[0];
+    private static LiveWindowGroup[] groupList = new LiveWindowGroup[0];
+    /**
+     * Where the next cycle starts refreshing sensors
+     */
+    private static int cursor = 0;
+    private static int cycle = 0;
+    /**
+     * The time allowed for refreshing each cycle in microseconds, or 0 for no
+     * limit
+     */
+    private static int updateBudget = 0;
+    private static long skippedUpdates = 0;
+    private static int lastSkipped = -1;
 
     /**
      * Initialize all the LiveWindow elements the first time we enter LiveWindow
@@ -69,22 +112,38 @@ public class LiveWindow {
      */
     private static void initializeLiveWindowComponents() {
         System.out.println("Initializing the components first time");
+        Hashtable groups = new Hashtable();
+        LiveWindowComponent[] list = new LiveWindowComponent[components.size()];
+        int count = 0;
         for (Enumeration e = components.keys(); e.hasMoreElements(); ) {
             LiveWindowSendable component = (LiveWindowSendable) e.nextElement();
             LiveWindowComponent c = (LiveWindowComponent) components.get(component);
             String subsystem = c.getSubsystem();
             String name = c.getName();
             System.out.println("Initializing table for '" + subsystem + "' '" + name + "'");
-            livewindowTable.getSubTable(subsystem).putString("~TYPE~", "LW Subsystem");
-            ITable table = livewindowTable.getSubTable(subsystem).getSubTable(name);
+            LiveWindowGroup group = (LiveWindowGroup) groups.get(subsystem);
+            if (group == null) {
+                group = new LiveWindowGroup(livewindowTable.getSubTable(subsystem));
+                groups.put(subsystem, group);
+            }
+            group.m_table.putString("~TYPE~", "LW Subsystem");
+            ITable table = group.m_table.getSubTable(name);
             table.putString("~TYPE~", component.getSmartDashboardType());
             table.putString("Name", name);
             table.putString("Subsystem", subsystem);
             component.initTable(table);
-            if (c.isSensor()) {
-                sensors.addElement(component);
-            }
+            c.m_group = group;
+            c.m_dirty = true;
+            list[count++] = c;
+        }
+        LiveWindowGroup[] groupArray = new LiveWindowGroup[groups.size()];
+        int i = 0;
+        for (Enumeration e = groups.elements(); e.hasMoreElements(); ) {
+            groupArray[i++] = (LiveWindowGroup) e.nextElement();
         }
+        groupList = groupArray;
+        refreshList = list;
+        cursor = 0;
     }
 
     /**
@@ -111,6 +170,9 @@ public class LiveWindow {
                     LiveWindowSendable component = (LiveWindowSendable) e.nextElement();
                     component.startLiveWindowMode();
                 }
+                for (int i = 0; i < refreshList.length; i++) {
+                    refreshList[i].m_dirty = true;
+                }
             } else {
                 System.out.println("stopping live window mode.");
                 for (Enumeration e = components.keys(); e.hasMoreElements(); ) {
@@ -132,6 +194,43 @@ public class LiveWindow {
         updateValues();
     }
 
+    /**
+     * Limit how long each call to {@link #run()} may spend refreshing
+     * components. Sensors that do not fit are refreshed in a later cycle, and
+     * the cycles take turns starting where the last one stopped so every
+     * sensor is reached. At least one component is refreshed each cycle.
+     *
+     * @param seconds The time allowed each cycle in seconds, or 0 for no limit.
+     */
+    public static void setUpdateBudget(double seconds) {
+        updateBudget = seconds <= 0 ? 0 : (int) Math.max(1, Math.min(Integer.MAX_VALUE, seconds * 1e6));
+    }
+
+    /**
+     * Get the number of component refreshes that were skipped, either because
+     * the subsystem was not being viewed on the dashboard or because a cycle
+     * ran out of time. The number skipped in the last cycle is also put in the
+     * status table as "Skipped Updates".
+     *
+     * @return The number of refreshes skipped since the robot started.
+     */
+    public static long getSkippedUpdates() {
+        return skippedUpdates;
+    }
+
+    /**
+     * Mark a component as changed so it is sent in the next cycle. Actuators
+     * are only sent when they are marked, sensors are also sent in turn.
+     *
+     * @param component The component that changed.
+     */
+    public static void markDirty(LiveWindowSendable component) {
+        LiveWindowComponent c = (LiveWindowComponent) components.get(component);
+        if (c != null) {
+            c.m_dirty = true;
+        }
+    }
+
     /**
      * Add a Sensor associated with the subsystem and with call it by the given
      * name.
@@ -141,7 +240,7 @@ public class LiveWindow {
      * @param component A LiveWindowSendable component that represents a sensor.
      */
     public static void addSensor(String subsystem, String name, LiveWindowSendable component) {
-        components.put(component, new LiveWindowComponent(subsystem, name, true));
+        components.put(component, new LiveWindowComponent(subsystem, name, true, component));
     }
 
     /**
@@ -154,20 +253,84 @@ public class LiveWindow {
      *                  actuator.
      */
     public static void addActuator(String subsystem, String name, LiveWindowSendable component) {
-        components.put(component, new LiveWindowComponent(subsystem, name, false));
+        components.put(component, new LiveWindowComponent(subsystem, name, false, component));
     }
 
     /**
-     * Puts all sensor values on the live window.
+     * Puts the changed values of the subsystems being viewed on the live
+     * window. Components marked dirty go first, then sensors are refreshed in
+     * turn until the update budget runs out.
      */
     private static void updateValues() {
-        //TODO: gross - needs to be sped up
-        for (int i = 0; i < sensors.size(); i++) {
-            LiveWindowSendable lws = (LiveWindowSendable) sensors.elementAt(i);
-            lws.updateTable();
+        LiveWindowComponent[] list = refreshList;
+        if (list.length == 0) {
+            return;
+        }
+        for (int i = 0; i < groupList.length; i++) {
+            LiveWindowGroup group = groupList[i];
+            boolean viewed = group.m_table.getBoolean(LiveWindowGroup.kViewedKey, true);
+            if (viewed && !group.m_viewed) {
+                for (int j = 0; j < list.length; j++) {
+                    if (list[j].m_group == group) {
+                        list[j].m_dirty = true;
+                    }
+                }
+            }
+            group.m_viewed = viewed;
         }
-        // TODO: Add actuators?
-        // TODO: Add better rate limiting.
+
+        cycle++;
+        long start = updateBudget > 0 ? Utility.getFPGATime() : 0;
+        int updated = 0;
+        for (int i = 0; i < list.length; i++) {
+            LiveWindowComponent c = list[i];
+            if (c.m_dirty && c.m_group.m_viewed) {
+                if (updated > 0 && overBudget(start)) {
+                    break;
+                }
+                update(c);
+                updated++;
+            }
+        }
+        for (int i = 0; i < list.length; i++) {
+            LiveWindowComponent c = list[cursor];
+            if (c.m_isSensor && c.m_group.m_viewed && c.m_cycle != cycle) {
+                if (updated > 0 && overBudget(start)) {
+                    break;
+                }
+                update(c);
+                updated++;
+            }
+            cursor = (cursor + 1) % list.length;
+        }
+
+        int skipped = 0;
+        for (int i = 0; i < list.length; i++) {
+            LiveWindowComponent c = list[i];
+            if ((c.m_isSensor || c.m_dirty) && c.m_cycle != cycle) {
+                skipped++;
+            }
+        }
+        skippedUpdates += skipped;
+        if (skipped != lastSkipped) {
+            lastSkipped = skipped;
+            statusTable.putNumber("Skipped Updates", skipped);
+        }
+    }
+
+    private static void update(LiveWindowComponent c) {
+        c.m_dirty = false;
+        c.m_cycle = cycle;
+        c.m_component.updateTable();
+    }
+
+    private static boolean overBudget(long start) {
+        if (updateBudget == 0) {
+            return false;
+        }
+        // the FPGA clock is 32 bits, so compare the wrapped difference
+        int elapsed = (int) (Utility.getFPGATime() - start);
+        return elapsed >= updateBudget;
     }
 
     /**
@@ -183,10 +346,6 @@ public class LiveWindow {
      */
     public static void addSensor(String moduleType, int moduleNumber, int channel, LiveWindowSendable component) {
         addSensor("Ungrouped", moduleType + "[" + moduleNumber + "," + channel + "]", component);
-        if (sensors.contains(component)) {
-            sensors.removeElement(component);
-        }
-        sensors.addElement(component);
     }
 
     /**
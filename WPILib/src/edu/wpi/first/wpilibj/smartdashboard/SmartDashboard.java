@@ -23,6 +23,14 @@ import java.util.NoSuchElementException;
  * <p/>
  * <p>When a value is put into the SmartDashboard here, it pops up on the SmartDashboard on the laptop.
  * Users can put values into and get values from the SmartDashboard</p>
+ * <p/>
+ * <p>By default every put is sent to the table straight away. With
+ * {@link #setPublishPeriod(double)} numbers, booleans and strings are instead
+ * buffered and only the ones that changed since they were last sent are sent,
+ * in one batch every period. Keys marked with {@link #setCritical(String, boolean)}
+ * skip the wait. Gets return the value last put at a key, even one that
+ * was not sent because it was too close to the last value sent, unless the
+ * table has been changed at that key since, for example by the laptop.</p>
  *
  * @author Joe Grinstead
  */
@@ -37,6 +45,11 @@ public class SmartDashboard {
      * they came from.
      */
     private static final Hashtable tablesToData = new Hashtable();
+    /**
+     * Buffers puts when batching is turned on
+     */
+    private static final SmartDashboardPublisher publisher = new SmartDashboardPublisher(table);
+    private static volatile boolean batching = false;
 
     /**
      * Maps the specified key to the specified value in this table.
@@ -97,7 +110,11 @@ public class SmartDashboard {
      * @throws IllegalArgumentException if key is null
      */
     public static void putBoolean(String key, boolean value) {
-        table.putBoolean(key, value);
+        if (batching) {
+            publisher.putBoolean(key, value);
+        } else {
+            table.putBoolean(key, value);
+        }
     }
 
     /**
@@ -110,6 +127,9 @@ public class SmartDashboard {
      * @throws IllegalArgumentException  if the key is null
      */
     public static boolean getBoolean(String key) throws TableKeyNotDefinedException {
+        if (batching) {
+            return publisher.getBoolean(key);
+        }
         return table.getBoolean(key);
     }
 
@@ -123,6 +143,9 @@ public class SmartDashboard {
      * @throws IllegalArgumentException if the key is null
      */
     public static boolean getBoolean(String key, boolean defaultValue) {
+        if (batching) {
+            return publisher.getBoolean(key, defaultValue);
+        }
         return table.getBoolean(key, defaultValue);
     }
 
@@ -136,7 +159,11 @@ public class SmartDashboard {
      * @throws IllegalArgumentException if key is null
      */
     public static void putNumber(String key, double value) {
-        table.putNumber(key, value);
+        if (batching) {
+            publisher.putNumber(key, value);
+        } else {
+            table.putNumber(key, value);
+        }
     }
 
     /**
@@ -149,6 +176,9 @@ public class SmartDashboard {
      * @throws IllegalArgumentException    if the key is null
      */
     public static double getNumber(String key) throws TableKeyNotDefinedException {
+        if (batching) {
+            return publisher.getNumber(key);
+        }
         return table.getNumber(key);
     }
 
@@ -164,6 +194,9 @@ public class SmartDashboard {
      * @throws IllegalArgumentException if the key is null
      */
     public static double getNumber(String key, double defaultValue) {
+        if (batching) {
+            return publisher.getNumber(key, defaultValue);
+        }
         return table.getNumber(key, defaultValue);
     }
 
@@ -177,7 +210,11 @@ public class SmartDashboard {
      * @throws IllegalArgumentException if key or value is null
      */
     public static void putString(String key, String value) {
-        table.putString(key, value);
+        if (batching) {
+            publisher.putString(key, value);
+        } else {
+            table.putString(key, value);
+        }
     }
 
     /**
@@ -190,6 +227,9 @@ public class SmartDashboard {
      * @throws IllegalArgumentException  if the key is null
      */
     public static String getString(String key) throws TableKeyNotDefinedException {
+        if (batching) {
+            return publisher.getString(key);
+        }
         return table.getString(key);
     }
 
@@ -204,8 +244,76 @@ public class SmartDashboard {
      * @throws IllegalArgumentException  if the key is null
      */
     public static String getString(String key, String defaultValue) {
+        if (batching) {
+            return publisher.getString(key, defaultValue);
+        }
         return table.getString(key, defaultValue);
     }
+
+    /**
+     * Turns on batching: from now on numbers, booleans and strings that are
+     * put are buffered, and the ones that changed are sent together every
+     * period. A period of 0 turns batching off again, sending anything still
+     * waiting, and puts go straight to the table as before.
+     *
+     * @param seconds how often to send buffered values, or 0 to stop batching
+     * @throws IllegalArgumentException if seconds is negative
+     */
+    public static void setPublishPeriod(double seconds) {
+        if (seconds < 0) {
+            throw new IllegalArgumentException("Publish period can not be negative");
+        }
+        if (seconds == 0) {
+            batching = false;
+            publisher.stop();
+        } else {
+            publisher.setPeriod(seconds);
+            batching = true;
+        }
+    }
+
+    /**
+     * Sets how far a number has to move from the value last sent before it
+     * is sent again while batching. The default is 0, so any change is sent.
+     *
+     * @param epsilon the smallest change that is sent
+     */
+    public static void setEpsilon(double epsilon) {
+        publisher.setEpsilon(epsilon);
+    }
+
+    /**
+     * Sets how far the number at one key has to move from the value last
+     * sent before it is sent again while batching.
+     *
+     * @param key     the key
+     * @param epsilon the smallest change that is sent, or -1 to use the default
+     */
+    public static void setEpsilon(String key, double epsilon) {
+        publisher.setEpsilon(key, epsilon);
+    }
+
+    /**
+     * Marks a key as critical. While batching, a critical key is still only
+     * sent when it changes, but it is sent as soon as it is put instead of
+     * waiting for the next batch.
+     *
+     * @param key      the key
+     * @param critical whether the key is critical
+     */
+    public static void setCritical(String key, boolean critical) {
+        publisher.setCritical(key, critical);
+    }
+
+    /**
+     * Sends every buffered value that changed now, without waiting for the
+     * next batch. Does nothing when not batching.
+     */
+    public static void flush() {
+        if (batching) {
+            publisher.flush();
+        }
+    }
     
     
     
@@ -231,7 +339,7 @@ public class SmartDashboard {
      * @deprecated Use {@link #putNumber(java.lang.String, double) putNumber method} instead
      */
     public static void putInt(String key, int value) {
-        table.putNumber(key, value);
+        putNumber(key, value);
     }
 
     /**
@@ -245,7 +353,7 @@ public class SmartDashboard {
      * @deprecated Use {@link #getNumber(java.lang.String) getNumber} instead
      */
     public static int getInt(String key) throws TableKeyNotDefinedException {
-        return (int) table.getNumber(key);
+        return (int) getNumber(key);
     }
 
     /**
@@ -261,7 +369,7 @@ public class SmartDashboard {
      */
     public static int getInt(String key, int defaultValue) throws TableKeyNotDefinedException {
         try {
-            return (int) table.getNumber(key);
+            return (int) getNumber(key);
         } catch (NoSuchElementException ex) {
             return defaultValue;
         }
@@ -279,7 +387,7 @@ public class SmartDashboard {
      * @deprecated Use{@link #putNumber(java.lang.String, double) putNumber} instead
      */
     public static void putDouble(String key, double value) {
-        table.putNumber(key, value);
+        putNumber(key, value);
     }
 
     /**
@@ -294,7 +402,7 @@ public class SmartDashboard {
      * @deprecated Use {@link #getNumber(java.lang.String) getNumber} instead
      */
     public static double getDouble(String key) throws TableKeyNotDefinedException {
-        return table.getNumber(key);
+        return getNumber(key);
     }
 
     /**
@@ -310,7 +418,7 @@ public class SmartDashboard {
      * @deprecated Use {@link #getNumber(java.lang.String, double) getNumber} instead.
      */
     public static double getDouble(String key, double defaultValue) {
-        return table.getNumber(key, defaultValue);
+        return getNumber(key, defaultValue);
     }
 
 }
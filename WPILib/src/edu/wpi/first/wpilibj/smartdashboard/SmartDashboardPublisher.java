@@ -0,0 +1,513 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.smartdashboard;
+
+import edu.wpi.first.wpilibj.tables.ITable;
+import edu.wpi.first.wpilibj.tables.ITableListener;
+import edu.wpi.first.wpilibj.tables.TableKeyNotDefinedException;
+
+import java.util.Enumeration;
+import java.util.Hashtable;
+
+/**
+ * Buffers the values put into the {@link SmartDashboard} and sends the ones
+ * that changed to the table in one batch every period. A value only counts as
+ * changed if it is different from the last value sent, and numbers also have
+ * to move by more than an epsilon. Critical keys are still filtered for
+ * changes but are sent right away.
+ * <p/>
+ * <p>The last value sent is only trusted while the table still holds it. It
+ * is forgotten when batching starts or stops, since puts go straight to the
+ * table while it is off, and when the table is changed to anything else, for
+ * example by the laptop dashboard, so the next put is always sent.</p>
+ * <p/>
+ * <p>Values are sent to the table without holding the lock that puts take,
+ * so a slow table never holds up the robot loop. Nothing is allocated for a
+ * key after the first time it is put.</p>
+ */
+class SmartDashboardPublisher implements Runnable {
+
+    private static final int kNumber = 0;
+    private static final int kBoolean = 1;
+    private static final int kString = 2;
+
+    private static class Entry {
+
+        final String m_key;
+        boolean m_critical = false;
+        /**
+         * The epsilon for this key, or -1 to use the default
+         */
+        double m_epsilon = -1;
+        /**
+         * Whether it is in the list of entries to look at in the next batch
+         */
+        boolean m_dirty = false;
+        /**
+         * Whether it is being sent, and the table may not have the value yet
+         */
+        boolean m_sending = false;
+        int m_type;
+        double m_number;
+        boolean m_boolean;
+        String m_string;
+        /**
+         * Whether the table still holds the last value sent. It is only set
+         * while holding both locks, but may be cleared with just the
+         * publisher's lock.
+         */
+        boolean m_sent = false;
+        /**
+         * The last value sent, only changed while holding both locks
+         */
+        int m_sentType;
+        double m_sentNumber;
+        boolean m_sentBoolean;
+        String m_sentString;
+
+        Entry(String key) {
+            m_key = key;
+        }
+    }
+
+    private final ITable m_table;
+    private final Hashtable m_entries = new Hashtable();
+    private Entry[] m_dirty = new Entry[16];
+    private int m_dirtyCount = 0;
+    /**
+     * The list of entries being sent, swapped with m_dirty for each batch
+     */
+    private Entry[] m_sendList = new Entry[16];
+    /**
+     * Held while sending, and taken before the publisher's own lock, so
+     * values reach the table in the order they were chosen to be sent
+     */
+    private final Object m_sendLock = new Object();
+    private double m_epsilon = 0;
+    private long m_periodMillis = 0;
+    private Thread m_thread = null;
+
+    SmartDashboardPublisher(ITable table) {
+        m_table = table;
+        m_table.addTableListener(new ITableListener() {
+            public void valueChanged(ITable source, String key, Object value, boolean isNew) {
+                changedInTable(key, value);
+            }
+        });
+    }
+
+    /**
+     * Sets how often buffered values are sent, and starts the thread that
+     * sends them.
+     *
+     * @param seconds the period in seconds, more than 0
+     */
+    synchronized void setPeriod(double seconds) {
+        m_periodMillis = Math.max(1, (long) (seconds * 1000));
+        if (m_thread == null) {
+            // puts went straight to the table while batching was off
+            forgetSent();
+            m_thread = new Thread(this);
+            m_thread.setPriority(Thread.MIN_PRIORITY);
+            m_thread.start();
+        }
+        notify();
+    }
+
+    /**
+     * Stops buffering: stops the thread and sends everything that is waiting.
+     */
+    void stop() {
+        synchronized (this) {
+            m_periodMillis = 0;
+            m_thread = null;
+            notify();
+        }
+        flush();
+        synchronized (this) {
+            // from now on puts go straight to the table
+            forgetSent();
+        }
+    }
+
+    synchronized void setEpsilon(double epsilon) {
+        m_epsilon = epsilon;
+    }
+
+    synchronized void setEpsilon(String key, double epsilon) {
+        entry(key).m_epsilon = epsilon;
+    }
+
+    synchronized void setCritical(String key, boolean critical) {
+        entry(key).m_critical = critical;
+    }
+
+    void putNumber(String key, double value) {
+        Entry entry;
+        synchronized (this) {
+            entry = entry(key);
+            entry.m_type = kNumber;
+            entry.m_number = value;
+            if (!changed(entry)) {
+                return;
+            }
+        }
+        sendCritical(entry);
+    }
+
+    void putBoolean(String key, boolean value) {
+        Entry entry;
+        synchronized (this) {
+            entry = entry(key);
+            entry.m_type = kBoolean;
+            entry.m_boolean = value;
+            if (!changed(entry)) {
+                return;
+            }
+        }
+        sendCritical(entry);
+    }
+
+    void putString(String key, String value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        Entry entry;
+        synchronized (this) {
+            entry = entry(key);
+            entry.m_type = kString;
+            entry.m_string = value;
+            if (!changed(entry)) {
+                return;
+            }
+        }
+        sendCritical(entry);
+    }
+
+    /**
+     * Returns the number last put at the key, even if it has not reached the
+     * table or was too close to the last value sent to be sent, or else the
+     * number in the table.
+     *
+     * @throws TableKeyNotDefinedException if there is no value at the key
+     */
+    double getNumber(String key) throws TableKeyNotDefinedException {
+        synchronized (this) {
+            Entry entry = local(key, kNumber);
+            if (entry != null) {
+                return entry.m_number;
+            }
+        }
+        return m_table.getNumber(key);
+    }
+
+    /**
+     * Returns the number last put at the key, even if it has not reached the
+     * table or was too close to the last value sent to be sent, or else the
+     * number in the table, or the default if there is none.
+     */
+    double getNumber(String key, double defaultValue) {
+        synchronized (this) {
+            Entry entry = local(key, kNumber);
+            if (entry != null) {
+                return entry.m_number;
+            }
+        }
+        return m_table.getNumber(key, defaultValue);
+    }
+
+    /**
+     * Returns the boolean last put at the key, even if it has not reached the
+     * table or was too close to the last value sent to be sent, or else the
+     * boolean in the table.
+     *
+     * @throws TableKeyNotDefinedException if there is no value at the key
+     */
+    boolean getBoolean(String key) throws TableKeyNotDefinedException {
+        synchronized (this) {
+            Entry entry = local(key, kBoolean);
+            if (entry != null) {
+                return entry.m_boolean;
+            }
+        }
+        return m_table.getBoolean(key);
+    }
+
+    /**
+     * Returns the boolean last put at the key, even if it has not reached the
+     * table or was too close to the last value sent to be sent, or else the
+     * boolean in the table, or the default if there is none.
+     */
+    boolean getBoolean(String key, boolean defaultValue) {
+        synchronized (this) {
+            Entry entry = local(key, kBoolean);
+            if (entry != null) {
+                return entry.m_boolean;
+            }
+        }
+        return m_table.getBoolean(key, defaultValue);
+    }
+
+    /**
+     * Returns the string last put at the key, even if it has not reached the
+     * table or was too close to the last value sent to be sent, or else the
+     * string in the table.
+     *
+     * @throws TableKeyNotDefinedException if there is no value at the key
+     */
+    String getString(String key) throws TableKeyNotDefinedException {
+        synchronized (this) {
+            Entry entry = local(key, kString);
+            if (entry != null) {
+                return entry.m_string;
+            }
+        }
+        return m_table.getString(key);
+    }
+
+    /**
+     * Returns the string last put at the key, even if it has not reached the
+     * table or was too close to the last value sent to be sent, or else the
+     * string in the table, or the default if there is none.
+     */
+    String getString(String key, String defaultValue) {
+        synchronized (this) {
+            Entry entry = local(key, kString);
+            if (entry != null) {
+                return entry.m_string;
+            }
+        }
+        return m_table.getString(key, defaultValue);
+    }
+
+    /**
+     * Sends every buffered value that changed. The list of changed entries is
+     * swapped out under the lock and sent without it, so puts can go on while
+     * the table is busy.
+     */
+    void flush() {
+        synchronized (m_sendLock) {
+            Entry[] batch;
+            int count = 0;
+            synchronized (this) {
+                batch = m_dirty;
+                m_dirty = m_sendList;
+                m_sendList = batch;
+                for (int i = 0; i < m_dirtyCount; i++) {
+                    Entry entry = batch[i];
+                    batch[i] = null;
+                    entry.m_dirty = false;
+                    if (differs(entry)) {
+                        take(entry);
+                        batch[count++] = entry;
+                    }
+                }
+                m_dirtyCount = 0;
+            }
+            try {
+                for (int i = 0; i < count; i++) {
+                    send(batch[i]);
+                }
+            } finally {
+                synchronized (this) {
+                    for (int i = 0; i < count; i++) {
+                        batch[i].m_sending = false;
+                        batch[i] = null;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends a critical entry that was just put, unless a newer put or a batch
+     * already sent its value.
+     */
+    private void sendCritical(Entry entry) {
+        synchronized (m_sendLock) {
+            synchronized (this) {
+                if (!differs(entry)) {
+                    return;
+                }
+                take(entry);
+            }
+            try {
+                send(entry);
+            } finally {
+                synchronized (this) {
+                    entry.m_sending = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the entry at a key if a value of the type was put there and
+     * the table has not been changed by anything else since. Must hold the
+     * lock.
+     */
+    private Entry local(String key, int type) {
+        Entry entry = (Entry) m_entries.get(key);
+        return entry != null && (entry.m_dirty || entry.m_sending || entry.m_sent) && entry.m_type == type ? entry : null;
+    }
+
+    /**
+     * Forgets the last value sent for every key, so the next put of each is
+     * sent, and gets read from the table until then. Must hold the lock.
+     */
+    private void forgetSent() {
+        for (Enumeration e = m_entries.elements(); e.hasMoreElements();) {
+            ((Entry) e.nextElement()).m_sent = false;
+        }
+    }
+
+    /**
+     * Called when a value in the table changes, including when this
+     * publisher sends one. Forgets the last value sent at the key if the
+     * table now holds something else.
+     */
+    private synchronized void changedInTable(String key, Object value) {
+        Entry entry = (Entry) m_entries.get(key);
+        if (entry != null && entry.m_sent && !holdsSent(entry, value)) {
+            entry.m_sent = false;
+        }
+    }
+
+    /**
+     * Checks a value from the table against the last value sent at an entry.
+     */
+    private static boolean holdsSent(Entry entry, Object value) {
+        switch (entry.m_sentType) {
+            case kNumber:
+                return value instanceof Double && ((Double) value).doubleValue() == entry.m_sentNumber;
+            case kBoolean:
+                return value instanceof Boolean && ((Boolean) value).booleanValue() == entry.m_sentBoolean;
+            default:
+                return entry.m_sentString.equals(value);
+        }
+    }
+
+    private Entry entry(String key) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        Entry entry = (Entry) m_entries.get(key);
+        if (entry == null) {
+            entry = new Entry(key);
+            m_entries.put(key, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Queues an entry whose value was just put if it changed.
+     *
+     * @return true if it is critical and should be sent right away instead
+     */
+    private boolean changed(Entry entry) {
+        if (entry.m_dirty || !differs(entry)) {
+            return false;
+        }
+        if (entry.m_critical) {
+            return true;
+        }
+        if (m_dirtyCount == m_dirty.length) {
+            Entry[] grown = new Entry[m_dirty.length * 2];
+            System.arraycopy(m_dirty, 0, grown, 0, m_dirtyCount);
+            m_dirty = grown;
+        }
+        entry.m_dirty = true;
+        m_dirty[m_dirtyCount++] = entry;
+        return false;
+    }
+
+    /**
+     * Checks the value put at an entry against the last value sent.
+     */
+    private boolean differs(Entry entry) {
+        if (!entry.m_sent || entry.m_type != entry.m_sentType) {
+            return true;
+        }
+        switch (entry.m_type) {
+            case kNumber:
+                double epsilon = entry.m_epsilon >= 0 ? entry.m_epsilon : m_epsilon;
+                if (Double.isNaN(entry.m_number) || Double.isNaN(entry.m_sentNumber)) {
+                    return Double.isNaN(entry.m_number) != Double.isNaN(entry.m_sentNumber);
+                }
+                double delta = entry.m_number - entry.m_sentNumber;
+                return delta > epsilon || delta < -epsilon;
+            case kBoolean:
+                return entry.m_boolean != entry.m_sentBoolean;
+            default:
+                return !entry.m_string.equals(entry.m_sentString);
+        }
+    }
+
+    /**
+     * Takes the value put at an entry as the one to send. Must hold both
+     * locks.
+     */
+    private void take(Entry entry) {
+        switch (entry.m_type) {
+            case kNumber:
+                entry.m_sentNumber = entry.m_number;
+                break;
+            case kBoolean:
+                entry.m_sentBoolean = entry.m_boolean;
+                break;
+            default:
+                entry.m_sentString = entry.m_string;
+                break;
+        }
+        entry.m_sentType = entry.m_type;
+        entry.m_sent = true;
+        entry.m_sending = true;
+    }
+
+    /**
+     * Sends the value taken from an entry. Must hold the send lock, but not
+     * the publisher's own lock.
+     */
+    private void send(Entry entry) {
+        switch (entry.m_sentType) {
+            case kNumber:
+                m_table.putNumber(entry.m_key, entry.m_sentNumber);
+                break;
+            case kBoolean:
+                m_table.putBoolean(entry.m_key, entry.m_sentBoolean);
+                break;
+            default:
+                m_table.putString(entry.m_key, entry.m_sentString);
+                break;
+        }
+    }
+
+    /**
+     * The thread that sends buffered values. This should not be called
+     * directly.
+     */
+    public void run() {
+        Thread self = Thread.currentThread();
+        while (true) {
+            synchronized (this) {
+                if (m_thread != self) {
+                    return;
+                }
+                try {
+                    wait(m_periodMillis);
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+                if (m_thread != self) {
+                    return;
+                }
+            }
+            flush();
+        }
+    }
+}
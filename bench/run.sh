@@ -0,0 +1,29 @@
+#!/bin/sh
+# Builds the benchmarks and runs them under JMH. Needs a Java 8 or newer JDK.
+#
+# The benchmarks run on a desktop JVM, so the stand-ins in benchstubs/ are put
+# on the classpath ahead of WPILib in place of the classes that call into the
+# FPGA and the FRC network library.
+#
+# Usage: bench/run.sh [CSV output file] [benchmark name regexp]
+# Pass - as the CSV file to only print the results.
+
+set -e
+cd "$(dirname "$0")/.."
+
+BUILD=bench/build
+JMH=lib/jmh-core-1.37.jar:lib/jopt-simple-5.0.4.jar:lib/commons-math3-3.6.1.jar
+WPILIB=WPILib/lib/squawk.jar:WPILib/lib/networktables-crio.jar
+JAVAC="javac -encoding UTF-8 -nowarn -source 8 -target 8"
+
+rm -rf "$BUILD"
+mkdir -p "$BUILD/main" "$BUILD/stubs" "$BUILD/bench"
+
+$JAVAC -d "$BUILD/main" -cp "$WPILIB" $(find src WPILib/src -name '*.java')
+$JAVAC -d "$BUILD/stubs" -cp "$BUILD/main:$WPILIB" $(find benchstubs -name '*.java')
+$JAVAC -d "$BUILD/bench" -cp "$BUILD/stubs:$BUILD/main:$WPILIB:$JMH" \
+    -processorpath "$JMH:lib/jmh-generator-annprocess-1.37.jar" \
+    $(find bench/src -name '*.java')
+
+exec java -cp "$BUILD/bench:$BUILD/stubs:$BUILD/main:$WPILIB:$JMH" \
+    org.team3309.friarlib.bench.BenchmarkRunner "$@"
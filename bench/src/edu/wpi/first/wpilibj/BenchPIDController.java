@@ -0,0 +1,29 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+package edu.wpi.first.wpilibj;
+
+import org.team3309.friarlib.bench.wpilib.BenchPID;
+
+/**
+ * The real PIDController with calculate() made public so the benchmark can
+ * drive the control loop itself. It lives in the WPILib package because
+ * calculate() is package-private. The period is so long that the
+ * controller's own timer only runs it once, when it is created.
+ */
+public class BenchPIDController extends PIDController implements BenchPID {
+
+    private static final double kPeriod = 1000;
+
+    public BenchPIDController(double Kp, double Ki, double Kd,
+                              PIDSource source, PIDOutput output) {
+        super(Kp, Ki, Kd, source, output, kPeriod);
+    }
+
+    public void calculate() {
+        super.calculate();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2013, FRC Team 3309 All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer. Redistributions in binary
+ * form must reproduce the above copyright notice, this list of conditions and
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.team3309.friarlib.bench;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the FriarLib benchmarks under JMH on a desktop JVM, with the GC
+ * profiler so every result also reports gc.alloc.rate.norm, the bytes
+ * allocated per operation. Each benchmark runs in one fork with 5 warmup and
+ * 10 measurement iterations of 100ms, and reports the average time per
+ * operation in nanoseconds.
+ * <p/>
+ * bench/run.sh builds the benchmarks and runs them. In Eclipse, bench/ is a
+ * project of its own, FriarLib-bench, set up the same way: it needs a Java 8
+ * JRE because JMH does, it runs the JMH annotation processor that generates
+ * the code JMH runs, and it puts the desktop stand-ins in benchstubs/ ahead of
+ * WPILib, because the real classes call into the FPGA and the FRC network
+ * library.
+ * <p/>
+ * Usage: BenchmarkRunner [CSV output file] [benchmark name regexp]
+ * <p/>
+ * Any of JMH's own options can be used instead by running org.openjdk.jmh.Main
+ * with the same classpath, for example with -prof gc.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(args.length > 1 ? args[1] : BenchmarkRunner.class.getPackage().getName() + ".")
+                .mode(Mode.AverageTime)
+                .timeUnit(TimeUnit.NANOSECONDS)
+                .warmupIterations(5)
+                .warmupTime(TimeValue.milliseconds(100))
+                .measurementIterations(10)
+                .measurementTime(TimeValue.milliseconds(100))
+                .forks(1)
+                .addProfiler(GCProfiler.class);
+        if (args.length > 0 && !args[0].equals("-")) {
+            options.resultFormat(ResultFormatType.CSV).result(args[0]);
+        }
+        new Runner(options.build()).run();
+    }
+
+}
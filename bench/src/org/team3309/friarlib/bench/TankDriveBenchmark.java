@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2013, FRC Team 3309 All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer. Redistributions in binary
+ * form must reproduce the above copyright notice, this list of conditions and
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.team3309.friarlib.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.team3309.friarlib.TankDrive;
+import org.team3309.friarlib.bench.sim.MemoryGyro;
+import org.team3309.friarlib.bench.sim.MemorySpeedController;
+import org.team3309.friarlib.loop.LoopEngine;
+
+import edu.wpi.first.wpilibj.SpeedController;
+
+/**
+ * Measures TankDrive with in-memory motors and gyro, both driven directly and
+ * through a LoopEngine tick. Each operation is one drive update with a
+ * different throttle and turn.
+ */
+public class TankDriveBenchmark {
+
+    private static final int kInputs = 256;
+
+    private static TankDrive build(MemoryGyro gyro) {
+        SpeedController[] left = new SpeedController[]{
+                new MemorySpeedController(), new MemorySpeedController()};
+        SpeedController[] right = new SpeedController[]{
+                new MemorySpeedController(), new MemorySpeedController()};
+        return new TankDrive.Builder()
+                .left(left)
+                .right(right)
+                .gyro(gyro)
+                .gyroConfig(new TankDrive.GyroConfig())
+                .build();
+    }
+
+    private static double[] inputs(double scale) {
+        double[] inputs = new double[kInputs];
+        for (int i = 0; i < kInputs; i++) {
+            inputs[i] = Math.sin(i * scale);
+        }
+        return inputs;
+    }
+
+    @State(Scope.Thread)
+    public static class Drive {
+
+        @Param({"true", "false"})
+        public boolean gyroEnabled;
+
+        TankDrive drive;
+        MemoryGyro gyro;
+        double[] throttle;
+        double[] turn;
+        int next = 0;
+
+        @Setup
+        public void setup() {
+            gyro = new MemoryGyro();
+            drive = build(gyro);
+            if (!gyroEnabled)
+                drive.disableGyro();
+            throttle = inputs(.05);
+            turn = inputs(.11);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Tick {
+
+        TankDrive drive;
+        MemoryGyro gyro;
+        LoopEngine engine;
+        double[] throttle;
+        double[] turn;
+        int next = 0;
+
+        @Setup
+        public void setup() {
+            gyro = new MemoryGyro();
+            drive = build(gyro);
+            engine = new LoopEngine(.01);
+            engine.register(drive);
+            throttle = inputs(.05);
+            turn = inputs(.11);
+        }
+    }
+
+    @Benchmark
+    public double drive(Drive state) {
+        int j = state.next++ & (kInputs - 1);
+        state.gyro.setAngularVelocity(state.turn[j] * 100);
+        state.drive.drive(state.throttle[j], state.turn[j]);
+        return state.gyro.getAngularVelocity();
+    }
+
+    @Benchmark
+    public double tick(Tick state) {
+        int j = state.next++ & (kInputs - 1);
+        state.gyro.setAngularVelocity(state.turn[j] * 100);
+        state.drive.command(state.throttle[j], state.turn[j]);
+        state.engine.tick();
+        return state.gyro.getAngularVelocity();
+    }
+
+}
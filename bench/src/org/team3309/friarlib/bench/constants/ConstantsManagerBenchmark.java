@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2013, FRC Team 3309 All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer. Redistributions in binary
+ * form must reproduce the above copyright notice, this list of conditions and
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.team3309.friarlib.bench.constants;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.team3309.friarlib.constants.Constant;
+import org.team3309.friarlib.constants.ConstantsManager;
+
+/**
+ * Measures ConstantsManager.loadConstants on a file of 50 constants. Each
+ * operation is one load of the whole file, either with no values changed
+ * since the last load or with every value changed.
+ */
+@State(Scope.Thread)
+public class ConstantsManagerBenchmark {
+
+    private static final int kConstants = 50;
+
+    @Param({"none", "all"})
+    public String changed;
+
+    private byte[][] files;
+    private int next = 0;
+
+    private static byte[] file(String prefix, int version) {
+        StringBuffer s = new StringBuffer();
+        s.append("# generated constants\n");
+        for (int i = 0; i < kConstants; i++) {
+            s.append(prefix).append(i).append(" = ");
+            if (i % 10 == 0)
+                s.append(version).append(", ").append(i).append(", 3.5");
+            else if (i % 10 == 1)
+                s.append(version % 2 == 0);
+            else
+                s.append(i * .01 + version);
+            s.append('\n');
+        }
+        return s.toString().getBytes();
+    }
+
+    @Setup
+    public void setup() {
+        boolean all = changed.equals("all");
+        String prefix = all ? "bench.changed." : "bench.unchanged.";
+        for (int i = 0; i < kConstants; i++) {
+            new Constant(prefix + i, 0.0);
+        }
+        files = new byte[][]{file(prefix, 0), file(prefix, all ? 1 : 0)};
+    }
+
+    @Benchmark
+    public int loadConstants() throws IOException {
+        ConstantsManager.loadConstants(new ByteArrayInputStream(files[next++ & 1]));
+        return ConstantsManager.getLastReloadChangeCount();
+    }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2013, FRC Team 3309 All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer. Redistributions in binary
+ * form must reproduce the above copyright notice, this list of conditions and
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.team3309.friarlib.bench.filter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.team3309.friarlib.filter.Filter;
+import org.team3309.friarlib.filter.FilterChain;
+import org.team3309.friarlib.filter.IirFilter;
+import org.team3309.friarlib.filter.MaxChangeFilter;
+import org.team3309.friarlib.filter.MovingAverageFilter;
+
+/**
+ * Measures Filter.update for every Filter implementation. Each operation is
+ * one filtered sample. The chain is MaxChange(0.05), MovingAverage(50) and
+ * Iir(0.5).
+ */
+@State(Scope.Thread)
+public class FilterBenchmark {
+
+    private static final int kInputs = 256;
+
+    @Param({"IirFilter", "MaxChangeFilter", "FilterChain"})
+    public String filter;
+
+    private Filter instance;
+    private double[] input;
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        if (filter.equals("IirFilter")) {
+            instance = new IirFilter(.5);
+        } else if (filter.equals("MaxChangeFilter")) {
+            instance = new MaxChangeFilter(.05);
+        } else {
+            instance = new FilterChain(new Filter[]{new MaxChangeFilter(.05),
+                    new MovingAverageFilter(50), new IirFilter(.5)});
+        }
+        input = new double[kInputs];
+        for (int i = 0; i < kInputs; i++) {
+            input[i] = Math.sin(i * .1) + ((i * 7919) % 13) * .01;
+        }
+    }
+
+    @Benchmark
+    public double update() {
+        return instance.update(input[next++ & (kInputs - 1)]);
+    }
+
+}
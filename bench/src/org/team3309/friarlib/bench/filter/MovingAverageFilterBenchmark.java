@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2013, FRC Team 3309 All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer. Redistributions in binary
+ * form must reproduce the above copyright notice, this list of conditions and
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.team3309.friarlib.bench.filter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.team3309.friarlib.filter.MovingAverageFilter;
+
+/**
+ * Measures MovingAverageFilter with the window sizes we use on analog
+ * sensors, both one sample at a time and in blocks. Each operation is one
+ * filtered sample.
+ */
+@State(Scope.Thread)
+public class MovingAverageFilterBenchmark {
+
+    private static final int kBlock = 256;
+
+    @Param({"10", "50", "200"})
+    public int window;
+
+    private MovingAverageFilter filter;
+    private double[] input;
+    private double[] buffer;
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        filter = new MovingAverageFilter(window);
+        input = new double[kBlock];
+        for (int i = 0; i < kBlock; i++) {
+            input[i] = 2.5 + Math.sin(i * .1) + ((i * 7919) % 13) * .01;
+        }
+        buffer = new double[kBlock];
+    }
+
+    @Benchmark
+    public double update() {
+        return filter.update(input[next++ & (kBlock - 1)]);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(kBlock)
+    public double updateBlock() {
+        System.arraycopy(input, 0, buffer, 0, kBlock);
+        filter.update(buffer, 0, kBlock);
+        return buffer[kBlock - 1];
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2013, FRC Team 3309 All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer. Redistributions in binary
+ * form must reproduce the above copyright notice, this list of conditions and
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.team3309.friarlib.bench.motors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.team3309.friarlib.bench.sim.MemorySpeedController;
+import org.team3309.friarlib.motors.MultiSpeedController;
+
+import edu.wpi.first.wpilibj.SpeedController;
+
+/**
+ * Measures MultiSpeedController.set with in-memory motors. Each operation is
+ * one set() call.
+ */
+@State(Scope.Thread)
+public class MultiSpeedControllerBenchmark {
+
+    @Param({"2", "4"})
+    public int motors;
+
+    private MultiSpeedController controller;
+    private SpeedController first;
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        SpeedController[] array = new SpeedController[motors];
+        for (int i = 0; i < motors; i++) {
+            array[i] = new MemorySpeedController();
+        }
+        first = array[0];
+        controller = new MultiSpeedController.Builder()
+                .motors(array)
+                .reverseEveryOther()
+                .build();
+    }
+
+    @Benchmark
+    public double set() {
+        controller.set((next++ & 255) / 255.0);
+        return first.get();
+    }
+
+}
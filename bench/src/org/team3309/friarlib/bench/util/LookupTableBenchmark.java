@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2013, FRC Team 3309 All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer. Redistributions in binary
+ * form must reproduce the above copyright notice, this list of conditions and
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.team3309.friarlib.bench.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.team3309.friarlib.util.LookupTable;
+
+/**
+ * Compares LookupTable.get against the old Hashtable-backed implementation at
+ * several table sizes. Each operation is one lookup at a point between two
+ * keys, cycling through a fixed set of query points.
+ */
+public class LookupTableBenchmark {
+
+    private static final int kQueries = 1024;
+
+    private static double[] keys(int points) {
+        double[] keys = new double[points];
+        for (int i = 0; i < points; i++) {
+            keys[i] = i;
+        }
+        return keys;
+    }
+
+    private static double[] values(int points) {
+        double[] values = new double[points];
+        for (int i = 0; i < points; i++) {
+            values[i] = 3000 + 10 * Math.sqrt(i);
+        }
+        return values;
+    }
+
+    private static double[] queries(int points) {
+        double[] queries = new double[kQueries];
+        for (int i = 0; i < kQueries; i++) {
+            queries[i] = ((i * 7919L) % points) + .37;
+        }
+        return queries;
+    }
+
+    @State(Scope.Thread)
+    public static class Current {
+
+        @Param({"10", "1000", "100000"})
+        public int points;
+
+        @Param({"linear", "monotoneCubic", "akima"})
+        public String interpolator;
+
+        LookupTable table;
+        double[] queries;
+        int next = 0;
+
+        @Setup
+        public void setup() {
+            LookupTable.Interpolator i = interpolator.equals("linear") ? LookupTable.Interpolator.kLinear
+                    : interpolator.equals("akima") ? LookupTable.Interpolator.kAkima
+                    : LookupTable.Interpolator.kMonotoneCubic;
+            table = new LookupTable(i, points);
+            table.putAll(keys(points), values(points));
+            queries = queries(points);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Legacy {
+
+        @Param({"10", "1000", "100000"})
+        public int points;
+
+        LegacyLookupTable table;
+        double[] queries;
+        int next = 0;
+
+        @Setup
+        public void setup() {
+            table = new LegacyLookupTable(LegacyLookupTable.Interpolator.kLinear);
+            table.putAll(keys(points), values(points));
+            queries = queries(points);
+        }
+    }
+
+    @Benchmark
+    public double get(Current state) {
+        return state.table.get(state.queries[state.next++ & (kQueries - 1)]);
+    }
+
+    @Benchmark
+    public double legacyGet(Legacy state) {
+        return state.table.get(state.queries[state.next++ & (kQueries - 1)]);
+    }
+
+}
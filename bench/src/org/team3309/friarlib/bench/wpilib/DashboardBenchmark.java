@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2013, FRC Team 3309 All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer. Redistributions in binary
+ * form must reproduce the above copyright notice, this list of conditions and
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.team3309.friarlib.bench.wpilib;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import edu.wpi.first.wpilibj.Dashboard;
+
+/**
+ * Measures packing and committing a Dashboard packet. Each operation is one
+ * packet: a cluster holding a few scalars, a string and an array of doubles,
+ * followed by commit(). gc.alloc.rate.norm shows whether packing allocates.
+ */
+@State(Scope.Thread)
+public class DashboardBenchmark {
+
+    @Param({"10", "100"})
+    public int elements;
+
+    private Dashboard dashboard;
+    private int next = 0;
+
+    private static class BenchDashboard extends Dashboard {
+
+        BenchDashboard() {
+            super(new Object());
+        }
+    }
+
+    @Setup
+    public void setup() {
+        dashboard = new BenchDashboard();
+    }
+
+    @Benchmark
+    public int commit() {
+        int i = next++;
+        dashboard.addCluster();
+        dashboard.addInt(i);
+        dashboard.addBoolean((i & 1) == 0);
+        dashboard.addString("status");
+        dashboard.addArray();
+        for (int j = 0; j < elements; j++) {
+            dashboard.addDouble(j);
+        }
+        dashboard.finalizeArray();
+        dashboard.finalizeCluster();
+        return dashboard.commit();
+    }
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2013, FRC Team 3309 All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer. Redistributions in binary
+ * form must reproduce the above copyright notice, this list of conditions and
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.team3309.friarlib.bench.wpilib;
+
+import edu.wpi.first.wpilibj.PIDOutput;
+import edu.wpi.first.wpilibj.PIDSource;
+
+/**
+ * The calculation and accessors of WPILib's PIDController before it used
+ * configuration snapshots, where the control loop and every getter and
+ * setter share the object's monitor. Kept only so the benchmark can compare
+ * the two.
+ */
+public class LegacyPIDController implements BenchPID {
+
+    private double m_P;
+    private double m_I;
+    private double m_D;
+    private double m_F;
+    private double m_maximumOutput = 1.0;
+    private double m_minimumOutput = -1.0;
+    private double m_maximumInput = 0.0;
+    private double m_minimumInput = 0.0;
+    private boolean m_continuous = false;
+    private boolean m_enabled = false;
+    private double m_prevError = 0.0;
+    private double m_totalError = 0.0;
+    private double m_tolerance = 0.0;
+    private double m_setpoint = 0.0;
+    private double m_error = 0.0;
+    private double m_result = 0.0;
+    private PIDSource m_pidInput;
+    private PIDOutput m_pidOutput;
+
+    public LegacyPIDController(double Kp, double Ki, double Kd,
+                               PIDSource source, PIDOutput output) {
+        m_P = Kp;
+        m_I = Ki;
+        m_D = Kd;
+        m_pidInput = source;
+        m_pidOutput = output;
+    }
+
+    public void calculate() {
+        boolean enabled;
+        PIDSource pidInput;
+
+        synchronized (this) {
+            enabled = m_enabled;
+            pidInput = m_pidInput;
+        }
+
+        if (enabled) {
+            double input = pidInput.pidGet();
+            double result;
+            PIDOutput pidOutput;
+
+            synchronized (this) {
+                m_error = m_setpoint - input;
+                if (m_continuous) {
+                    if (Math.abs(m_error)
+                            > (m_maximumInput - m_minimumInput) / 2) {
+                        if (m_error > 0) {
+                            m_error = m_error - m_maximumInput + m_minimumInput;
+                        } else {
+                            m_error = m_error
+                                    + m_maximumInput - m_minimumInput;
+                        }
+                    }
+                }
+
+                if (m_I != 0) {
+                    double potentialIGain = (m_totalError + m_error) * m_I;
+                    if (potentialIGain < m_maximumOutput) {
+                        if (potentialIGain > m_minimumOutput) {
+                            m_totalError += m_error;
+                        } else {
+                            m_totalError = m_minimumOutput / m_I;
+                        }
+                    } else {
+                        m_totalError = m_maximumOutput / m_I;
+                    }
+                }
+
+                m_result = m_P * m_error + m_I * m_totalError + m_D * (m_error - m_prevError) + m_setpoint * m_F;
+                m_prevError = m_error;
+
+                if (m_result > m_maximumOutput) {
+                    m_result = m_maximumOutput;
+                } else if (m_result < m_minimumOutput) {
+                    m_result = m_minimumOutput;
+                }
+                pidOutput = m_pidOutput;
+                result = m_result;
+            }
+
+            pidOutput.pidWrite(result);
+        }
+    }
+
+    public synchronized void setPID(double p, double i, double d) {
+        m_P = p;
+        m_I = i;
+        m_D = d;
+    }
+
+    public synchronized double get() {
+        return m_result;
+    }
+
+    public synchronized void setSetpoint(double setpoint) {
+        m_setpoint = setpoint;
+    }
+
+    public synchronized double getSetpoint() {
+        return m_setpoint;
+    }
+
+    public synchronized double getError() {
+        return getSetpoint() - m_pidInput.pidGet();
+    }
+
+    public synchronized void setAbsoluteTolerance(double absvalue) {
+        m_tolerance = absvalue;
+    }
+
+    public synchronized boolean onTarget() {
+        return Math.abs(getError()) < m_tolerance;
+    }
+
+    public synchronized void enable() {
+        m_enabled = true;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2013, FRC Team 3309 All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer. Redistributions in binary
+ * form must reproduce the above copyright notice, this list of conditions and
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.team3309.friarlib.bench.wpilib;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import edu.wpi.first.wpilibj.BenchPIDController;
+import edu.wpi.first.wpilibj.PIDOutput;
+import edu.wpi.first.wpilibj.PIDSource;
+
+/**
+ * Measures the PID control loop while other threads poll and change the
+ * controller, the way SmartDashboard, LiveWindow and commands do. Each
+ * operation is one calculate() on the benchmark thread. The background
+ * threads call getError(), get() and onTarget() in a tight loop, and one of
+ * them also changes the setpoint and gains.
+ * <p/>
+ * The current version is WPILib's own PIDController, run on the desktop with
+ * the UsageReporting stand-in from benchstubs/. The monitor version is
+ * {@link LegacyPIDController}, a copy of the controller from before it used
+ * configuration snapshots.
+ */
+@State(Scope.Thread)
+public class PIDControllerBenchmark {
+
+    @Param({"monitor", "current"})
+    public String version;
+
+    @Param({"0", "1", "3"})
+    public int pollers;
+
+    private BenchPID controller;
+    private Thread[] threads;
+    private volatile boolean running;
+    private volatile double input;
+    private volatile double sink;
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        PIDSource source = new PIDSource() {
+            public double pidGet() {
+                return input;
+            }
+        };
+        PIDOutput output = new PIDOutput() {
+            public void pidWrite(double output) {
+                sink = output;
+            }
+        };
+        controller = version.equals("monitor")
+                ? (BenchPID) new LegacyPIDController(.1, .001, .01, source, output)
+                : new BenchPIDController(.1, .001, .01, source, output);
+        controller.setAbsoluteTolerance(.5);
+        controller.setSetpoint(10);
+        controller.enable();
+
+        running = true;
+        threads = new Thread[pollers];
+        for (int i = 0; i < pollers; i++) {
+            final boolean writer = i == 0;
+            threads[i] = new Thread() {
+                public void run() {
+                    double total = 0;
+                    int n = 0;
+                    while (running) {
+                        total += controller.getError() + controller.get();
+                        if (controller.onTarget())
+                            total++;
+                        if (writer && (++n & 255) == 0) {
+                            controller.setSetpoint(10 + (n & 1023) * .001);
+                            controller.setPID(.1, .001, .01);
+                        }
+                    }
+                    sink = total;
+                }
+            };
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+    }
+
+    @Benchmark
+    public double calculate() {
+        input = (next++ & 1023) * .01;
+        controller.calculate();
+        return sink;
+    }
+
+    @TearDown
+    public void teardown() throws InterruptedException {
+        if (controller instanceof BenchPIDController) {
+            ((BenchPIDController) controller).free();
+        }
+        running = false;
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+        }
+    }
+
+}
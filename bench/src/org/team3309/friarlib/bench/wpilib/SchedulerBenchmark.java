@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2013, FRC Team 3309 All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer. Redistributions in binary
+ * form must reproduce the above copyright notice, this list of conditions and
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.team3309.friarlib.bench.wpilib;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import edu.wpi.first.wpilibj.command.Command;
+import edu.wpi.first.wpilibj.command.Scheduler;
+import edu.wpi.first.wpilibj.command.Subsystem;
+
+/**
+ * Measures Scheduler.run() with a number of commands running, each requiring
+ * its own subsystem, and with as many idle subsystems that have no default
+ * command. Each operation is one call to run(). The parallel benchmark gives
+ * every command some arithmetic to do and compares one thread with several,
+ * and the profiling parameter shows what turning on profiling costs.
+ */
+public class SchedulerBenchmark {
+
+    private static final int kHeavyCommands = 8;
+    private static final int kHeavyWork = 5000;
+
+    /**
+     * Subsystems can never be unregistered, so every benchmark shares them
+     */
+    private static Subsystem[] subsystems = new Subsystem[0];
+
+    private static synchronized Subsystem[] subsystems(int count) {
+        if (subsystems.length < count) {
+            Subsystem[] grown = new Subsystem[count];
+            System.arraycopy(subsystems, 0, grown, 0, subsystems.length);
+            for (int i = subsystems.length; i < count; i++) {
+                grown[i] = new BenchSubsystem();
+            }
+            subsystems = grown;
+        }
+        return subsystems;
+    }
+
+    private static class BenchSubsystem extends Subsystem {
+
+        protected void initDefaultCommand() {
+        }
+    }
+
+    private static class BenchCommand extends Command {
+
+        private final int work;
+        int executions = 0;
+        double result = 0;
+
+        BenchCommand(Subsystem subsystem, int work) {
+            this.work = work;
+            requires(subsystem);
+            setRunWhenDisabled(true);
+        }
+
+        protected void initialize() {
+        }
+
+        protected void execute() {
+            executions++;
+            double x = result;
+            for (int i = 0; i < work; i++) {
+                x = x * .999 + i;
+            }
+            result = x;
+        }
+
+        protected boolean isFinished() {
+            return false;
+        }
+
+        protected void end() {
+        }
+
+        protected void interrupted() {
+        }
+    }
+
+    /**
+     * Start commands on the Scheduler and configure it
+     */
+    private static BenchCommand[] start(int count, int work, int threads, boolean profiling) {
+        Subsystem[] all = subsystems(count * 2);
+        BenchCommand[] commands = new BenchCommand[count];
+        for (int i = 0; i < count; i++) {
+            commands[i] = new BenchCommand(all[i], work);
+            commands[i].start();
+        }
+        Scheduler.getInstance().setParallelism(threads);
+        Scheduler.getInstance().setProfilingEnabled(profiling);
+        Scheduler.getInstance().run();
+        return commands;
+    }
+
+    private static void stop() {
+        Scheduler.getInstance().removeAll();
+        Scheduler.getInstance().setParallelism(1);
+        Scheduler.getInstance().setProfilingEnabled(false);
+    }
+
+    @State(Scope.Thread)
+    public static class Light {
+
+        @Param({"10", "100", "1000"})
+        public int commands;
+
+        @Param({"false", "true"})
+        public boolean profiling;
+
+        BenchCommand last;
+
+        @Setup
+        public void setup() {
+            BenchCommand[] started = start(commands, 0, 1, profiling);
+            last = started[started.length - 1];
+        }
+
+        @TearDown
+        public void teardown() {
+            stop();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Heavy {
+
+        @Param({"1", "2", "4"})
+        public int threads;
+
+        BenchCommand last;
+
+        @Setup
+        public void setup() {
+            BenchCommand[] started = start(kHeavyCommands, kHeavyWork, threads, false);
+            last = started[started.length - 1];
+        }
+
+        @TearDown
+        public void teardown() {
+            stop();
+        }
+    }
+
+    @Benchmark
+    public int run(Light state) {
+        Scheduler.getInstance().run();
+        return state.last.executions;
+    }
+
+    @Benchmark
+    public int runParallel(Heavy state) {
+        Scheduler.getInstance().run();
+        return state.last.executions;
+    }
+
+}
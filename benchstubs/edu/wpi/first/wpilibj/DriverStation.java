@@ -0,0 +1,65 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+package edu.wpi.first.wpilibj;
+
+/**
+ * Desktop stand-in for WPILib's DriverStation, used to run the benchmarks
+ * and tests. The real one starts a thread that talks to the FRC network
+ * library; this one is always disabled, counts dashboard updates, and has
+ * joystick buttons that are set with {@link #setStickButtons(int, int)}.
+ */
+public class DriverStation {
+
+    public static final int USER_STATUS_DATA_SIZE = 984;
+    public static final int kJoystickPorts = 4;
+    public static final int kJoystickAxes = 6;
+
+    private static final DriverStation instance = new DriverStation();
+    private final Object m_semaphore = new Object();
+    private int m_updateNumber = 0;
+    private final InputFrame m_frame = new InputFrame();
+
+    public static DriverStation getInstance() {
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return false;
+    }
+
+    public boolean isDisabled() {
+        return true;
+    }
+
+    public InputFrame getInputFrame() {
+        return m_frame;
+    }
+
+    public int getStickButtons(int stick) {
+        return m_frame.getStickButtons(stick);
+    }
+
+    /**
+     * Sets the buttons held on a joystick, as if a packet had just arrived.
+     *
+     * @param stick   the joystick port, 1 through 4
+     * @param buttons the buttons that are held, bit (n - 1) for button n
+     */
+    public void setStickButtons(int stick, int buttons) {
+        m_frame.setStickButtons(stick, buttons);
+    }
+
+    public Object getStatusDataMonitor() {
+        return m_semaphore;
+    }
+
+    void incrementUpdateNumber() {
+        synchronized (m_semaphore) {
+            m_updateNumber++;
+        }
+    }
+}
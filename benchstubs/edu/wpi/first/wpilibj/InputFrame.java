@@ -0,0 +1,45 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+package edu.wpi.first.wpilibj;
+
+/**
+ * Desktop stand-in for WPILib's InputFrame, used to run the benchmarks and
+ * tests. The real one is filled in from a control packet; this one only holds
+ * joystick buttons, which are set through {@link DriverStation}.
+ */
+public final class InputFrame {
+
+    private final int[] m_buttons = new int[DriverStation.kJoystickPorts];
+    private int m_version;
+
+    InputFrame() {
+    }
+
+    void setStickButtons(int stick, int buttons) {
+        m_version += 2;
+        m_buttons[stick - 1] = buttons;
+    }
+
+    public int getVersion() {
+        return m_version;
+    }
+
+    public double getStickAxis(int stick, int axis) {
+        return 0.0;
+    }
+
+    public int getStickButtons(int stick) {
+        if (stick < 1 || stick > DriverStation.kJoystickPorts) {
+            return 0;
+        }
+        return m_buttons[stick - 1];
+    }
+
+    public boolean getStickButton(int stick, int button) {
+        return ((0x1 << (button - 1)) & getStickButtons(stick)) != 0;
+    }
+}
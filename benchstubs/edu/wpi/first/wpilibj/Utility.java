@@ -0,0 +1,23 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+package edu.wpi.first.wpilibj;
+
+/**
+ * Desktop stand-in for WPILib's Utility, used to run the benchmarks and
+ * tests. The FPGA clock is replaced by System.nanoTime.
+ */
+public class Utility {
+
+    private static final long m_start = System.nanoTime();
+
+    public static long getFPGATime() {
+        return (System.nanoTime() - m_start) / 1000;
+    }
+
+    public static void sendErrorStreamToDriverStation(boolean enabled) {
+    }
+}
@@ -0,0 +1,24 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+package edu.wpi.first.wpilibj.communication;
+
+/**
+ * Desktop stand-in for WPILib's UsageReporting, used to run the benchmarks
+ * and tests. Reports are ignored. The resource constants are compiled into
+ * their callers, so only the methods are needed here.
+ */
+public class UsageReporting {
+
+    public static void report(int resource, int instanceNumber) {
+    }
+
+    public static void report(int resource, int instanceNumber, int context) {
+    }
+
+    public static void report(int resource, int instanceNumber, int context, String feature) {
+    }
+}
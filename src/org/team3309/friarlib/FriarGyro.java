@@ -48,6 +48,13 @@ public class FriarGyro {
         initGyro();
     }
 
+    /**
+     * Create a FriarGyro that is not connected to an analog channel. This is
+     * for subclasses that provide their own readings, like a simulated gyro.
+     */
+    protected FriarGyro() {
+    }
+
     /**
      * Initialize the gyro.
      * Calibrate the gyro by running for a number of samples and computing the center value for this
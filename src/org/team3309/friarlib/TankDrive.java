@@ -24,7 +24,12 @@
 package org.team3309.friarlib;
 
 import edu.wpi.first.wpilibj.*;
+import org.team3309.friarlib.constants.Constant;
+import org.team3309.friarlib.constants.ConstantsManager;
 import org.team3309.friarlib.exception.NotInitializedException;
+import org.team3309.friarlib.loop.LoopEngine;
+import org.team3309.friarlib.loop.Loopable;
+import org.team3309.friarlib.telemetry.TelemetryBuffer;
 
 /**
  * This class is a collection of advanced tank drive algorithms. The code in
@@ -36,10 +41,15 @@ import org.team3309.friarlib.exception.NotInitializedException;
  * matches, we didn't even notice that a motor wasn't running on one side,
  * because the gyro auto-corrected so that it would still drive straight despite
  * this setback.
+ * <p/>
+ * TankDrive can either be driven directly with {@link #drive(double, double)},
+ * or registered with a {@link LoopEngine} and commanded with
+ * {@link #command(double, double)}, in which case the gyro is sampled and the
+ * motors are written once per tick of the engine.
  *
  * @author Vinnie
  */
-public class TankDrive {
+public class TankDrive implements Loopable {
 
     /**
      * This holds the singleton instance of TankDrive
@@ -74,6 +84,33 @@ public class TankDrive {
     private FriarGyro gyro;
     private double skimGain = .25;
 
+    /**
+     * These hold the latest command from {@link #command(double, double)}.
+     * commandSeq is odd while a command is being written so that the loop
+     * thread never reads a throttle and turn from two different commands.
+     */
+    private volatile int commandSeq = 0;
+    private volatile double commandThrottle = 0;
+    private volatile double commandTurn = 0;
+
+    /**
+     * These hold the inputs sampled at the start of a tick and the outputs
+     * computed from them
+     */
+    private double sampledThrottle = 0;
+    private double sampledTurn = 0;
+    private double sampledOmega = 0;
+    private double leftOutput = 0;
+    private double rightOutput = 0;
+
+    /**
+     * The names of the fields in each telemetry record, in order
+     */
+    private static final String[] kTelemetryFields = {"throttle", "turn",
+            "omega", "left", "right"};
+    private TelemetryBuffer telemetry = null;
+    private final double[] telemetryRecord = new double[kTelemetryFields.length];
+
     /**
      * Get the singleton instance of TankDrive
      *
@@ -105,7 +142,10 @@ public class TankDrive {
     }
 
     /**
-     * This method commands the drivetrain to drive
+     * This method commands the drivetrain to drive. The gyro is read and the
+     * motors are written immediately, on the calling thread. If this TankDrive
+     * is registered with a {@link LoopEngine}, use
+     * {@link #command(double, double)} instead.
      *
      * @param throttle the forward speed of the drivetrain (-1,1)
      * @param turn     the turning speed of the drivetrain (-1,1) - this sets the
@@ -113,6 +153,60 @@ public class TankDrive {
      *                 of change
      */
     public void drive(double throttle, double turn) {
+        sampledThrottle = throttle;
+        sampledTurn = turn;
+        sampleGyro();
+        compute();
+        commit();
+    }
+
+    /**
+     * Set the throttle and turn that will be used on the next tick of the
+     * {@link LoopEngine} this TankDrive is registered with. This method does
+     * not touch any hardware, so it is safe to call from any thread.
+     *
+     * @param throttle the forward speed of the drivetrain (-1,1)
+     * @param turn     the turning speed of the drivetrain (-1,1)
+     */
+    public synchronized void command(double throttle, double turn) {
+        commandSeq++;
+        commandThrottle = throttle;
+        commandTurn = turn;
+        commandSeq++;
+    }
+
+    /**
+     * Read the latest command and the gyro. This is called by the
+     * {@link LoopEngine} at the start of every tick.
+     */
+    public void sample() {
+        int seq;
+        do {
+            seq = commandSeq;
+            sampledThrottle = commandThrottle;
+            sampledTurn = commandTurn;
+        } while ((seq & 1) != 0 || seq != commandSeq);
+        sampleGyro();
+    }
+
+    /**
+     * Read the angular velocity from the gyro if gyro feedback is enabled
+     */
+    private void sampleGyro() {
+        if (gyroEnabled) {
+            sampledOmega = gyro.getAngularVelocity();
+            gyroConfig.refresh();
+        }
+    }
+
+    /**
+     * Calculate the left and right outputs from the sampled inputs. This does
+     * not allocate any memory or touch any hardware.
+     */
+    public void compute() {
+        double throttle = sampledThrottle;
+        double turn = sampledTurn;
+
         if (gyroEnabled) {
             if (Math.abs(throttle) < .1 && Math.abs(turn) < .1) {
                 gyroKp = gyroConfig.kPStopped;
@@ -124,10 +218,9 @@ public class TankDrive {
                 gyroKp = gyroConfig.kPHighGear;
             }
 
-            double omega = gyro.getAngularVelocity();
             double desiredOmega = turn * gyroConfig.maxAngularRateOfChange;
 
-            turn = (omega - desiredOmega) * gyroKp;
+            turn = (sampledOmega - desiredOmega) * gyroKp;
         }
 
         double t_left = throttle + turn;
@@ -138,15 +231,45 @@ public class TankDrive {
 
         if (left > 1)
             left = 1;
-        else if (left < 1)
+        else if (left < -1)
             left = -1;
         if (right > 1)
             right = 1;
         else if (right < -1)
             right = -1;
 
-        setLeft(-left);
-        setRight(right);
+        leftOutput = -left;
+        rightOutput = right;
+    }
+
+    /**
+     * Write the computed outputs to the motors, and record them to telemetry
+     * if it is enabled
+     */
+    public void commit() {
+        setLeft(leftOutput);
+        setRight(rightOutput);
+
+        if (telemetry != null) {
+            telemetryRecord[0] = sampledThrottle;
+            telemetryRecord[1] = sampledTurn;
+            telemetryRecord[2] = sampledOmega;
+            telemetryRecord[3] = leftOutput;
+            telemetryRecord[4] = rightOutput;
+            telemetry.write(Utility.getFPGATime(), telemetryRecord);
+        }
+    }
+
+    /**
+     * Create a TelemetryBuffer with the fields TankDrive records: throttle,
+     * turn, omega, left and right. Pass it to
+     * {@link Builder#telemetry(TelemetryBuffer)}.
+     *
+     * @param capacity the number of records the buffer can hold
+     * @return a new TelemetryBuffer
+     */
+    public static TelemetryBuffer createTelemetryBuffer(int capacity) {
+        return new TelemetryBuffer(kTelemetryFields, capacity);
     }
 
     /**
@@ -299,7 +422,6 @@ public class TankDrive {
      */
     public void enableGyro() {
         gyroEnabled = true;
-        System.out.println("gyro enabled");
     }
 
     /**
@@ -307,7 +429,6 @@ public class TankDrive {
      */
     public void disableGyro() {
         gyroEnabled = false;
-        System.out.println("gyro disabled");
     }
 
     /**
@@ -605,6 +726,21 @@ public class TankDrive {
             return this;
         }
 
+        /**
+         * Record the inputs and outputs of every drive update to a
+         * TelemetryBuffer, timestamped with the FPGA time in microseconds
+         *
+         * @param telemetry a buffer from {@link TankDrive#createTelemetryBuffer(int)}
+         * @return
+         */
+        public Builder telemetry(TelemetryBuffer telemetry) {
+            if (telemetry.getFieldCount() != kTelemetryFields.length)
+                throw new IllegalArgumentException(
+                        "Use TankDrive.createTelemetryBuffer to create the telemetry buffer");
+            drive.telemetry = telemetry;
+            return this;
+        }
+
         public Builder gyroConfig(GyroConfig config) {
             drive.gyroConfig = config;
             return this;
@@ -653,6 +789,50 @@ public class TankDrive {
          */
         public double maxAngularRateOfChange = 720;
 
+        private Constant lowGearConstant = null;
+        private Constant stoppedConstant = null;
+        private Constant highGearConstant = null;
+        private Constant lowSpeedConstant = null;
+        private Constant maxAngularRateConstant = null;
+
+        /**
+         * Load these values from the constants file, so they can be tuned
+         * while the robot is running. The Constants are named with the given
+         * prefix followed by the field name, for example
+         * "drive.kPLowGear", and the current field values are used as the
+         * defaults. TankDrive copies the values into the fields once per
+         * drive update, all from the same
+         * {@link ConstantsManager.Snapshot}.
+         *
+         * @param prefix the prefix for the constant names
+         * @return this GyroConfig
+         */
+        public GyroConfig useConstants(String prefix) {
+            lowGearConstant = new Constant(prefix + "kPLowGear", kPLowGear);
+            stoppedConstant = new Constant(prefix + "kPStopped", kPStopped);
+            highGearConstant = new Constant(prefix + "kPHighGear", kPHighGear);
+            lowSpeedConstant = new Constant(prefix + "kPLowSpeed", kPLowSpeed);
+            maxAngularRateConstant = new Constant(prefix + "maxAngularRateOfChange",
+                    maxAngularRateOfChange);
+            refresh();
+            return this;
+        }
+
+        /**
+         * Copy the latest values from the constants, if this config is backed
+         * by constants
+         */
+        private void refresh() {
+            if (lowGearConstant == null)
+                return;
+            ConstantsManager.Snapshot snapshot = ConstantsManager.getSnapshot();
+            kPLowGear = lowGearConstant.getDouble(snapshot);
+            kPStopped = stoppedConstant.getDouble(snapshot);
+            kPHighGear = highGearConstant.getDouble(snapshot);
+            kPLowSpeed = lowSpeedConstant.getDouble(snapshot);
+            maxAngularRateOfChange = maxAngularRateConstant.getDouble(snapshot);
+        }
+
         /**
          * Returns a string representation of this GyroConfig. The String
          * contains all of the configuration parameters
@@ -721,4 +901,4 @@ public class TankDrive {
         }
     }
 
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -23,11 +23,16 @@
 
 package org.team3309.friarlib;
 
+import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.GenericHID;
+import edu.wpi.first.wpilibj.InputFrame;
 import edu.wpi.first.wpilibj.Joystick;
 
 /**
  * This class is an implementation of GenericHID for an Xbox 360 Controller.
+ * Each getter reads the latest packet from the driver station. To read both
+ * sticks from the same packet, get one {@link InputFrame} per loop from
+ * {@link DriverStation#getInputFrame()} and pass it to the getters that take one.
  * @author Vinnie
  */
 public class XboxController extends GenericHID{
@@ -126,27 +131,47 @@ public class XboxController extends GenericHID{
     }
 
     public double getLeftX() {
-        double val = mController.getRawAxis(A_LEFT_X);
+        return getLeftX(DriverStation.getInstance().getInputFrame());
+    }
+
+    public double getLeftX(InputFrame frame) {
+        double val = mController.getRawAxis(frame, A_LEFT_X);
         return scaleAxis(val);
     }
 
     public double getLeftY() {
-        double val = mController.getRawAxis(A_LEFT_Y);
+        return getLeftY(DriverStation.getInstance().getInputFrame());
+    }
+
+    public double getLeftY(InputFrame frame) {
+        double val = mController.getRawAxis(frame, A_LEFT_Y);
         return -scaleAxis(val);
     }
 
     public double getRightX() {
-        double val = mController.getRawAxis(A_RIGHT_X);
+        return getRightX(DriverStation.getInstance().getInputFrame());
+    }
+
+    public double getRightX(InputFrame frame) {
+        double val = mController.getRawAxis(frame, A_RIGHT_X);
         return scaleAxis(val);
     }
 
     public double getRightY() {
-        double val = mController.getRawAxis(A_RIGHT_Y);
+        return getRightY(DriverStation.getInstance().getInputFrame());
+    }
+
+    public double getRightY(InputFrame frame) {
+        double val = mController.getRawAxis(frame, A_RIGHT_Y);
         return -scaleAxis(val);
     }
 
     public double getRightTrigger() {
-        return -Math.abs(mController.getRawAxis(A_TRIGGER));
+        return getRightTrigger(DriverStation.getInstance().getInputFrame());
+    }
+
+    public double getRightTrigger(InputFrame frame) {
+        return -Math.abs(mController.getRawAxis(frame, A_TRIGGER));
     }
 
     public double getX(Hand hand) {
@@ -204,6 +229,14 @@ public class XboxController extends GenericHID{
         return mController.getRawButton(i);
     }
 
+    public double getRawAxis(InputFrame frame, int i) {
+        return mController.getRawAxis(frame, i);
+    }
+
+    public boolean getRawButton(InputFrame frame, int i) {
+        return mController.getRawButton(frame, i);
+    }
+
     private double scaleAxis(double val){
         if(Math.abs(val) < DEADBAND)
             return 0;
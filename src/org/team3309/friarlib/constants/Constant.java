@@ -23,76 +23,177 @@
 
 package org.team3309.friarlib.constants;
 
+/**
+ * A named value that can be loaded from the constants file. The value is not
+ * stored in the Constant itself. Each Constant is given a slot in the
+ * {@link ConstantsManager}, and reads go to the manager's current
+ * {@link ConstantsManager.Snapshot}, so a reload from another thread is always
+ * seen and every Constant switches to its new value at the same time.
+ * <p/>
+ * If a loop reads more than one Constant and needs them all to come from the
+ * same load, get the snapshot once with {@link ConstantsManager#getSnapshot()}
+ * and pass it to the getters.
+ * <p/>
+ * Reading a Constant is a volatile read of the current snapshot plus an array
+ * read, so it is cheap enough to do every loop and always sees the latest
+ * value. Use a {@link ConstantListener} to find out when a value changes.
+ */
 public class Constant {
 
     private String name;
 
-    private double doubleVal;
-
-    private double[] doubleList;
+    /**
+     * Assigned by the ConstantsManager when this Constant is created
+     */
+    int slot;
 
-    private boolean booleanVal;
+    private ConstantListener[] listeners = new ConstantListener[0];
 
-    private Constant(String name) {
+    private Constant(String name, double doubleVal, double[] listVal, boolean booleanVal) {
         if (name == null) {
             throw new NullPointerException("Constant name cannot be null");
         }
         this.name = name;
-        ConstantsManager.addConstant(this);
+        ConstantsManager.addConstant(this, doubleVal, listVal, booleanVal);
     }
 
     public Constant(String name, double defaultVal) {
-        this(name);
-        this.doubleVal = defaultVal;
+        this(name, defaultVal, null, false);
     }
 
     public Constant(String name, double[] defaultList) {
-        this(name);
-        this.doubleList = defaultList;
+        this(name, 0, defaultList, false);
     }
 
     public Constant(String name, boolean defaultVal) {
-        this(name);
-        this.booleanVal = defaultVal;
+        this(name, 0, null, defaultVal);
     }
 
     public String getName() {
         return name;
     }
 
+    /**
+     * Get the index of this Constant in the {@link ConstantsManager.Snapshot}
+     * arrays. The slot never changes.
+     *
+     * @return the slot
+     */
+    public int getSlot() {
+        return slot;
+    }
+
     public double getDouble() {
-        return doubleVal;
+        return ConstantsManager.current.doubles[slot];
     }
 
     public double[] getList() {
-        return doubleList;
+        return ConstantsManager.current.lists[slot];
     }
 
     public boolean getBoolean() {
-        return booleanVal;
+        return ConstantsManager.current.booleans[slot];
     }
 
     public int getInt() {
         return (int) getDouble();
     }
 
+    /**
+     * Get the value of this Constant from a specific snapshot
+     *
+     * @param snapshot a snapshot taken after this Constant was created
+     * @return the value in that snapshot
+     */
+    public double getDouble(ConstantsManager.Snapshot snapshot) {
+        return snapshot.doubles[slot];
+    }
+
+    /**
+     * Get the value of this Constant from a specific snapshot
+     *
+     * @param snapshot a snapshot taken after this Constant was created
+     * @return the value in that snapshot
+     */
+    public double[] getList(ConstantsManager.Snapshot snapshot) {
+        return snapshot.lists[slot];
+    }
+
+    /**
+     * Get the value of this Constant from a specific snapshot
+     *
+     * @param snapshot a snapshot taken after this Constant was created
+     * @return the value in that snapshot
+     */
+    public boolean getBoolean(ConstantsManager.Snapshot snapshot) {
+        return snapshot.booleans[slot];
+    }
+
+    /**
+     * Add a listener that is called when the value of this Constant changes.
+     * Listeners are called on the ConstantsManager's notification thread.
+     *
+     * @param listener the listener to add
+     */
+    public synchronized void addListener(ConstantListener listener) {
+        ConstantListener[] updated = new ConstantListener[listeners.length + 1];
+        System.arraycopy(listeners, 0, updated, 0, listeners.length);
+        updated[listeners.length] = listener;
+        listeners = updated;
+        ConstantsManager.listenerAdded();
+    }
+
+    /**
+     * Remove a listener that was added with
+     * {@link #addListener(ConstantListener)}
+     *
+     * @param listener the listener to remove
+     */
+    public synchronized void removeListener(ConstantListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                ConstantListener[] updated = new ConstantListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, updated, 0, i);
+                System.arraycopy(listeners, i + 1, updated, i, listeners.length - i - 1);
+                listeners = updated;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Call every listener. This is called by the ConstantsManager's
+     * notification thread.
+     */
+    void fireChanged() {
+        ConstantListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            try {
+                current[i].constantChanged(this);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
     public void set(double val) {
-        this.doubleVal = val;
+        ConstantsManager.set(slot, new Double(val));
     }
 
     public void set(double[] list) {
-        this.doubleList = list;
+        ConstantsManager.set(slot, list);
     }
 
     public void set(boolean val) {
-        this.booleanVal = val;
+        ConstantsManager.set(slot, val ? Boolean.TRUE : Boolean.FALSE);
     }
 
     @Override
     public String toString() {
         String s = "Constant: " + getName() + " = ";
+        double[] doubleList = getList();
         if (doubleList == null) {
-            s += doubleVal;
+            s += getDouble();
         } else {
             s += "[";
             for (int i = 0; i < doubleList.length - 1; i++) {
@@ -27,31 +27,230 @@ import com.sun.squawk.microedition.io.FileConnection;
 
 import javax.microedition.io.Connector;
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.Vector;
 
+/**
+ * Loads {@link Constant} values from a text file of name=value lines.
+ * <p/>
+ * Every Constant has a slot in an immutable {@link Snapshot}. Loading a file
+ * builds a new Snapshot with every changed value and publishes it with a
+ * single volatile write, so all of the Constants switch to their new values
+ * together and a loop that reads them never sees half of a reload. The
+ * control thread never takes a lock to read a Constant.
+ * <p/>
+ * The manager can also watch the file for changes with
+ * {@link #startWatching(String, long)}. The watcher only parses the lines
+ * whose text changed, and it runs at minimum priority so a reload never holds
+ * up a control loop. An explicit load parses every line, so it also restores
+ * file values that were overridden with {@link Constant#set(double)}. Either
+ * way, only Constants whose value actually changed are counted and notified.
+ * <p/>
+ * Listeners added with {@link Constant#addListener(ConstantListener)} are
+ * called after a new snapshot is published, on a separate notification
+ * thread, so neither the control loop nor the watcher waits on them.
+ */
 public class ConstantsManager {
 
+    private static final Object lock = new Object();
+
+    /**
+     * Map of constant name to Integer slot
+     */
+    private static Hashtable slots = new Hashtable();
+
+    /**
+     * The text of each value as it was last read from a file, used to skip
+     * lines that have not changed
+     */
+    private static Hashtable rawValues = new Hashtable();
+
+    /**
+     * The parsed value of each line read from a file, kept so that Constants
+     * created after the file is loaded still get the file value
+     */
+    private static Hashtable fileValues = new Hashtable();
+
+    static volatile Snapshot current = new Snapshot(0);
+
+    /**
+     * Every Constant that has been created, in the order they were created.
+     * More than one Constant can share a slot if they have the same name.
+     */
+    private static volatile Constant[] registered = new Constant[0];
+
+    /**
+     * Slots that changed since the notification thread last ran, guarded by
+     * notifyLock
+     */
+    private static final Object notifyLock = new Object();
+    private static boolean[] changedSlots = new boolean[0];
+    private static boolean changesPending = false;
+    private static Thread notifier = null;
+
+    private static Thread watcher = null;
+    private static volatile boolean watching = false;
+
+    private static volatile int reloadCount = 0;
+    private static volatile int lastReloadChanged = 0;
+    private static volatile long lastReloadTime = 0;
+
     static {
         try {
             loadConstantsFromFile("/Constants.txt");
         } catch (IOException e) {
             e.printStackTrace();
+        } catch (VirtualMachineError e) {
+            throw e;
+        } catch (Error e) {
+            // off the cRIO the file system natives are missing, which CLDC
+            // can only catch as an Error, so just use the defaults
+            System.err.println("Could not read /Constants.txt: " + e);
+        }
+    }
+
+    /**
+     * An immutable set of values for every Constant, indexed by
+     * {@link Constant#getSlot()}
+     */
+    public static final class Snapshot {
+
+        final double[] doubles;
+        final double[][] lists;
+        final boolean[] booleans;
+
+        private Snapshot(int size) {
+            doubles = new double[size];
+            lists = new double[size][];
+            booleans = new boolean[size];
+        }
+
+        /**
+         * Get the number of Constants in this snapshot
+         *
+         * @return the number of slots
+         */
+        public int size() {
+            return doubles.length;
+        }
+
+        /**
+         * Copy this snapshot into a new one with the given number of slots
+         */
+        private Snapshot copy(int size) {
+            Snapshot s = new Snapshot(size);
+            int n = Math.min(size, doubles.length);
+            System.arraycopy(doubles, 0, s.doubles, 0, n);
+            System.arraycopy(lists, 0, s.lists, 0, n);
+            System.arraycopy(booleans, 0, s.booleans, 0, n);
+            return s;
+        }
+
+        /**
+         * Check if a slot already holds a value
+         *
+         * @param value a Double, double[] or Boolean
+         */
+        private boolean holds(int slot, Object value) {
+            if (value instanceof Double)
+                return doubles[slot] == ((Double) value).doubleValue();
+            if (value instanceof Boolean)
+                return booleans[slot] == ((Boolean) value).booleanValue();
+            double[] list = (double[]) value;
+            double[] old = lists[slot];
+            if (old == null || old.length != list.length)
+                return false;
+            for (int i = 0; i < list.length; i++) {
+                if (old[i] != list[i])
+                    return false;
+            }
+            return true;
+        }
+
+        /**
+         * Set a value in a snapshot that has not been published yet
+         *
+         * @param value a Double, double[] or Boolean
+         */
+        private void set(int slot, Object value) {
+            if (value instanceof Double)
+                doubles[slot] = ((Double) value).doubleValue();
+            else if (value instanceof Boolean)
+                booleans[slot] = ((Boolean) value).booleanValue();
+            else
+                lists[slot] = (double[]) value;
+        }
+    }
+
+    /**
+     * Get the current values of every Constant. The returned snapshot never
+     * changes, so a loop can read several Constants from it and know they all
+     * came from the same load.
+     *
+     * @return the current snapshot
+     */
+    public static Snapshot getSnapshot() {
+        return current;
+    }
+
+    /**
+     * Add a constant and give it a slot. If a value for this name has already
+     * been loaded from a file, that value is used instead of the defaults.
+     */
+    static void addConstant(Constant c, double doubleVal, double[] listVal, boolean booleanVal) {
+        synchronized (lock) {
+            Integer existing = (Integer) slots.get(c.getName());
+            if (existing != null) {
+                c.slot = existing.intValue();
+            } else {
+                c.slot = addSlot(c.getName(), doubleVal, listVal, booleanVal);
+            }
+
+            Constant[] updated = new Constant[registered.length + 1];
+            System.arraycopy(registered, 0, updated, 0, registered.length);
+            updated[registered.length] = c;
+            registered = updated;
         }
     }
 
-    private static Hashtable constants = new Hashtable();
+    /**
+     * Publish a snapshot with a new slot. Must hold the lock.
+     *
+     * @return the new slot
+     */
+    private static int addSlot(String name, double doubleVal, double[] listVal, boolean booleanVal) {
+        int slot = current.size();
+        Snapshot next = current.copy(slot + 1);
+        next.doubles[slot] = doubleVal;
+        next.lists[slot] = listVal;
+        next.booleans[slot] = booleanVal;
+        Object fileValue = fileValues.get(name);
+        if (fileValue != null) {
+            next.set(slot, fileValue);
+        }
+        slots.put(name, new Integer(slot));
+        current = next;
+        return slot;
+    }
 
     /**
-     * Add constant to the map
+     * Change the value of a single constant
      *
-     * @param c
+     * @param value a Double, double[] or Boolean
      */
-    protected static void addConstant(Constant c) {
-        constants.put(c.getName(), c);
+    static void set(int slot, Object value) {
+        synchronized (lock) {
+            Snapshot next = current.copy(current.size());
+            next.set(slot, value);
+            current = next;
+            markChanged(slot);
+        }
     }
 
     /**
@@ -61,64 +260,315 @@ public class ConstantsManager {
      * @throws IOException
      */
     public static void loadConstantsFromFile(String path) throws IOException {
-        FileConnection fileConnection = (FileConnection) Connector.open("file:///" + path, Connector.READ);
-        loadConstants(fileConnection.openInputStream());
+        loadConstants(new ByteArrayInputStream(readFile(path)));
     }
 
     public static void loadConstants(InputStream inputStream) throws IOException {
+        loadConstants(inputStream, false);
+    }
+
+    /**
+     * @param onlyChangedLines true to skip lines whose text has not changed
+     *                         since they were last read from a file
+     */
+    private static void loadConstants(InputStream inputStream, boolean onlyChangedLines) throws IOException {
+        long start = System.currentTimeMillis();
+        Hashtable lines = readLines(inputStream);
+        int changed;
+        synchronized (lock) {
+            changed = apply(lines, onlyChangedLines);
+        }
+        lastReloadTime = System.currentTimeMillis() - start;
+        lastReloadChanged = changed;
+        reloadCount++;
+    }
+
+    /**
+     * Read name=value lines from a stream
+     *
+     * @return a map of name to the text of the value
+     */
+    private static Hashtable readLines(InputStream inputStream) throws IOException {
+        Hashtable lines = new Hashtable();
         BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-        String line = null;
-        while ((line = reader.readLine()) != null) {
-            line = line.trim().replace(" ", "").replace("\t", "");
-            if (line.startsWith("#") || line.startsWith("//") || line.equals("")) {
+        try {
+            String line = null;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim().replace(" ", "").replace("\t", "");
+                if (line.startsWith("#") || line.startsWith("//") || line.equals("")) {
+                    continue;
+                }
+                if (!line.contains("=")) {
+                    throw new IOException("Invalid format, line <" + line + "> does not contain equals sign");
+                }
+                String key = line.substring(0, line.indexOf("=")).trim();
+                String value = line.substring(line.indexOf("=") + 1);
+                lines.put(key, value);
+            }
+        } finally {
+            inputStream.close();
+        }
+        return lines;
+    }
+
+    /**
+     * Parse the lines and publish a new snapshot if any registered constant
+     * changed. Must hold the lock.
+     *
+     * @param onlyChangedLines true to skip lines whose text has not changed
+     * @return the number of registered constants that changed
+     */
+    private static int apply(Hashtable lines, boolean onlyChangedLines) {
+        Snapshot next = null;
+        int changed = 0;
+        int[] updatedSlots = new int[lines.size()];
+        Enumeration keys = lines.keys();
+        while (keys.hasMoreElements()) {
+            String key = (String) keys.nextElement();
+            String raw = (String) lines.get(key);
+            if (onlyChangedLines && raw.equals(rawValues.get(key))) {
+                continue;
+            }
+            Object value = parse(key, raw);
+            if (value == null) {
                 continue;
             }
-            if (!line.contains("=")) {
-                throw new IOException("Invalid format, line <" + line + "> does not contain equals sign");
+            rawValues.put(key, raw);
+            fileValues.put(key, value);
+
+            Integer slot = (Integer) slots.get(key);
+            if (slot != null && !(next != null ? next : current).holds(slot.intValue(), value)) {
+                if (next == null) {
+                    next = current.copy(current.size());
+                }
+                next.set(slot.intValue(), value);
+                updatedSlots[changed++] = slot.intValue();
+            }
+        }
+        if (next != null) {
+            current = next;
+        }
+        // listeners read the current snapshot, so only queue them once it is published
+        for (int i = 0; i < changed; i++) {
+            markChanged(updatedSlots[i]);
+        }
+        return changed;
+    }
+
+    /**
+     * Called when a listener is added to any Constant. Starts the notification
+     * thread the first time.
+     */
+    static void listenerAdded() {
+        synchronized (notifyLock) {
+            if (notifier != null)
+                return;
+            notifier = new Thread() {
+                public void run() {
+                    notifyListeners();
+                }
+            };
+            notifier.setPriority(Thread.MIN_PRIORITY);
+            notifier.start();
+        }
+    }
+
+    /**
+     * Queue a notification for every Constant in a slot. This does not call
+     * any listeners itself.
+     */
+    private static void markChanged(int slot) {
+        synchronized (notifyLock) {
+            if (notifier == null)
+                return;
+            if (slot >= changedSlots.length) {
+                boolean[] updated = new boolean[Math.max(slot + 1, changedSlots.length * 2)];
+                System.arraycopy(changedSlots, 0, updated, 0, changedSlots.length);
+                changedSlots = updated;
             }
-            String key = line.substring(0, line.indexOf("=")).trim();
-            String value = line.substring(line.indexOf("=") + 1);
+            changedSlots[slot] = true;
+            changesPending = true;
+            notifyLock.notify();
+        }
+    }
 
+    /**
+     * The body of the notification thread
+     */
+    private static void notifyListeners() {
+        boolean[] changed = new boolean[0];
+        while (true) {
+            synchronized (notifyLock) {
+                while (!changesPending) {
+                    try {
+                        notifyLock.wait();
+                    } catch (InterruptedException e) {
+                        e.printStackTrace();
+                    }
+                }
+                if (changed.length != changedSlots.length)
+                    changed = new boolean[changedSlots.length];
+                for (int i = 0; i < changedSlots.length; i++) {
+                    changed[i] = changedSlots[i];
+                    changedSlots[i] = false;
+                }
+                changesPending = false;
+            }
+
+            Constant[] constants = registered;
+            for (int i = 0; i < constants.length; i++) {
+                int slot = constants[i].getSlot();
+                if (slot < changed.length && changed[slot])
+                    constants[i].fireChanged();
+            }
+        }
+    }
+
+    /**
+     * Parse the text of a value
+     *
+     * @return a Double, double[] or Boolean, or null if the value is malformed
+     */
+    private static Object parse(String key, String value) {
+        try {
             //value is a list
             if (value.contains(",")) {
                 String[] valStrings = split(value, ",");
-                boolean successful = true;
                 double[] val = new double[valStrings.length];
                 for (int i = 0; i < valStrings.length; i++) {
                     if (valStrings[i].equals("")) {
-                        System.err.println("Malformed line <" + line + "> empty string in array");
-                        successful = false;
-                        break;
+                        System.err.println("Malformed line <" + key + "=" + value + "> empty string in array");
+                        return null;
                     }
                     val[i] = Double.parseDouble(valStrings[i]);
                 }
-                if (successful) {
-                    if (constants.containsKey(key)) {
-                        ((Constant) constants.get(key)).set(val);
-                    } else {
-                        System.err.println("Constant <" + key + "> will not be used");
-                    }
+                return val;
+            }
+            if (value.equals("")) {
+                System.err.println("Malformed line <" + key + "=" + value + "> empty string as value");
+                return null;
+            }
+            if (value.equals("true"))
+                return Boolean.TRUE;
+            if (value.equals("false"))
+                return Boolean.FALSE;
+            return new Double(Double.parseDouble(value));
+        } catch (NumberFormatException e) {
+            System.err.println("Malformed line <" + key + "=" + value + "> " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Start a thread that checks the file for changes and reloads it when it
+     * changes. Only the lines that changed are parsed again, so a value
+     * changed with {@link Constant#set(double)} stays until its line changes.
+     *
+     * @param path   the path of the file on the cRIO
+     * @param period how often to check the file, in milliseconds
+     */
+    public static synchronized void startWatching(final String path, final long period) {
+        stopWatching();
+        watching = true;
+        watcher = new Thread() {
+            public void run() {
+                watch(path, period);
+            }
+        };
+        watcher.setPriority(Thread.MIN_PRIORITY);
+        watcher.start();
+    }
+
+    /**
+     * Stop checking the constants file for changes
+     */
+    public static synchronized void stopWatching() {
+        watching = false;
+        if (watcher != null) {
+            watcher.interrupt();
+            watcher = null;
+        }
+    }
+
+    private static void watch(String path, long period) {
+        byte[] last = null;
+        while (watching) {
+            try {
+                byte[] contents = readFile(path);
+                if (last == null || !equal(last, contents)) {
+                    loadConstants(new ByteArrayInputStream(contents), true);
+                    last = contents;
                 }
-            } else {
-                if (constants.containsKey(key)) {
-                    if (value.equals("")) {
-                        System.err.println("Malformed line <" + line + "> empty string as value");
-                        continue;
-                    }
-                    if (value.equals("true"))
-                        ((Constant) constants.get(key)).set(true);
-                    else if (value.equals("false"))
-                        ((Constant) constants.get(key)).set(false);
-                    else
-                        ((Constant) constants.get(key)).set(Double.parseDouble(value));
-                } else {
-                    System.err.println("Constant <" + key + "> will not be used");
+            } catch (IOException e) {
+                System.err.println("Could not reload " + path + ": " + e.getMessage());
+            }
+            try {
+                Thread.sleep(period);
+            } catch (InterruptedException e) {
+                // stopWatching interrupts the thread, the loop checks why
+            }
+        }
+    }
+
+    /**
+     * Get the number of times constants have been loaded
+     *
+     * @return the number of loads
+     */
+    public static int getReloadCount() {
+        return reloadCount;
+    }
+
+    /**
+     * Get how long the last load took to read, parse and publish
+     *
+     * @return the time in milliseconds
+     */
+    public static long getLastReloadTime() {
+        return lastReloadTime;
+    }
+
+    /**
+     * Get how many registered constants changed value in the last load
+     *
+     * @return the number of constants
+     */
+    public static int getLastReloadChangeCount() {
+        return lastReloadChanged;
+    }
+
+    /**
+     * Read the entire contents of a file on the cRIO
+     */
+    private static byte[] readFile(String path) throws IOException {
+        FileConnection fileConnection = (FileConnection) Connector.open("file:///" + path, Connector.READ);
+        try {
+            InputStream in = fileConnection.openInputStream();
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[512];
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    out.write(buffer, 0, n);
                 }
+                return out.toByteArray();
+            } finally {
+                in.close();
             }
+        } finally {
+            fileConnection.close();
         }
-        inputStream.close();
     }
 
+    private static boolean equal(byte[] a, byte[] b) {
+        if (a.length != b.length)
+            return false;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] != b[i])
+                return false;
+        }
+        return true;
+    }
 
     /**
      * Returns the array of substrings obtained by dividing the given input
@@ -48,4 +48,18 @@ public interface Filter {
 	 */
 	public double get();
 
+	/**
+	 * Apply the filter to a block of inputs, in place. This is the same as
+	 * calling {@link #update(double)} on each element in order and storing the
+	 * result back into the array, but without the per-sample call overhead.
+	 *
+	 * @param buffer
+	 *            the inputs, which are replaced by the filtered responses
+	 * @param offset
+	 *            the index of the first input
+	 * @param length
+	 *            the number of inputs to filter
+	 */
+	public void update(double[] buffer, int offset, int length);
+
 }
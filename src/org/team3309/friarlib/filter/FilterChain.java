@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2013, FRC Team 3309 All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer. Redistributions in binary
+ * form must reproduce the above copyright notice, this list of conditions and
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.team3309.friarlib.filter;
+
+/**
+ * This {@link Filter} runs several filters in series. Each input is passed
+ * through the first filter, its output through the second, and so on. The
+ * output of every stage is kept so it can be logged or sent to the dashboard.
+ *
+ * An example use of this would be a MaxChangeFilter followed by a
+ * MovingAverageFilter on a joystick axis, given to a single
+ * FilterableSpeedController.
+ */
+public class FilterChain implements Filter {
+
+	private Filter[] stages = null;
+	private double[] stageOutputs = null;
+
+	/**
+	 * Create a new FilterChain
+	 *
+	 * @param filters
+	 *            the filters to run, in the order they should be applied
+	 */
+	public FilterChain(Filter[] filters) {
+		if (filters == null || filters.length == 0) {
+			throw new IllegalArgumentException(
+					"FilterChain: must have at least one filter");
+		}
+		stages = new Filter[filters.length];
+		for (int i = 0; i < filters.length; i++) {
+			if (filters[i] == null) {
+				throw new NullPointerException("Filter cannot be null");
+			}
+			stages[i] = filters[i];
+		}
+		stageOutputs = new double[stages.length];
+		for (int i = 0; i < stages.length; i++) {
+			stageOutputs[i] = stages[i].get();
+		}
+	}
+
+	/**
+	 * Get the number of filters in the chain
+	 *
+	 * @return the number of stages
+	 */
+	public int size() {
+		return stages.length;
+	}
+
+	/**
+	 * Get one of the filters in the chain
+	 *
+	 * @param stage
+	 *            the index of the filter, starting at 0
+	 * @return the filter
+	 */
+	public Filter getStage(int stage) {
+		return stages[stage];
+	}
+
+	/**
+	 * Get the last output of one of the filters in the chain
+	 *
+	 * @param stage
+	 *            the index of the filter, starting at 0
+	 * @return the last value that stage output
+	 */
+	public double getStageOutput(int stage) {
+		return stageOutputs[stage];
+	}
+
+	/**
+	 * Get a new filtered value by passing the input through every filter in
+	 * order
+	 */
+	@Override
+	public double update(double val) {
+		for (int i = 0; i < stages.length; i++) {
+			val = stages[i].update(val);
+			stageOutputs[i] = val;
+		}
+		return val;
+	}
+
+	/**
+	 * Run the whole chain over a block of inputs, in place. Each filter is run
+	 * over the whole block before the next one, which gives the same result
+	 * as filtering one sample at a time. This is useful for replaying logged
+	 * data.
+	 */
+	@Override
+	public void update(double[] buffer, int offset, int length) {
+		if (length <= 0)
+			return;
+		for (int i = 0; i < stages.length; i++) {
+			stages[i].update(buffer, offset, length);
+			stageOutputs[i] = buffer[offset + length - 1];
+		}
+	}
+
+	@Override
+	public double get() {
+		return stageOutputs[stageOutputs.length - 1];
+	}
+
+}
@@ -99,6 +99,17 @@ public class IirFilter implements Filter {
 		return newFilteredValue;
 	}
 
+	@Override
+	public void update(double[] buffer, int offset, int length) {
+		double strength = mFilterStrength;
+		double filtered = previousFilteredValue;
+		for (int i = offset; i < offset + length; i++) {
+			filtered = strength * filtered + (1 - strength) * buffer[i];
+			buffer[i] = filtered;
+		}
+		previousFilteredValue = filtered;
+	}
+
 	@Override
 	public double get(){
 		return previousFilteredValue;
@@ -84,6 +84,13 @@ public class MaxChangeFilter implements Filter {
 		return filteredVal;
 	}
 
+	@Override
+	public void update(double[] buffer, int offset, int length) {
+		for (int i = offset; i < offset + length; i++) {
+			buffer[i] = update(buffer[i]);
+		}
+	}
+
 	@Override
 	public double get(){
 		return lastVal;
@@ -35,6 +35,13 @@ package org.team3309.friarlib.filter;
  * This class simultaneously takes a data point to be filtered and returns the
  * current moving average using the method Update().
  *
+ * The sum of the samples is kept as a running total, so each update is O(1)
+ * no matter how many samples are averaged. To keep floating point error from
+ * building up in the running total, it is recomputed from the samples every
+ * time the window wraps around. It is also recomputed whenever it is not
+ * finite, so a NaN or infinite sample only affects the output while it is in
+ * the window.
+ *
  * @author Vinnie
  */
 
@@ -42,6 +49,7 @@ public class MovingAverageFilter implements Filter {
 
 	private double[] samples = null;
 	private int i = 0;
+	private double sum = 0;
 
 	/**
 	 * Create a new moving average filter
@@ -73,6 +81,7 @@ public class MovingAverageFilter implements Filter {
 		for (int i = 0; i < samples.length; i++) {
 			samples[i] = defaultVal;
 		}
+		resum();
 	}
 
 	@Override
@@ -82,21 +91,55 @@ public class MovingAverageFilter implements Filter {
 	 * @return a value filtered based on the last n samples
 	 */
 	public double update(double val) {
+		sum += val - samples[i];
 		samples[i] = val;
-		if(i >= samples.length-1)
+		if(i >= samples.length-1) {
 			i = 0;
-		else
+			resum();
+		} else {
 			i++;
-		return get();
+			if (!isFinite(sum))
+				resum();
+		}
+		return sum / samples.length;
 	}
 
 	@Override
-	public double get(){
-		double sum = 0;
-		for (int i = 0; i < samples.length; i++) {
-			sum += samples[i];
+	public void update(double[] buffer, int offset, int length) {
+		int n = samples.length;
+		for (int j = offset; j < offset + length; j++) {
+			double val = buffer[j];
+			sum += val - samples[i];
+			samples[i] = val;
+			if (++i >= n) {
+				i = 0;
+				resum();
+			} else if (!isFinite(sum)) {
+				resum();
+			}
+			buffer[j] = sum / n;
 		}
+	}
+
+	@Override
+	public double get(){
 		return sum / samples.length;
 	}
 
+	/**
+	 * Recompute the running sum from the samples to remove any accumulated
+	 * rounding error
+	 */
+	private void resum() {
+		double total = 0;
+		for (int j = 0; j < samples.length; j++) {
+			total += samples[j];
+		}
+		sum = total;
+	}
+
+	private static boolean isFinite(double d) {
+		return !Double.isNaN(d) && !Double.isInfinite(d);
+	}
+
 }
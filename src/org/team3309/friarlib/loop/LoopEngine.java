@@ -0,0 +1,430 @@
+/*
+ * Copyright (c) 2013, FRC Team 3309 All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer. Redistributions in binary
+ * form must reproduce the above copyright notice, this list of conditions and
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.team3309.friarlib.loop;
+
+import edu.wpi.first.wpilibj.Utility;
+
+/**
+ * This class runs a set of {@link Loopable} mechanisms on a single dedicated
+ * thread. Every tick samples all inputs, then runs all of the control math,
+ * then commits all outputs, so the timing of the control loop does not depend
+ * on whichever thread happens to be running teleop.
+ *
+ * Each mechanism can have its own period. The engine thread sleeps until the
+ * next mechanism is due and then runs every mechanism that is due together,
+ * so several mechanisms share one thread instead of each having its own.
+ *
+ * Ticks are scheduled against the FPGA clock. If a mechanism runs long, the
+ * engine skips the ticks it missed instead of running them back to back, so
+ * it stays on its original schedule. Timing is recorded in a {@link LoopStats}
+ * object for the engine as a whole and for each mechanism.
+ *
+ * A mechanism that throws from sample or compute is not committed that tick,
+ * but the other mechanisms still are.
+ */
+public class LoopEngine implements Runnable {
+
+    private static LoopEngine defaultEngine = null;
+
+    private final long periodUs;
+    private final LoopStats stats = new LoopStats();
+
+    private volatile Entry[] entries = new Entry[0];
+    /**
+     * The thread that should be running the loop, or null once stopped
+     */
+    private volatile Thread thread = null;
+    /**
+     * The thread that is running the loop. After a quick stop and start the
+     * new thread waits for the old one to finish its tick.
+     */
+    private Thread active = null;
+
+    /**
+     * A registered mechanism and its schedule
+     */
+    private static class Entry {
+        final Loopable loop;
+        final long periodUs;
+        final LoopStats stats = new LoopStats();
+        long next = 0;
+        boolean scheduled = false;
+        boolean due = false;
+        boolean failed = false;
+
+        Entry(Loopable loop, long periodUs) {
+            this.loop = loop;
+            this.periodUs = periodUs;
+        }
+    }
+
+    /**
+     * Get the LoopEngine shared by FriarLib mechanisms that do not need their
+     * own. It has a default period of 20ms and is started the first time it
+     * is requested.
+     *
+     * @return the shared LoopEngine
+     */
+    public static synchronized LoopEngine getDefault() {
+        if (defaultEngine == null) {
+            defaultEngine = new LoopEngine(.02);
+            defaultEngine.start();
+        }
+        return defaultEngine;
+    }
+
+    /**
+     * Create a new LoopEngine
+     *
+     * @param period the default time between ticks in seconds
+     */
+    public LoopEngine(double period) {
+        this.periodUs = toMicros(period);
+    }
+
+    private static long toMicros(double period) {
+        if (period <= 0) {
+            throw new IllegalArgumentException(
+                    "LoopEngine: period must be greater than 0");
+        }
+        return (long) (period * 1e6);
+    }
+
+    /**
+     * Add a mechanism to this engine, run at the engine's default period. It
+     * will be run starting with the next tick.
+     *
+     * @param loop the mechanism to run
+     */
+    public void register(Loopable loop) {
+        register(loop, periodUs);
+    }
+
+    /**
+     * Add a mechanism to this engine, run at its own period. It will be run
+     * starting with the next tick.
+     *
+     * @param loop   the mechanism to run
+     * @param period the time between ticks for this mechanism in seconds
+     */
+    public void register(Loopable loop, double period) {
+        register(loop, toMicros(period));
+    }
+
+    private synchronized void register(Loopable loop, long period) {
+        if (loop == null) {
+            throw new NullPointerException("Loopable cannot be null");
+        }
+        Entry[] old = entries;
+        for (int i = 0; i < old.length; i++) {
+            if (old[i].loop == loop)
+                return;
+        }
+        Entry[] updated = new Entry[old.length + 1];
+        System.arraycopy(old, 0, updated, 0, old.length);
+        updated[old.length] = new Entry(loop, period);
+        entries = updated;
+        notifyAll();
+    }
+
+    /**
+     * Remove a mechanism from this engine. If the engine is in the middle of
+     * a tick, the mechanism may still be run for the rest of that tick.
+     *
+     * @param loop the mechanism to remove
+     */
+    public synchronized void unregister(Loopable loop) {
+        Entry[] old = entries;
+        for (int i = 0; i < old.length; i++) {
+            if (old[i].loop == loop) {
+                Entry[] updated = new Entry[old.length - 1];
+                System.arraycopy(old, 0, updated, 0, i);
+                System.arraycopy(old, i + 1, updated, i, old.length - i - 1);
+                entries = updated;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Check if a mechanism is registered with this engine
+     *
+     * @param loop the mechanism
+     * @return true if it is registered
+     */
+    public boolean isRegistered(Loopable loop) {
+        return find(loop) != null;
+    }
+
+    private Entry find(Loopable loop) {
+        Entry[] current = entries;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].loop == loop)
+                return current[i];
+        }
+        return null;
+    }
+
+    /**
+     * Start running the loop on its own thread
+     */
+    public synchronized void start() {
+        if (thread != null)
+            return;
+        thread = new Thread(this);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Stop running the loop. The current tick is allowed to finish, and a
+     * later call to {@link #start()} does not run a tick until it has.
+     */
+    public synchronized void stop() {
+        thread = null;
+        notifyAll();
+    }
+
+    /**
+     * Check if the loop thread is running
+     *
+     * @return true if the loop is running
+     */
+    public boolean isRunning() {
+        return thread != null;
+    }
+
+    /**
+     * Get the default time between ticks
+     *
+     * @return the period in seconds
+     */
+    public double getPeriod() {
+        return periodUs / 1e6;
+    }
+
+    /**
+     * Get the timing statistics for this engine as a whole. Jitter is
+     * measured from when the engine meant to wake up, and execution time
+     * includes every mechanism that ran in the tick.
+     *
+     * @return the statistics, updated every tick
+     */
+    public LoopStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Get the timing statistics for one mechanism. Jitter is measured from
+     * when that mechanism was due, and an overrun is counted when a tick it
+     * ran in finished after its next tick was due.
+     *
+     * @param loop the mechanism
+     * @return the statistics, or null if the mechanism is not registered
+     */
+    public LoopStats getStats(Loopable loop) {
+        Entry entry = find(loop);
+        return entry == null ? null : entry.stats;
+    }
+
+    /**
+     * Run every mechanism once: sample every mechanism, compute every
+     * mechanism, then commit every mechanism. This ignores the period of each
+     * mechanism and is meant to be called directly when the engine is not
+     * started.
+     */
+    public void tick() {
+        Entry[] current = entries;
+        for (int i = 0; i < current.length; i++) {
+            current[i].due = true;
+        }
+        runDue(current);
+    }
+
+    /**
+     * Sample, compute and commit every mechanism that is due. Each call is
+     * guarded on its own so one mechanism throwing does not stop the others.
+     */
+    private void runDue(Entry[] current) {
+        for (int i = 0; i < current.length; i++) {
+            Entry e = current[i];
+            e.failed = false;
+            if (e.due) {
+                try {
+                    e.loop.sample();
+                } catch (RuntimeException ex) {
+                    e.failed = true;
+                    ex.printStackTrace();
+                }
+            }
+        }
+        for (int i = 0; i < current.length; i++) {
+            Entry e = current[i];
+            if (e.due && !e.failed) {
+                try {
+                    e.loop.compute();
+                } catch (RuntimeException ex) {
+                    e.failed = true;
+                    ex.printStackTrace();
+                }
+            }
+        }
+        for (int i = 0; i < current.length; i++) {
+            Entry e = current[i];
+            if (e.due && !e.failed) {
+                try {
+                    e.loop.commit();
+                } catch (RuntimeException ex) {
+                    ex.printStackTrace();
+                }
+            }
+        }
+    }
+
+    public void run() {
+        Thread self = Thread.currentThread();
+        synchronized (this) {
+            // let a thread from before a quick stop and start finish its tick
+            while (active != null && thread == self) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+            }
+            if (thread != self)
+                return;
+            active = self;
+        }
+        try {
+            loop(self);
+        } finally {
+            synchronized (this) {
+                active = null;
+                notifyAll();
+            }
+        }
+    }
+
+    private void loop(Thread self) {
+        while (thread == self) {
+            Entry[] current = entries;
+            long wake = nextWake(current);
+            if (!waitUntil(wake, current, self))
+                continue;
+
+            long start = Utility.getFPGATime();
+            int due = 0;
+            for (int i = 0; i < current.length; i++) {
+                Entry e = current[i];
+                if (!e.scheduled) {
+                    e.next = start;
+                    e.scheduled = true;
+                }
+                e.due = (int) (start - e.next) >= 0;
+                if (e.due)
+                    due++;
+            }
+            if (due == 0)
+                continue;
+
+            runDue(current);
+            long end = Utility.getFPGATime();
+
+            boolean anyOverrun = false;
+            for (int i = 0; i < current.length; i++) {
+                Entry e = current[i];
+                if (!e.due)
+                    continue;
+                long deadline = e.next;
+                e.next += e.periodUs;
+                // the FPGA clock is 32 bits and wraps, so compare differences
+                long late = (int) (end - e.next);
+                boolean overrun = late > 0;
+                if (overrun) {
+                    // skip the ticks we missed so we stay on the original schedule
+                    e.next += (late / e.periodUs + 1) * e.periodUs;
+                    anyOverrun = true;
+                }
+                e.stats.record((int) (start - deadline), (int) (end - start), overrun);
+            }
+            stats.record(wake == 0 ? 0 : (int) (start - wake), (int) (end - start), anyOverrun);
+        }
+    }
+
+    /**
+     * Find when the next mechanism is due
+     *
+     * @return the FPGA time in microseconds, or 0 if a newly registered
+     *         mechanism should run right away
+     */
+    private long nextWake(Entry[] current) {
+        long now = Utility.getFPGATime();
+        if (current.length == 0)
+            return now + periodUs;
+        long wait = Long.MAX_VALUE;
+        for (int i = 0; i < current.length; i++) {
+            if (!current[i].scheduled)
+                return 0;
+            long remaining = (int) (current[i].next - now);
+            if (remaining < wait)
+                wait = remaining;
+        }
+        return now + wait;
+    }
+
+    /**
+     * Sleep until the FPGA clock reaches the given time. Thread.sleep only has
+     * millisecond resolution, so the last partial millisecond is spent
+     * yielding. Registering a mechanism or stopping the engine cuts the wait
+     * short.
+     *
+     * @param time    the FPGA time in microseconds
+     * @param current the mechanisms the wake up time was computed from
+     * @param self    the thread running the loop
+     * @return true if the time was reached, false if the wait was cut short
+     */
+    private boolean waitUntil(long time, Entry[] current, Thread self) {
+        if (time == 0)
+            return true;
+        long remaining = (int) (time - Utility.getFPGATime());
+        if (remaining >= 1000) {
+            synchronized (this) {
+                if (thread != self || entries != current)
+                    return false;
+                try {
+                    wait(remaining / 1000);
+                } catch (InterruptedException e) {
+                    e.printStackTrace();
+                }
+                if (thread != self || entries != current)
+                    return false;
+            }
+        }
+        while ((int) (Utility.getFPGATime() - time) < 0) {
+            Thread.yield();
+        }
+        return true;
+    }
+}
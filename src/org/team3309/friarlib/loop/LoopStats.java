@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2013, FRC Team 3309 All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer. Redistributions in binary
+ * form must reproduce the above copyright notice, this list of conditions and
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.team3309.friarlib.loop;
+
+/**
+ * This class keeps timing statistics for a control loop. All times are in
+ * microseconds. Jitter is how late a tick started compared to when it was
+ * scheduled, and execution time is how long the tick took to run. An overrun
+ * is counted when a tick finishes after the next tick should have started.
+ *
+ * Statistics are written by the loop thread and can be read from any thread.
+ */
+public class LoopStats {
+
+    private volatile long ticks = 0;
+    private volatile long overruns = 0;
+    private volatile long lastJitter = 0;
+    private volatile long maxJitter = 0;
+    private volatile long totalJitter = 0;
+    private volatile long lastExecution = 0;
+    private volatile long maxExecution = 0;
+    private volatile long totalExecution = 0;
+
+    /**
+     * Record the timing of a single tick. This is called by the loop thread.
+     *
+     * @param jitter    how late the tick started in microseconds
+     * @param execution how long the tick took in microseconds
+     * @param overrun   true if the tick ran past the start of the next tick
+     */
+    public void record(long jitter, long execution, boolean overrun) {
+        if (jitter < 0)
+            jitter = 0;
+        lastJitter = jitter;
+        if (jitter > maxJitter)
+            maxJitter = jitter;
+        totalJitter += jitter;
+
+        lastExecution = execution;
+        if (execution > maxExecution)
+            maxExecution = execution;
+        totalExecution += execution;
+
+        if (overrun)
+            overruns++;
+        ticks++;
+    }
+
+    /**
+     * Clear all of the statistics
+     */
+    public void reset() {
+        ticks = 0;
+        overruns = 0;
+        lastJitter = 0;
+        maxJitter = 0;
+        totalJitter = 0;
+        lastExecution = 0;
+        maxExecution = 0;
+        totalExecution = 0;
+    }
+
+    /**
+     * Get the number of ticks that have been recorded
+     *
+     * @return the number of ticks
+     */
+    public long getTickCount() {
+        return ticks;
+    }
+
+    /**
+     * Get the number of ticks that ran past the start of the next tick
+     *
+     * @return the number of overruns
+     */
+    public long getOverrunCount() {
+        return overruns;
+    }
+
+    /**
+     * Get the jitter of the last tick
+     *
+     * @return jitter in microseconds
+     */
+    public long getLastJitter() {
+        return lastJitter;
+    }
+
+    /**
+     * Get the largest jitter seen since the last reset
+     *
+     * @return jitter in microseconds
+     */
+    public long getMaxJitter() {
+        return maxJitter;
+    }
+
+    /**
+     * Get the average jitter since the last reset
+     *
+     * @return jitter in microseconds
+     */
+    public double getAverageJitter() {
+        long n = ticks;
+        return n == 0 ? 0 : (double) totalJitter / n;
+    }
+
+    /**
+     * Get the execution time of the last tick
+     *
+     * @return execution time in microseconds
+     */
+    public long getLastExecutionTime() {
+        return lastExecution;
+    }
+
+    /**
+     * Get the longest execution time seen since the last reset
+     *
+     * @return execution time in microseconds
+     */
+    public long getMaxExecutionTime() {
+        return maxExecution;
+    }
+
+    /**
+     * Get the average execution time since the last reset
+     *
+     * @return execution time in microseconds
+     */
+    public double getAverageExecutionTime() {
+        long n = ticks;
+        return n == 0 ? 0 : (double) totalExecution / n;
+    }
+
+    /**
+     * Returns a string representation of these statistics
+     */
+    public String toString() {
+        String s = "Loop Statistics\n";
+        s += "Ticks:\t" + ticks + "\n";
+        s += "Overruns:\t" + overruns + "\n";
+        s += "Jitter (us):\tavg " + getAverageJitter() + " max " + maxJitter + "\n";
+        s += "Execution (us):\tavg " + getAverageExecutionTime() + " max " + maxExecution;
+        return s;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2013, FRC Team 3309 All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer. Redistributions in binary
+ * form must reproduce the above copyright notice, this list of conditions and
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.team3309.friarlib.loop;
+
+/**
+ * A mechanism that can be run by a {@link LoopEngine}. Each tick of the engine
+ * calls {@link #sample()} on every registered Loopable, then {@link #compute()}
+ * on every Loopable, and finally {@link #commit()} on every Loopable. This
+ * means every input is read once per tick before any math is done, and every
+ * output is written in one pass at the end of the tick.
+ *
+ * None of these methods should allocate memory, block, or print anything,
+ * because they are called from the control loop thread.
+ */
+public interface Loopable {
+
+    /**
+     * Read every sensor and command value this mechanism needs for the current
+     * tick and store them in fields
+     */
+    public void sample();
+
+    /**
+     * Run the control math using only the values captured in
+     * {@link #sample()}. Outputs should be stored in fields, not written to
+     * hardware.
+     */
+    public void compute();
+
+    /**
+     * Write the outputs calculated in {@link #compute()} to the hardware
+     */
+    public void commit();
+
+}
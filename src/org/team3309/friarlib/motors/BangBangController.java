@@ -23,6 +23,11 @@
 
 package org.team3309.friarlib.motors;
 
+import org.team3309.friarlib.constants.Constant;
+import org.team3309.friarlib.loop.LoopEngine;
+import org.team3309.friarlib.loop.LoopStats;
+import org.team3309.friarlib.loop.Loopable;
+
 import edu.wpi.first.wpilibj.Counter;
 import edu.wpi.first.wpilibj.SpeedController;
 
@@ -32,33 +37,86 @@ import edu.wpi.first.wpilibj.SpeedController;
  * mode instead of brake mode. This should be the defualt for Victors. Do not
  * use bang-bang with a Jaguar! Only Talons and Victors are supported.
  *
+ * Bang-bang controllers do not have their own threads. They are run by a
+ * {@link LoopEngine}, the shared {@link LoopEngine#getDefault() default
+ * engine} unless another one is given, so any number of wheels share one
+ * thread. Each controller keeps its own period, and its timing can be checked
+ * with {@link #getStats()}.
+ *
  * @author Vinnie
  *
  */
-public class BangBangController implements Runnable {
+public class BangBangController implements Loopable {
+
+	private static final double kDefaultPeriod = .02;
 
-	private Thread thread = null;
+	private LoopEngine engine = null;
+	private double period = kDefaultPeriod;
 	private SpeedController motor = null;
 	private Counter encoder = null;
 	private int countsPerRev = 0;
 
-	private double targetRpm = 0;
+	private volatile double targetRpm = 0;
+	private volatile Constant targetRpmConstant = null;
 
 	private volatile boolean enabled = false;
+	/**
+	 * Cleared by stop() so a tick that was already running does not drive
+	 * the motor again. Guarded by this.
+	 */
+	private boolean running = false;
 
 	/**
-	 * Create a new bang-bang motor controller.
+	 * Create a new bang-bang motor controller and start running it every 20ms
+	 * on the shared LoopEngine.
 	 * @param controller the underlying speed controller (a Victor or Talon, no Jaguars)
 	 * @param encoder a Counter object for the speed sensor (usually a KOP photosensor)
 	 * @param countsPerRev how many counts the encoder reads per revolution
 	 */
 	public BangBangController(SpeedController controller, Counter encoder,
 			int countsPerRev) {
+		this(controller, encoder, countsPerRev, LoopEngine.getDefault(),
+				kDefaultPeriod);
+	}
+
+	/**
+	 * Create a new bang-bang motor controller and start running it on the
+	 * given LoopEngine.
+	 * @param controller the underlying speed controller (a Victor or Talon, no Jaguars)
+	 * @param encoder a Counter object for the speed sensor (usually a KOP photosensor)
+	 * @param countsPerRev how many counts the encoder reads per revolution
+	 * @param engine the LoopEngine to run on
+	 * @param period the time between updates in seconds
+	 */
+	public BangBangController(SpeedController controller, Counter encoder,
+			int countsPerRev, LoopEngine engine, double period) {
 		this.motor = controller;
 		this.encoder = encoder;
 		this.countsPerRev = countsPerRev;
-		thread = new Thread(this);
-		thread.start();
+		this.engine = engine;
+		this.period = period;
+		start();
+	}
+
+	/**
+	 * Start running this controller on its LoopEngine. This is done
+	 * automatically when the controller is created.
+	 */
+	public synchronized void start() {
+		running = true;
+		engine.register(this, period);
+	}
+
+	/**
+	 * Stop running this controller and set the motor to 0. If the engine is
+	 * in the middle of a tick, this waits for the tick to commit, so the motor
+	 * is left at 0. The controller can be started again with {@link #start()}.
+	 */
+	public synchronized void stop() {
+		running = false;
+		engine.unregister(this);
+		wasEnabled = false;
+		motor.set(0);
 	}
 
 	/**
@@ -71,7 +129,7 @@ public class BangBangController implements Runnable {
 
 	/**
 	 * Disable the bang-bang controller.
-	 * When disabled, the motor is constantly run at 0.
+	 * When disabled, the motor is set to 0 once and then left alone.
 	 */
 	public void disable() {
 		enabled = false;
@@ -82,60 +140,103 @@ public class BangBangController implements Runnable {
 	 * @param rpm the rpm of the wheel, this is independent of the number of counts per revolution
 	 */
 	public void setTargetRpm(double rpm){
+		this.targetRpmConstant = null;
 		this.targetRpm = rpm;
 	}
 
+	/**
+	 * Use a Constant as the target speed of the wheel. The constant is read
+	 * every loop, so the speed can be tuned from the constants file while the
+	 * wheel is running.
+	 * @param rpm a Constant holding the rpm of the wheel
+	 */
+	public void setTargetRpm(Constant rpm){
+		this.targetRpmConstant = rpm;
+	}
+
+	/**
+	 * Get the last measured speed of the wheel
+	 * @return the speed in rpm
+	 */
+	public double getSpeed(){
+		return lastSpeed;
+	}
+
+	/**
+	 * Get the timing statistics for this controller, including jitter and the
+	 * number of overruns
+	 * @return the statistics, or null if the controller is stopped
+	 */
+	public LoopStats getStats(){
+		return engine.getStats(this);
+	}
+
 	/**
 	 * This variable is used to prevent a few reads of infinity when the wheel
 	 * isn't spinning fast enough
 	 */
 	private int infinityCounts = 0;
-	private double lastSpeed = 0;
+	private volatile double lastSpeed = 0;
 
+	private boolean sampledEnabled = false;
+	private double sampledPeriod = 0;
+	private double sampledTarget = 0;
+	private double output = 0;
+	private boolean wasEnabled = false;
 
 	@Override
-	public void run() {
-		while (true) {
-			if (enabled) {
-				try {
-					double period = encoder.getPeriod();
-					double speed = (60 / period) / countsPerRev;
-					// do this so that we use the last speed if the loop is
-					// running
-					// too fast and didn't get a period
-					if (period == Double.POSITIVE_INFINITY
-							&& infinityCounts <= 10) {
-						speed = lastSpeed;
-						infinityCounts++;
-					} else if (period == Double.POSITIVE_INFINITY
-							&& infinityCounts > 10) {
-						speed = 0;
-						infinityCounts++;
-					} else {
-						infinityCounts = 0;
-					}
-
-					lastSpeed = speed;
-
-					if (speed < targetRpm)
-						motor.set(1);
-					else if (speed > targetRpm)
-						motor.set(0);
-					else if (targetRpm == 0)
-						motor.set(0);
-
-					Thread.sleep(20);
-				} catch (InterruptedException ex) {
-					ex.printStackTrace();
-				}
-			} else {
-				try {
-					Thread.sleep(50);
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
-			}
+	public void sample() {
+		sampledEnabled = enabled;
+		if (sampledEnabled) {
+			sampledPeriod = encoder.getPeriod();
+			Constant constant = targetRpmConstant;
+			sampledTarget = constant != null ? constant.getDouble()
+					: targetRpm;
 		}
 	}
 
+	@Override
+	public void compute() {
+		if (!sampledEnabled) {
+			output = 0;
+			return;
+		}
+		double period = sampledPeriod;
+		double speed = (60 / period) / countsPerRev;
+		// do this so that we use the last speed if the loop is
+		// running
+		// too fast and didn't get a period
+		if (period == Double.POSITIVE_INFINITY
+				&& infinityCounts <= 10) {
+			speed = lastSpeed;
+			infinityCounts++;
+		} else if (period == Double.POSITIVE_INFINITY
+				&& infinityCounts > 10) {
+			speed = 0;
+			infinityCounts++;
+		} else {
+			infinityCounts = 0;
+		}
+
+		lastSpeed = speed;
+
+		if (speed < sampledTarget)
+			output = 1;
+		else if (speed > sampledTarget)
+			output = 0;
+		else if (sampledTarget == 0)
+			output = 0;
+	}
+
+	@Override
+	public synchronized void commit() {
+		if (!running)
+			return;
+		if (sampledEnabled)
+			motor.set(output);
+		else if (wasEnabled)
+			motor.set(0);
+		wasEnabled = sampledEnabled;
+	}
+
 }
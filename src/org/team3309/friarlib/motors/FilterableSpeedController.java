@@ -24,6 +24,7 @@
 package org.team3309.friarlib.motors;
 
 import org.team3309.friarlib.filter.Filter;
+import org.team3309.friarlib.filter.FilterChain;
 
 import edu.wpi.first.wpilibj.SpeedController;
 
@@ -37,10 +38,27 @@ public class FilterableSpeedController implements SpeedController {
 		this.mFilter = filter;
 	}
 
+	/**
+	 * Create a new FilterableSpeedController that runs every output through
+	 * several filters, in order
+	 *
+	 * @param motor
+	 *            the underlying speed controller
+	 * @param filters
+	 *            the filters to apply, combined into a {@link FilterChain}
+	 */
+	public FilterableSpeedController(SpeedController motor, Filter[] filters) {
+		this(motor, new FilterChain(filters));
+	}
+
 	public void setFilter(Filter f){
 		this.mFilter = f;
 	}
 
+	public Filter getFilter(){
+		return mFilter;
+	}
+
 	public void set(double x){
 		controller.set(mFilter.update(x));
 	}
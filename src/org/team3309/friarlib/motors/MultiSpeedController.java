@@ -78,6 +78,7 @@ public class MultiSpeedController implements SpeedController {
 
         public Builder motors(SpeedController[] motors) {
             controller.motors = motors;
+            controller.motorsReverse = new boolean[motors.length];
             return this;
         }
 
@@ -94,9 +95,8 @@ public class MultiSpeedController implements SpeedController {
         }
 
         public Builder reverseEveryOther() {
-            for (int i = 0; i < controller.motorsReverse.length / 2; i++) {
-                controller.motorsReverse[i] = false;
-                controller.motorsReverse[i] = true;
+            for (int i = 0; i < controller.motorsReverse.length; i++) {
+                controller.motorsReverse[i] = i % 2 == 1;
             }
             return this;
         }
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2013, FRC Team 3309 All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer. Redistributions in binary
+ * form must reproduce the above copyright notice, this list of conditions and
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.team3309.friarlib.telemetry;
+
+/**
+ * A fixed size ring buffer of telemetry records. Every record is a timestamp
+ * followed by the same number of double fields, so the buffer is allocated
+ * once when it is created and never again.
+ * <p/>
+ * The buffer has exactly one producer, usually a control loop, and exactly one
+ * consumer, usually a {@link TelemetryWriter}. The producer never blocks or
+ * allocates: if the consumer has fallen behind and the buffer is full, the
+ * record is dropped and counted instead.
+ */
+public class TelemetryBuffer {
+
+    private final String[] fieldNames;
+    private final int fields;
+    private final int mask;
+    private final long[] timestamps;
+    private final double[] values;
+
+    /**
+     * The number of records ever written, only changed by the producer
+     */
+    private volatile int head = 0;
+    /**
+     * The number of records ever read, only changed by the consumer
+     */
+    private volatile int tail = 0;
+    private volatile int dropped = 0;
+
+    /**
+     * Create a new TelemetryBuffer
+     *
+     * @param fieldNames the name of each field in a record
+     * @param capacity   the number of records the buffer can hold, rounded up
+     *                   to a power of two
+     */
+    public TelemetryBuffer(String[] fieldNames, int capacity) {
+        if (fieldNames.length == 0)
+            throw new IllegalArgumentException("A record needs at least one field");
+        if (capacity <= 0 || capacity > 1 << 24)
+            throw new IllegalArgumentException("Capacity must be between 1 and " + (1 << 24));
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.fieldNames = new String[fieldNames.length];
+        System.arraycopy(fieldNames, 0, this.fieldNames, 0, fieldNames.length);
+        fields = fieldNames.length;
+        mask = size - 1;
+        timestamps = new long[size];
+        values = new double[size * fields];
+    }
+
+    /**
+     * Add a record to the buffer. This is only called by the producer.
+     *
+     * @param timestamp the time of the record, normally in microseconds
+     * @param record    the value of each field, in the same order as the field
+     *                  names
+     * @return false if the buffer was full and the record was dropped
+     */
+    public boolean write(long timestamp, double[] record) {
+        int h = head;
+        if (h - tail > mask) {
+            dropped++;
+            return false;
+        }
+        int index = h & mask;
+        timestamps[index] = timestamp;
+        System.arraycopy(record, 0, values, index * fields, fields);
+        head = h + 1;
+        return true;
+    }
+
+    /**
+     * Get the number of records waiting to be read
+     *
+     * @return the number of records
+     */
+    public int available() {
+        return head - tail;
+    }
+
+    /**
+     * Get the timestamp of a waiting record. This is only called by the
+     * consumer.
+     *
+     * @param record the record, where 0 is the oldest waiting record
+     * @return the timestamp
+     */
+    public long getTimestamp(int record) {
+        return timestamps[(tail + record) & mask];
+    }
+
+    /**
+     * Get a field of a waiting record. This is only called by the consumer.
+     *
+     * @param record the record, where 0 is the oldest waiting record
+     * @param field  the index of the field
+     * @return the value of the field
+     */
+    public double get(int record, int field) {
+        return values[((tail + record) & mask) * fields + field];
+    }
+
+    /**
+     * Mark the oldest records as read so the producer can reuse their space.
+     * This is only called by the consumer.
+     *
+     * @param records the number of records to release
+     */
+    public void release(int records) {
+        if (records < 0 || records > available())
+            throw new IllegalArgumentException("Cannot release " + records + " records");
+        tail += records;
+    }
+
+    /**
+     * Get the number of records the buffer can hold
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Get the number of fields in a record
+     *
+     * @return the number of fields
+     */
+    public int getFieldCount() {
+        return fields;
+    }
+
+    /**
+     * Get the name of a field
+     *
+     * @param field the index of the field
+     * @return the name of the field
+     */
+    public String getFieldName(int field) {
+        return fieldNames[field];
+    }
+
+    /**
+     * Get the number of records that were dropped because the buffer was full
+     *
+     * @return the number of dropped records
+     */
+    public int getDroppedCount() {
+        return dropped;
+    }
+}
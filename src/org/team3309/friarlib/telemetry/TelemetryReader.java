@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2013, FRC Team 3309 All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer. Redistributions in binary
+ * form must reproduce the above copyright notice, this list of conditions and
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.team3309.friarlib.telemetry;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * This class decodes a log written by {@link TelemetryWriter} one record at a
+ * time, for analysis after a match. A record that was cut off at the end of the
+ * log is ignored.
+ */
+public class TelemetryReader {
+
+    private final DataInputStream in;
+    private final String[] fieldNames;
+    private final double[] record;
+    private long timestamp = 0;
+
+    /**
+     * Create a new TelemetryReader and read the log header
+     *
+     * @param inputStream the log
+     * @throws IOException if the header is not a valid telemetry log header
+     */
+    public TelemetryReader(InputStream inputStream) throws IOException {
+        in = new DataInputStream(inputStream);
+        if (in.readInt() != TelemetryWriter.MAGIC)
+            throw new IOException("Not a telemetry log");
+        int version = in.readShort();
+        if (version != TelemetryWriter.VERSION)
+            throw new IOException("Unsupported telemetry log version " + version);
+        fieldNames = new String[in.readShort()];
+        for (int i = 0; i < fieldNames.length; i++) {
+            byte[] name = new byte[in.readUnsignedShort()];
+            in.readFully(name);
+            fieldNames[i] = new String(name, "UTF-8");
+        }
+        record = new double[fieldNames.length];
+    }
+
+    /**
+     * Read the next record
+     *
+     * @return false if there are no more records
+     * @throws IOException if the log could not be read
+     */
+    public boolean next() throws IOException {
+        try {
+            timestamp = in.readLong();
+            for (int i = 0; i < record.length; i++) {
+                record[i] = in.readDouble();
+            }
+            return true;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Get the timestamp of the current record
+     *
+     * @return the timestamp
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Get a field of the current record
+     *
+     * @param field the index of the field
+     * @return the value of the field
+     */
+    public double get(int field) {
+        return record[field];
+    }
+
+    /**
+     * Get a field of the current record by name
+     *
+     * @param name the name of the field
+     * @return the value of the field
+     */
+    public double get(String name) {
+        int field = getFieldIndex(name);
+        if (field < 0)
+            throw new IllegalArgumentException("No telemetry field named " + name);
+        return record[field];
+    }
+
+    /**
+     * Get the number of fields in a record
+     *
+     * @return the number of fields
+     */
+    public int getFieldCount() {
+        return fieldNames.length;
+    }
+
+    /**
+     * Get the name of a field
+     *
+     * @param field the index of the field
+     * @return the name of the field
+     */
+    public String getFieldName(int field) {
+        return fieldNames[field];
+    }
+
+    /**
+     * Find a field by name
+     *
+     * @param name the name of the field
+     * @return the index of the field, or -1 if there is no such field
+     */
+    public int getFieldIndex(String name) {
+        for (int i = 0; i < fieldNames.length; i++) {
+            if (fieldNames[i].equals(name))
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Close the log
+     *
+     * @throws IOException if the log could not be closed
+     */
+    public void close() throws IOException {
+        in.close();
+    }
+}
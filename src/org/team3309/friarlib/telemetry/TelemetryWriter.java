@@ -0,0 +1,317 @@
+/*
+ * Copyright (c) 2013, FRC Team 3309 All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer. Redistributions in binary
+ * form must reproduce the above copyright notice, this list of conditions and
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.team3309.friarlib.telemetry;
+
+import com.sun.squawk.microedition.io.FileConnection;
+
+import javax.microedition.io.Connector;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * This class drains a {@link TelemetryBuffer} into a binary log on a low
+ * priority thread, so control loops never wait on the file system.
+ * <p/>
+ * The log starts with a header: the magic number {@link #MAGIC} as an int,
+ * the format {@link #VERSION} and the number of fields as shorts, and the name
+ * of each field as a short byte count followed by the name encoded as UTF-8.
+ * Every record after that is the timestamp as a long followed by each field
+ * as a double, all big endian, so every record has the same width. Use
+ * {@link TelemetryReader} to decode it.
+ * <p/>
+ * If writing a block of records fails, the records stay in the buffer. A log
+ * opened with {@link #open(TelemetryBuffer, String)} is reopened after the
+ * last complete record, so the retry overwrites whatever part of the block
+ * made it to the file. A plain OutputStream cannot be repositioned, so after
+ * a failed write the writer stops writing to it rather than leave a torn
+ * record in the middle of the log.
+ */
+public class TelemetryWriter {
+
+    /**
+     * The first four bytes of every log, "FRLG"
+     */
+    public static final int MAGIC = 0x46524c47;
+    public static final int VERSION = 1;
+
+    private static final int kBlockRecords = 64;
+
+    private final TelemetryBuffer buffer;
+    private final FileConnection file;
+    private OutputStream out;
+    /**
+     * The length of the header and every record written so far, guarded by
+     * lock
+     */
+    private long logSize;
+    private boolean broken = false;
+    private final byte[] block;
+    private final int recordSize;
+    private final Object lock = new Object();
+    private Thread thread = null;
+    private volatile boolean running = false;
+    private volatile boolean closed = false;
+    private volatile long recordsWritten = 0;
+    private volatile int errors = 0;
+
+    /**
+     * Create a new TelemetryWriter and write the log header
+     *
+     * @param buffer the buffer to drain
+     * @param out    where to write the log
+     * @throws IOException if the header could not be written
+     */
+    public TelemetryWriter(TelemetryBuffer buffer, OutputStream out) throws IOException {
+        this(buffer, out, null);
+    }
+
+    private TelemetryWriter(TelemetryBuffer buffer, OutputStream out, FileConnection file) throws IOException {
+        this.buffer = buffer;
+        this.out = out;
+        this.file = file;
+        recordSize = 8 + 8 * buffer.getFieldCount();
+        block = new byte[recordSize * kBlockRecords];
+        logSize = writeHeader();
+    }
+
+    /**
+     * Create a TelemetryWriter that writes to a file on the cRIO, replacing
+     * the file if it exists
+     *
+     * @param buffer the buffer to drain
+     * @param path   the path of the log on the cRIO
+     * @return the new TelemetryWriter, which has not been started yet
+     * @throws IOException if the file could not be opened
+     */
+    public static TelemetryWriter open(TelemetryBuffer buffer, String path) throws IOException {
+        FileConnection fileConnection = (FileConnection) Connector.open("file:///" + path, Connector.READ_WRITE);
+        if (fileConnection.exists())
+            fileConnection.delete();
+        fileConnection.create();
+        return new TelemetryWriter(buffer, fileConnection.openOutputStream(), fileConnection);
+    }
+
+    /**
+     * @return the length of the header in bytes
+     */
+    private int writeHeader() throws IOException {
+        int length = 8;
+        byte[][] names = new byte[buffer.getFieldCount()][];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = buffer.getFieldName(i).getBytes("UTF-8");
+            length += 2 + names[i].length;
+        }
+        byte[] header = new byte[length];
+        putLong(header, 0, ((long) MAGIC << 32) | (VERSION << 16) | names.length);
+        int offset = 8;
+        for (int i = 0; i < names.length; i++) {
+            header[offset++] = (byte) (names[i].length >> 8);
+            header[offset++] = (byte) names[i].length;
+            System.arraycopy(names[i], 0, header, offset, names[i].length);
+            offset += names[i].length;
+        }
+        out.write(header);
+        return length;
+    }
+
+    /**
+     * Start draining the buffer on a background thread
+     *
+     * @param period how long to sleep when the buffer is empty, in milliseconds
+     */
+    public synchronized void start(final long period) {
+        if (running)
+            return;
+        if (closed)
+            throw new IllegalStateException("TelemetryWriter has been closed");
+        running = true;
+        thread = new Thread() {
+            public void run() {
+                drainLoop(period);
+            }
+        };
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Stop the background thread, write everything left in the buffer and
+     * close the log
+     */
+    public void close() {
+        Thread t;
+        synchronized (this) {
+            running = false;
+            t = thread;
+            thread = null;
+        }
+        if (t != null) {
+            t.interrupt();
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                // fall through and close anyway
+            }
+        }
+        synchronized (lock) {
+            if (closed)
+                return;
+            closed = true;
+            try {
+                try {
+                    drain();
+                } finally {
+                    try {
+                        out.close();
+                    } finally {
+                        if (file != null)
+                            file.close();
+                    }
+                }
+            } catch (IOException e) {
+                errors++;
+                System.err.println("Could not close telemetry log: " + e.getMessage());
+            }
+        }
+    }
+
+    private void drainLoop(long period) {
+        while (running) {
+            try {
+                if (drain() == 0)
+                    Thread.sleep(period);
+            } catch (IOException e) {
+                errors++;
+                System.err.println("Could not write telemetry: " + e.getMessage());
+                try {
+                    Thread.sleep(period);
+                } catch (InterruptedException ie) {
+                    // close interrupts the thread, the loop checks why
+                }
+            } catch (InterruptedException e) {
+                // close interrupts the thread, the loop checks why
+            }
+        }
+    }
+
+    /**
+     * Write every record that is waiting in the buffer to the log. This is
+     * called by the background thread, but can also be called directly when
+     * the writer is not started.
+     *
+     * @return the number of records written
+     * @throws IOException if the log could not be written, or a write to a
+     *                     plain OutputStream failed earlier
+     */
+    public int drain() throws IOException {
+        synchronized (lock) {
+            if (broken)
+                throw new IOException("Telemetry log is unusable after an earlier write error");
+            int fields = buffer.getFieldCount();
+            int total = 0;
+            int available;
+            while ((available = buffer.available()) > 0) {
+                int count = available < kBlockRecords ? available : kBlockRecords;
+                int offset = 0;
+                for (int i = 0; i < count; i++) {
+                    putLong(block, offset, buffer.getTimestamp(i));
+                    offset += 8;
+                    for (int j = 0; j < fields; j++) {
+                        putLong(block, offset, Double.doubleToLongBits(buffer.get(i, j)));
+                        offset += 8;
+                    }
+                }
+                try {
+                    out.write(block, 0, offset);
+                } catch (IOException e) {
+                    recover();
+                    throw e;
+                }
+                logSize += offset;
+                buffer.release(count);
+                total += count;
+                recordsWritten += count;
+            }
+            if (total > 0)
+                out.flush();
+            return total;
+        }
+    }
+
+    /**
+     * After a block was only partly written, reopen the file after the last
+     * complete record so the block is written over when it is retried. Must
+     * hold the lock.
+     */
+    private void recover() {
+        if (file == null) {
+            broken = true;
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            // the stream is being replaced anyway
+        }
+        try {
+            out = file.openOutputStream(logSize);
+        } catch (IOException e) {
+            broken = true;
+        }
+    }
+
+    private static void putLong(byte[] b, int offset, long v) {
+        for (int i = 7; i >= 0; i--) {
+            b[offset + i] = (byte) v;
+            v >>>= 8;
+        }
+    }
+
+    /**
+     * Get the number of records written to the log
+     *
+     * @return the number of records
+     */
+    public long getRecordsWritten() {
+        return recordsWritten;
+    }
+
+    /**
+     * Get the number of times writing to the log failed
+     *
+     * @return the number of errors
+     */
+    public int getErrorCount() {
+        return errors;
+    }
+
+    /**
+     * Check if the background thread is running
+     *
+     * @return true if it is running
+     */
+    public boolean isRunning() {
+        return running;
+    }
+}
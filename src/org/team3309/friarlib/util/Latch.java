@@ -23,22 +23,28 @@
 
 package org.team3309.friarlib.util;
 
+import edu.wpi.first.wpilibj.buttons.ButtonEdges;
+
 /**
  * This class latches a boolean variable. This class keeps track of the value of
  * a boolean and can tell you when it is changed (only when update is called)
+ * <p>
+ * The value is kept as a one button word in a {@link ButtonEdges}, the same
+ * edge detection the ButtonEngine uses for joystick buttons, so a Latch can
+ * also tell you whether the last change was a rising or a falling edge.
  *
  * @author vmagro
  *
  */
 public class Latch {
 
-	private boolean lastVal = false;
+	private final ButtonEdges edges;
 
 	/**
 	 * Create a new Latch with an initial value of false
 	 */
 	public Latch(){
-		lastVal = false;
+		this(false);
 	}
 
 	/**
@@ -46,7 +52,7 @@ public class Latch {
 	 * @param initialVal the initial value of the Latch
 	 */
 	public Latch(boolean initialVal){
-		lastVal = initialVal;
+		edges = new ButtonEdges(initialVal ? 1 : 0);
 	}
 
 	/**
@@ -58,9 +64,25 @@ public class Latch {
 	 *         it is the same
 	 */
 	public boolean update(boolean newVal) {
-		boolean result = newVal == !lastVal;
-		lastVal = newVal;
-		return result;
+		return edges.update(newVal ? 1 : 0) != 0;
+	}
+
+	/**
+	 * Check whether the last update changed the value from false to true
+	 *
+	 * @return true if the last update was a rising edge
+	 */
+	public boolean wasRising() {
+		return edges.getPressed() != 0;
+	}
+
+	/**
+	 * Check whether the last update changed the value from true to false
+	 *
+	 * @return true if the last update was a falling edge
+	 */
+	public boolean wasFalling() {
+		return edges.getReleased() != 0;
 	}
 
     /**
@@ -68,7 +90,7 @@ public class Latch {
      * @return the value in the latch
      */
     public boolean get(){
-        return lastVal;
+        return edges.getButtons() != 0;
     }
 
 }
@@ -1,13 +1,41 @@
 package org.team3309.friarlib.util;
 
-import java.util.Arrays;
-import java.util.Enumeration;
-import java.util.Hashtable;
-
+/**
+ * A table of key-value pairs that can return values in between keys using the
+ * configured interpolator. Keys and values are stored in parallel primitive
+ * arrays sorted by key, so lookups are a binary search and never allocate.
+ * <p/>
+ * Adding keys in ascending order is O(1) amortized, and a key added out of
+ * order is inserted in place. {@link #putAll(double[], double[])} loads a
+ * whole table with a single sort no matter what order the points are in. If
+ * the same key is put more than once, the last value wins.
+ * <p/>
+ * The cubic interpolators keep the coefficients of every segment up to date
+ * as the table changes, so a cubic lookup is a binary search plus one
+ * polynomial evaluation. The tangent at a point only depends on the points
+ * within two of it, so a put only recomputes the few segments around the key
+ * it changed, and loading a cubic table one put at a time is still O(1)
+ * amortized per point.
+ * <p/>
+ * All the work is done when the table is changed, so get() only reads and a
+ * table that is no longer changed can be read from any thread.
+ */
 public class LookupTable {
 
-    private Hashtable table = new Hashtable();
+    private static final int kDefaultCapacity = 16;
+
     private double[] keys = null;
+    private double[] values = null;
+    private int size = 0;
+
+    /**
+     * Cubic coefficients for each segment, so that between keys[i] and
+     * keys[i + 1] the value is values[i] + h * (b[i] + h * (c[i] + h * d[i]))
+     * where h = x - keys[i]
+     */
+    private double[] b = null;
+    private double[] c = null;
+    private double[] d = null;
 
     private Interpolator mInterpolator = Interpolator.kNone;
 
@@ -20,9 +48,21 @@ public class LookupTable {
 
         private static final int kNoneVal = 0;
         private static final int kLinearVal = 1;
+        private static final int kMonotoneCubicVal = 2;
+        private static final int kAkimaVal = 3;
 
         public static final Interpolator kNone = new Interpolator(kNoneVal);
         public static final Interpolator kLinear = new Interpolator(kLinearVal);
+        /**
+         * Piecewise cubic that never overshoots the data: the curve is
+         * monotonic wherever the points are (Fritsch-Carlson)
+         */
+        public static final Interpolator kMonotoneCubic = new Interpolator(kMonotoneCubicVal);
+        /**
+         * Piecewise cubic that follows the local shape of the data and is
+         * not thrown off by a single outlying point (Akima)
+         */
+        public static final Interpolator kAkima = new Interpolator(kAkimaVal);
     }
 
     /**
@@ -38,7 +78,22 @@ public class LookupTable {
      * @param interpolator
      */
     public LookupTable(Interpolator interpolator) {
+        this(interpolator, kDefaultCapacity);
+    }
+
+    /**
+     * Create a new LookupTable with the specified interpolator and room for
+     * the given number of points before the table has to grow
+     *
+     * @param interpolator
+     * @param capacity     the number of points to allocate space for
+     */
+    public LookupTable(Interpolator interpolator, int capacity) {
+        if (capacity < 1)
+            capacity = 1;
         this.mInterpolator = interpolator;
+        keys = new double[capacity];
+        values = new double[capacity];
     }
 
     /**
@@ -48,6 +103,7 @@ public class LookupTable {
      */
     public void setInterpolator(Interpolator interpolator) {
         this.mInterpolator = interpolator;
+        updateCoefficients();
     }
 
     /**
@@ -57,35 +113,240 @@ public class LookupTable {
      * @param value
      */
     public void put(double key, double value) {
-        table.put(key, value);
-        update();
+        int i;
+        if (size == 0 || key > keys[size - 1]) {
+            ensureCapacity(size + 1);
+            i = size;
+            keys[size] = key;
+            values[size] = value;
+            size++;
+        } else {
+            i = indexOf(key);
+            if (i >= 0) {
+                values[i] = value;
+            } else {
+                i = -(i + 1);
+                insert(i, key, value);
+            }
+        }
+        // the slopes on either side of point i changed, and each tangent
+        // depends on the two slopes on either side of its point
+        updateCoefficients(i - 2, i + 2);
+    }
+
+    /**
+     * Add many key-value pairs to the table at once. The keys do not need to
+     * be in order.
+     *
+     * @param keys   the keys to add
+     * @param values the values for each key, must be the same length as keys
+     */
+    public void putAll(double[] keys, double[] values) {
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException(
+                    "LookupTable: keys and values must be the same length");
+        }
+        ensureCapacity(size + keys.length);
+        boolean sorted = true;
+        for (int i = 0; i < keys.length; i++) {
+            if (size > 0 && keys[i] <= this.keys[size - 1])
+                sorted = false;
+            this.keys[size] = keys[i];
+            this.values[size] = values[i];
+            size++;
+        }
+        if (!sorted)
+            sort();
+        updateCoefficients();
     }
 
     /**
-     * Update the array of keys, sorting it in ascending order
+     * Remove every point from the table
      */
-    private void update() {
-        keys = new double[table.size()];
-        Enumeration tableKeys = table.keys();
-        for (int i = 0; i < table.size() && tableKeys.hasMoreElements(); i++) {
-            keys[i] = (Double) tableKeys.nextElement();
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Get the number of points in the table
+     *
+     * @return the number of distinct keys
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Insert a point into the arrays at the given index, growing them if
+     * needed
+     */
+    private void insert(int index, double key, double value) {
+        ensureCapacity(size + 1);
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(values, index, values, index + 1, size - index);
+        if (b != null) {
+            // keep the segments after the new point lined up with their keys
+            System.arraycopy(b, index, b, index + 1, size - index);
+            System.arraycopy(c, index, c, index + 1, size - index);
+            System.arraycopy(d, index, d, index + 1, size - index);
         }
-        Arrays.sort(keys);
+        keys[index] = key;
+        values[index] = value;
+        size++;
+    }
+
+    /**
+     * Make sure the arrays can hold at least the given number of points
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity <= keys.length)
+            return;
+        int newCapacity = Math.max(capacity, keys.length * 2);
+        double[] newKeys = new double[newCapacity];
+        double[] newValues = new double[newCapacity];
+        System.arraycopy(keys, 0, newKeys, 0, size);
+        System.arraycopy(values, 0, newValues, 0, size);
+        keys = newKeys;
+        values = newValues;
+        if (b != null) {
+            b = grow(b, newCapacity);
+            c = grow(c, newCapacity);
+            d = grow(d, newCapacity);
+        }
+    }
+
+    private double[] grow(double[] array, int capacity) {
+        double[] newArray = new double[capacity];
+        System.arraycopy(array, 0, newArray, 0, size);
+        return newArray;
+    }
+
+    /**
+     * Sort the keys in ascending order. Points with equal keys keep the value
+     * that was put last.
+     */
+    private void sort() {
+        double[] tmpKeys = new double[size];
+        double[] tmpValues = new double[size];
+        mergeSort(0, size, tmpKeys, tmpValues);
+
+        // the sort is stable, so the last of each run of equal keys is the
+        // most recent put
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (n > 0 && keys[n - 1] == keys[i]) {
+                values[n - 1] = values[i];
+            } else {
+                keys[n] = keys[i];
+                values[n] = values[i];
+                n++;
+            }
+        }
+        size = n;
+    }
+
+    /**
+     * Stable merge sort of the parallel key and value arrays in [from, to)
+     */
+    private void mergeSort(int from, int to, double[] tmpKeys, double[] tmpValues) {
+        if (to - from < 2)
+            return;
+        int mid = (from + to) >>> 1;
+        mergeSort(from, mid, tmpKeys, tmpValues);
+        mergeSort(mid, to, tmpKeys, tmpValues);
+        if (keys[mid - 1] <= keys[mid])
+            return;
+
+        int i = from, j = mid, k = from;
+        while (i < mid && j < to) {
+            if (keys[j] < keys[i]) {
+                tmpKeys[k] = keys[j];
+                tmpValues[k++] = values[j++];
+            } else {
+                tmpKeys[k] = keys[i];
+                tmpValues[k++] = values[i++];
+            }
+        }
+        while (i < mid) {
+            tmpKeys[k] = keys[i];
+            tmpValues[k++] = values[i++];
+        }
+        while (j < to) {
+            tmpKeys[k] = keys[j];
+            tmpValues[k++] = values[j++];
+        }
+        System.arraycopy(tmpKeys, from, keys, from, to - from);
+        System.arraycopy(tmpValues, from, values, from, to - from);
+    }
+
+    /**
+     * Find the index of a key in the sorted arrays
+     *
+     * @return the index of the key, or (-(insertion point) - 1) if it is
+     *         not in the table
+     */
+    private int indexOf(double key) {
+        int lo = 0;
+        int hi = size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid] < key)
+                lo = mid + 1;
+            else if (keys[mid] > key)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+        return -(lo + 1);
+    }
+
+    /**
+     * Find the first key that is greater than x. x must be between the first
+     * and last keys.
+     *
+     * @return an index between 1 and size - 1
+     */
+    private int upperIndex(double x) {
+        int lo = 1;
+        int hi = size - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid] > x)
+                hi = mid;
+            else
+                lo = mid + 1;
+        }
+        return lo;
     }
 
     /**
      * Get the value from the LookupTable using the configured interpolator
      *
      * @param x the key we are searching for
-     * @return
+     * @return the value, or Double.MIN_VALUE if the table is empty
      */
     public double get(double x) {
+        if (size == 0)
+            return Double.MIN_VALUE;
+        if (x <= keys[0])
+            return values[0];
+        if (x >= keys[size - 1])
+            return values[size - 1];
+
+        int i = upperIndex(x);
+        if (keys[i - 1] == x)
+            return values[i - 1];
+
         switch (mInterpolator.val) {
             case Interpolator.kNoneVal:
-                return getNone(x);
+                return getNone(x, i);
             case Interpolator.kLinearVal:
-                return getLinear(x);
+                return getLinear(x, i);
+            case Interpolator.kMonotoneCubicVal:
+            case Interpolator.kAkimaVal:
+                return getCubic(x, i);
         }
+        // not reached, every Interpolator is handled above
         return Double.MIN_VALUE;
     }
 
@@ -93,52 +354,188 @@ public class LookupTable {
      * Get a value using a linear interpolation
      *
      * @param x
+     * @param i the index of the first key greater than x
      * @return
      */
-    private double getLinear(double x) {
-        if (x < keys[0])
-            return (Double) table.get(keys[0]);
-        if (x > keys[keys.length - 1])
-            return (Double) table.get(keys[keys.length - 1]);
-        if (table.containsKey(x))
-            return (Double) table.get(x);
-        for (int i = 1; i < keys.length; i++) {
-            if (x < keys[i] && x > keys[i - 1]) { //found the keys that x is between
-                double x1 = keys[i - 1];
-                double x2 = keys[i];
-                double y1 = (Double) table.get(keys[i - 1]);
-                double y2 = (Double) table.get(keys[i]);
-                double slope = (y2 - y1) / (x2 - x1);
-                double val = y1 + slope * (x - x1);
-                return val;
-            }
+    private double getLinear(double x, int i) {
+        double x1 = keys[i - 1];
+        double x2 = keys[i];
+        double y1 = values[i - 1];
+        double y2 = values[i];
+        double slope = (y2 - y1) / (x2 - x1);
+        return y1 + slope * (x - x1);
+    }
+
+    /**
+     * Get a value using the precomputed cubic coefficients
+     *
+     * @param x
+     * @param i the index of the first key greater than x
+     * @return
+     */
+    private double getCubic(double x, int i) {
+        int s = i - 1;
+        double h = x - keys[s];
+        return values[s] + h * (b[s] + h * (c[s] + h * d[s]));
+    }
+
+    /**
+     * Recompute the cubic coefficients for every segment if the configured
+     * interpolator needs them
+     */
+    private void updateCoefficients() {
+        updateCoefficients(0, size - 1);
+    }
+
+    /**
+     * Recompute the tangents at points from through to, and the coefficients
+     * of every segment that touches one of them, if the configured
+     * interpolator needs them
+     */
+    private void updateCoefficients(int from, int to) {
+        int val = mInterpolator.val;
+        if (val != Interpolator.kMonotoneCubicVal
+                && val != Interpolator.kAkimaVal)
+            return;
+        if (b == null) {
+            b = new double[keys.length];
+            c = new double[keys.length];
+            d = new double[keys.length];
+            from = 0;
+            to = size - 1;
+        }
+        if (size < 2)
+            return;
+
+        int segments = size - 1;
+        if (from < 0)
+            from = 0;
+        if (to > segments)
+            to = segments;
+        for (int i = from; i <= to; i++) {
+            if (segments == 1)
+                b[i] = slope(0);
+            else if (val == Interpolator.kMonotoneCubicVal)
+                b[i] = monotoneTangent(i, segments);
+            else
+                b[i] = akimaTangent(i, segments);
+        }
+
+        int last = Math.min(to, segments - 1);
+        for (int i = Math.max(from - 1, 0); i <= last; i++) {
+            double h = keys[i + 1] - keys[i];
+            double slope = slope(i);
+            double t0 = b[i];
+            double t1 = b[i + 1];
+            c[i] = (3 * slope - 2 * t0 - t1) / h;
+            d[i] = (t0 + t1 - 2 * slope) / (h * h);
         }
-        return Double.MIN_VALUE;
+    }
+
+    /**
+     * Get the slope of the segment between keys[i] and keys[i + 1]
+     */
+    private double slope(int i) {
+        return (values[i + 1] - values[i]) / (keys[i + 1] - keys[i]);
+    }
+
+    /**
+     * Compute the Fritsch-Carlson tangent at point i. The tangent is scaled
+     * down by whichever of the two segments next to it needs it scaled the
+     * most, rather than by each segment in turn, so that it only depends on
+     * the points near it.
+     */
+    private double monotoneTangent(int i, int segments) {
+        double scale = 1;
+        if (i > 0)
+            scale = Math.min(scale, monotoneScale(i - 1, segments));
+        if (i < segments)
+            scale = Math.min(scale, monotoneScale(i, segments));
+        return scale * unlimitedTangent(i, segments);
+    }
+
+    /**
+     * Get how much the tangents at both ends of segment s have to be scaled
+     * by so the segment does not overshoot
+     */
+    private double monotoneScale(int s, int segments) {
+        double slope = slope(s);
+        if (slope == 0)
+            return 0;
+        double alpha = unlimitedTangent(s, segments) / slope;
+        double beta = unlimitedTangent(s + 1, segments) / slope;
+        double dist = alpha * alpha + beta * beta;
+        if (dist > 9)
+            return 3 / Math.sqrt(dist);
+        return 1;
+    }
+
+    /**
+     * Get the tangent at point i before it is limited to keep the curve
+     * monotonic: the average of the slopes on either side, or 0 at a peak
+     * or valley
+     */
+    private double unlimitedTangent(int i, int segments) {
+        if (i == 0)
+            return slope(0);
+        if (i == segments)
+            return slope(segments - 1);
+        double m0 = slope(i - 1);
+        double m1 = slope(i);
+        if (m0 * m1 <= 0)
+            return 0;
+        return (m0 + m1) / 2;
+    }
+
+    /**
+     * Compute the Akima tangent at point i. The slopes are extended by two
+     * segments past each end, as in Akima's paper.
+     */
+    private double akimaTangent(int i, int segments) {
+        double m0 = akimaSlope(i - 2, segments);
+        double m1 = akimaSlope(i - 1, segments);
+        double m2 = akimaSlope(i, segments);
+        double m3 = akimaSlope(i + 1, segments);
+        double w1 = Math.abs(m3 - m2);
+        double w2 = Math.abs(m1 - m0);
+        if (w1 + w2 == 0)
+            return (m1 + m2) / 2;
+        return (w1 * m1 + w2 * m2) / (w1 + w2);
+    }
+
+    /**
+     * Get the slope of segment i, extrapolating linearly for the segments
+     * past either end of the table
+     */
+    private double akimaSlope(int i, int segments) {
+        if (i < 0) {
+            double m0 = slope(0);
+            double m1 = slope(1);
+            double mMinus1 = 2 * m0 - m1;
+            return i == -1 ? mMinus1 : 2 * mMinus1 - m0;
+        }
+        if (i >= segments) {
+            double mLast = slope(segments - 1);
+            double mPrev = slope(segments - 2);
+            double mNext = 2 * mLast - mPrev;
+            return i == segments ? mNext : 2 * mNext - mLast;
+        }
+        return slope(i);
     }
 
     /**
      * Get a value using no interpolation
      *
      * @param x
+     * @param i the index of the first key greater than x
      * @return
      */
-    private double getNone(double x) {
-        if (x < keys[0])
-            return (Double) table.get(keys[0]);
-        if (x > keys[keys.length - 1])
-            return (Double) table.get(keys[keys.length - 1]);
-        if (table.containsKey(x))
-            return (Double) table.get(x);
-        for (int i = 1; i < keys.length; i++) {
-            if (x < keys[i] && x > keys[i - 1]) { //found the keys that x is between
-                double diff = keys[i] - keys[i - 1];
-                if (x <= keys[i - 1] + diff / 2)
-                    return (Double) table.get(keys[i - 1]);
-                else
-                    return (Double) table.get(keys[i]);
-            }
-        }
-        return Double.MIN_VALUE;
+    private double getNone(double x, int i) {
+        double diff = keys[i] - keys[i - 1];
+        if (x <= keys[i - 1] + diff / 2)
+            return values[i - 1];
+        else
+            return values[i];
     }
 
 }
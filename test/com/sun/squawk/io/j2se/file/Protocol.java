@@ -0,0 +1,148 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+package com.sun.squawk.io.j2se.file;
+
+import com.sun.squawk.io.ConnectionBase;
+import com.sun.squawk.microedition.io.FileConnection;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import javax.microedition.io.Connection;
+import javax.microedition.io.ConnectionNotFoundException;
+
+/**
+ * The file protocol used when the code runs on a desktop JVM instead of the
+ * cRIO. Squawk's {@link javax.microedition.io.Connector} looks for protocols
+ * under com.sun.squawk.io.j2se first when it is not running on Squawk, so
+ * "file:///name" opens name in the directory set with {@link #setRoot(File)}.
+ * Until a directory is set no file can be opened, as if there were no file
+ * system.
+ */
+public class Protocol extends ConnectionBase implements FileConnection {
+
+    private static File root = null;
+
+    private File file;
+
+    /**
+     * Sets the directory that stands in for the root of the cRIO file system.
+     *
+     * @param root the directory, or null to have no file system
+     */
+    public static synchronized void setRoot(File root) {
+        Protocol.root = root;
+    }
+
+    private static synchronized File getRoot() {
+        return root;
+    }
+
+    public Connection open(String protocol, String name, int mode, boolean timeouts) throws IOException {
+        File dir = getRoot();
+        if (dir == null) {
+            throw new ConnectionNotFoundException("No file system for " + name);
+        }
+        while (name.startsWith("/")) {
+            name = name.substring(1);
+        }
+        file = new File(dir, name);
+        return this;
+    }
+
+    public boolean isOpen() {
+        return file != null;
+    }
+
+    public InputStream openInputStream() throws IOException {
+        return new FileInputStream(file);
+    }
+
+    public DataInputStream openDataInputStream() throws IOException {
+        return new DataInputStream(openInputStream());
+    }
+
+    public OutputStream openOutputStream() throws IOException {
+        return openOutputStream(0);
+    }
+
+    public DataOutputStream openDataOutputStream() throws IOException {
+        return new DataOutputStream(openOutputStream());
+    }
+
+    /**
+     * Opens a stream that writes over the file starting at an offset. Like on
+     * the cRIO, the file is not truncated, so bytes past the end of what is
+     * written are left alone.
+     */
+    public OutputStream openOutputStream(long offset) throws IOException {
+        final RandomAccessFile output = new RandomAccessFile(file, "rw");
+        output.seek(offset);
+        return new OutputStream() {
+            public void write(int b) throws IOException {
+                output.write(b);
+            }
+
+            public void write(byte[] b, int off, int len) throws IOException {
+                output.write(b, off, len);
+            }
+
+            public void close() throws IOException {
+                output.close();
+            }
+        };
+    }
+
+    public long fileSize() throws IOException {
+        return file.length();
+    }
+
+    /**
+     * Creates the file, or empties it if it already exists, which is what
+     * {@link edu.wpi.first.wpilibj.Preferences} counts on when it rewrites
+     * the preferences file.
+     */
+    public void create() throws IOException {
+        new FileOutputStream(file).close();
+    }
+
+    public boolean exists() {
+        return file.exists();
+    }
+
+    public boolean isDirectory() {
+        return file.isDirectory();
+    }
+
+    public void delete() throws IOException {
+        if (!file.delete()) {
+            throw new IOException("Could not delete " + file);
+        }
+    }
+
+    public String getName() {
+        return file.getName();
+    }
+
+    public String getPath() {
+        return file.getParent();
+    }
+
+    public String getURL() {
+        return "file:///" + file.getName();
+    }
+
+    public void close() {
+        file = null;
+    }
+}
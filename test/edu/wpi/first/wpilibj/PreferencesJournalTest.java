@@ -0,0 +1,216 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+package edu.wpi.first.wpilibj;
+
+import static org.junit.Assert.*;
+
+import com.sun.squawk.io.j2se.file.Protocol;
+import edu.wpi.first.wpilibj.networktables.NetworkTable;
+import edu.wpi.first.wpilibj.networktables.NetworkTableProvider;
+import edu.wpi.first.wpilibj.networktables2.server.NetworkTableServer;
+import edu.wpi.first.wpilibj.networktables2.stream.IOStream;
+import edu.wpi.first.wpilibj.networktables2.stream.IOStreamProvider;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Checks that journaled {@link Preferences} survive losing power part way
+ * through a write. The cRIO file system is backed by a temporary directory
+ * through the desktop {@link Protocol}, and the Preferences table is served by
+ * a NetworkTable server that no dashboard ever connects to.
+ */
+public class PreferencesJournalTest {
+
+    private static final String FILE = "wpilib-preferences.ini";
+    private static final String JOURNAL = "wpilib-preferences.journal";
+
+    private static File root;
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        root = File.createTempFile("preferences", "");
+        root.delete();
+        root.mkdir();
+        Protocol.setRoot(root);
+        try {
+            NetworkTable.setTableProvider(new NetworkTableProvider(new NetworkTableServer(new IOStreamProvider() {
+                public synchronized IOStream accept() throws IOException {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                    }
+                    throw new IOException("Closed");
+                }
+
+                public synchronized void close() {
+                    notifyAll();
+                }
+            })));
+        } catch (IllegalStateException e) {
+            // another test already set up the tables
+        }
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        Protocol.setRoot(null);
+        new File(root, FILE).delete();
+        new File(root, JOURNAL).delete();
+        root.delete();
+    }
+
+    @Before
+    public void setUp() {
+        new File(root, FILE).delete();
+        new File(root, JOURNAL).delete();
+    }
+
+    @Test
+    public void tornRecordIsDroppedAndWrittenOver() throws Exception {
+        write(FILE, "a=\"1\"\n");
+        // power was lost while the last record was being appended
+        write(JOURNAL, "b=\"2\"\nlong=\"12");
+
+        Preferences preferences = newPreferences();
+        assertEquals("1", preferences.getString("a", null));
+        assertEquals("2", preferences.getString("b", null));
+        assertFalse(preferences.containsKey("long"));
+
+        preferences.setJournaled(true);
+        preferences.putString("c", "3");
+        preferences.save();
+        // the new record starts where the torn one did, and the rest of the
+        // torn one is blanked out so it can not be read as part of a record
+        waitFor(JOURNAL, "b=\"2\"\nc=\"3\"\n\n\n");
+
+        preferences = newPreferences();
+        assertEquals("1", preferences.getString("a", null));
+        assertEquals("2", preferences.getString("b", null));
+        assertEquals("3", preferences.getString("c", null));
+        assertFalse(preferences.containsKey("long"));
+    }
+
+    @Test
+    public void cutOffFileIsRestoredFromJournal() throws Exception {
+        // power was lost while compacting: the journal has every value, and
+        // the file was cut off part way through being rewritten
+        write(JOURNAL, "a=\"1\"\nb=\"2\"\n");
+        write(FILE, "a=\"1\"\nb=\"ga");
+
+        Preferences preferences = newPreferences();
+        assertEquals("1", preferences.getString("a", null));
+        assertEquals("2", preferences.getString("b", null));
+    }
+
+    @Test
+    public void compactionFoldsJournalIntoFile() throws Exception {
+        Preferences preferences = newPreferences();
+        preferences.setJournaled(true);
+        StringBuffer value = new StringBuffer();
+        for (int i = 0; i < 80; i++) {
+            value.append((char) ('a' + i % 26));
+        }
+        for (int i = 0; i < 60; i++) {
+            preferences.putString("key" + i, value.toString() + i);
+        }
+        preferences.save();
+        for (int i = 0; i < 100 && (new File(root, JOURNAL).exists() || read(FILE) == null); i++) {
+            Thread.sleep(50);
+        }
+        assertFalse(new File(root, JOURNAL).exists());
+
+        preferences = newPreferences();
+        for (int i = 0; i < 60; i++) {
+            assertEquals(value.toString() + i, preferences.getString("key" + i, null));
+        }
+    }
+
+    @Test
+    public void multiLineValueSurvivesJournal() throws Exception {
+        Preferences preferences = newPreferences();
+        preferences.setJournaled(true);
+        preferences.putString("lines", "one\ntwo\r\nthree");
+        preferences.putString("path", "C:\\new\\table");
+        preferences.save();
+        String journal = waitFor(JOURNAL, "path=");
+        assertTrue(journal.indexOf("lines=\"one\\ntwo\\r\\nthree\"\n") != -1);
+        assertTrue(journal.indexOf("path=\"C:\\\\new\\\\table\"\n") != -1);
+
+        preferences = newPreferences();
+        assertEquals("one\ntwo\r\nthree", preferences.getString("lines", null));
+        assertEquals("C:\\new\\table", preferences.getString("path", null));
+    }
+
+    /**
+     * Creates a Preferences that reads the files again, as if the robot had
+     * just booted.
+     */
+    private static Preferences newPreferences() throws Exception {
+        Constructor constructor = Preferences.class.getDeclaredConstructor(new Class[0]);
+        constructor.setAccessible(true);
+        return (Preferences) constructor.newInstance(new Object[0]);
+    }
+
+    private static void write(String name, String contents) throws IOException {
+        OutputStream output = new FileOutputStream(new File(root, name));
+        try {
+            output.write(contents.getBytes());
+        } finally {
+            output.close();
+        }
+    }
+
+    /**
+     * @return the contents of a file, or null if it does not exist
+     */
+    private static String read(String name) throws IOException {
+        File file = new File(root, name);
+        if (!file.exists()) {
+            return null;
+        }
+        InputStream input = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream contents = new ByteArrayOutputStream();
+            for (int b = input.read(); b != -1; b = input.read()) {
+                contents.write(b);
+            }
+            return contents.toString();
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Waits for the journal thread to write a file that contains some text.
+     *
+     * @return the contents of the file
+     */
+    private static String waitFor(String name, String text) throws Exception {
+        String contents = null;
+        for (int i = 0; i < 100; i++) {
+            contents = read(name);
+            if (contents != null && contents.indexOf(text) != -1) {
+                return contents;
+            }
+            Thread.sleep(50);
+        }
+        fail(name + " should contain " + text + " but was " + contents);
+        return null;
+    }
+}
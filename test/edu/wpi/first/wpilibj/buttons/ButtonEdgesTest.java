@@ -0,0 +1,42 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+package edu.wpi.first.wpilibj.buttons;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class ButtonEdgesTest {
+
+    @Test
+    public void findsPressedAndReleasedButtons() {
+        ButtonEdges edges = new ButtonEdges();
+        assertEquals(0x5, edges.update(0x5));
+        assertEquals(0x5, edges.getPressed());
+        assertEquals(0x0, edges.getReleased());
+
+        assertEquals(0x3, edges.update(0x6));
+        assertEquals(0x6, edges.getButtons());
+        assertEquals(0x2, edges.getPressed());
+        assertEquals(0x1, edges.getReleased());
+        assertEquals(0x3, edges.getChanged());
+
+        assertEquals(0x0, edges.update(0x6));
+        assertEquals(0x0, edges.getPressed());
+        assertEquals(0x0, edges.getReleased());
+    }
+
+    @Test
+    public void heldButtonsAreNotPressed() {
+        ButtonEdges edges = new ButtonEdges(0x80000001);
+        assertEquals(0x0, edges.update(0x80000001));
+        assertEquals(0x0, edges.getPressed());
+
+        edges.update(0x1);
+        assertEquals(0x80000000, edges.getReleased());
+    }
+}
@@ -0,0 +1,211 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+package edu.wpi.first.wpilibj.buttons;
+
+import static org.junit.Assert.*;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.command.Command;
+import edu.wpi.first.wpilibj.command.Scheduler;
+import edu.wpi.first.wpilibj.command.Subsystem;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs {@link ButtonEngine} bindings through the {@link Scheduler}, with the
+ * joysticks set on the desktop {@link DriverStation}. Bindings can not be
+ * removed, so each test uses buttons no other test has bound.
+ */
+public class ButtonEngineTest {
+
+    private static final Subsystem subsystem = new Subsystem() {
+        protected void initDefaultCommand() {
+        }
+    };
+
+    private static class TestCommand extends Command {
+
+        int initialized = 0;
+
+        TestCommand(boolean requires) {
+            if (requires) {
+                requires(subsystem);
+            }
+            setRunWhenDisabled(true);
+        }
+
+        protected void initialize() {
+            initialized++;
+        }
+
+        protected void execute() {
+        }
+
+        protected boolean isFinished() {
+            return false;
+        }
+
+        protected void end() {
+        }
+
+        protected void interrupted() {
+        }
+    }
+
+    private final ButtonEngine engine = ButtonEngine.getInstance();
+
+    @Before
+    public void setUp() {
+        for (int stick = 1; stick <= DriverStation.kJoystickPorts; stick++) {
+            DriverStation.getInstance().setStickButtons(stick, 0);
+        }
+        Scheduler.getInstance().removeAll();
+        tick();
+    }
+
+    private static void tick() {
+        Scheduler.getInstance().run();
+    }
+
+    private static void press(int stick, int buttons) {
+        DriverStation.getInstance().setStickButtons(stick, buttons);
+    }
+
+    @Test
+    public void whenPressedStartsOncePerPress() {
+        TestCommand command = new TestCommand(false);
+        engine.whenPressed(1, 1, command);
+
+        press(1, 0x1);
+        tick();
+        tick();
+        assertTrue(command.isRunning());
+        assertEquals(1, command.initialized);
+
+        command.cancel();
+        tick();
+        assertFalse(command.isRunning());
+
+        press(1, 0x0);
+        tick();
+        press(1, 0x1);
+        tick();
+        tick();
+        assertTrue(command.isRunning());
+        assertEquals(2, command.initialized);
+    }
+
+    @Test
+    public void whileHeldCancelsOnRelease() {
+        TestCommand command = new TestCommand(false);
+        engine.whileHeld(1, 2, command);
+
+        press(1, 0x2);
+        tick();
+        tick();
+        assertTrue(command.isRunning());
+        assertEquals(1, command.initialized);
+
+        press(1, 0x0);
+        tick();
+        assertFalse(command.isRunning());
+    }
+
+    @Test
+    public void whenReleasedStartsOnRelease() {
+        TestCommand command = new TestCommand(false);
+        engine.whenReleased(1, 3, command);
+
+        press(1, 0x4);
+        tick();
+        assertFalse(command.isRunning());
+
+        press(1, 0x0);
+        tick();
+        assertTrue(command.isRunning());
+    }
+
+    @Test
+    public void buttonDownWhenBoundIsNotPressed() {
+        press(1, 0x8);
+        TestCommand command = new TestCommand(false);
+        engine.whenPressed(1, 4, command);
+
+        tick();
+        assertFalse(command.isRunning());
+    }
+
+    @Test
+    public void firstBoundWinsOnOtherButton() {
+        TestCommand first = new TestCommand(true);
+        TestCommand second = new TestCommand(true);
+        engine.whenPressed(2, 1, first);
+        engine.whenPressed(2, 2, second);
+
+        press(2, 0x3);
+        tick();
+        assertTrue(first.isRunning());
+        assertFalse(second.isRunning());
+    }
+
+    @Test
+    public void firstBoundWinsOnOtherStick() {
+        TestCommand first = new TestCommand(true);
+        TestCommand second = new TestCommand(true);
+        engine.whenPressed(3, 1, first);
+        engine.whenPressed(4, 1, second);
+
+        press(3, 0x1);
+        press(4, 0x1);
+        tick();
+        assertTrue(first.isRunning());
+        assertFalse(second.isRunning());
+    }
+
+    @Test
+    public void firstBoundWinsOnSameButton() {
+        TestCommand first = new TestCommand(true);
+        TestCommand second = new TestCommand(true);
+        engine.whenPressed(2, 3, first);
+        engine.whenPressed(2, 3, second);
+
+        press(2, 0x4);
+        tick();
+        assertTrue(first.isRunning());
+        assertFalse(second.isRunning());
+    }
+
+    @Test
+    public void keepsPlaceAmongOtherTriggers() {
+        InternalButton before = new InternalButton();
+        TestCommand beforeCommand = new TestCommand(true);
+        before.whenPressed(beforeCommand);
+        TestCommand engineCommand = new TestCommand(true);
+        engine.whenPressed(2, 4, engineCommand);
+        InternalButton after = new InternalButton();
+        TestCommand afterCommand = new TestCommand(true);
+        after.whenPressed(afterCommand);
+
+        press(2, 0x8);
+        after.setPressed(true);
+        tick();
+        assertTrue(engineCommand.isRunning());
+        assertFalse(afterCommand.isRunning());
+
+        Scheduler.getInstance().removeAll();
+        press(2, 0x0);
+        after.setPressed(false);
+        tick();
+
+        press(2, 0x8);
+        before.setPressed(true);
+        tick();
+        assertTrue(beforeCommand.isRunning());
+        assertFalse(engineCommand.isRunning());
+    }
+}
@@ -0,0 +1,112 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+package edu.wpi.first.wpilibj.command;
+
+import static org.junit.Assert.*;
+
+import java.util.Vector;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class CommandProfileTest {
+
+    private final Scheduler scheduler = Scheduler.getInstance();
+
+    @After
+    public void tearDown() {
+        scheduler.setProfilingEnabled(false);
+        scheduler.removeAll();
+    }
+
+    @Test
+    public void smallTimesAreExact() {
+        CommandProfile profile = new CommandProfile();
+        for (int time = 1; time <= 10; time++) {
+            profile.record(time);
+        }
+        assertEquals(10, profile.getCount());
+        assertEquals(10, profile.getMax());
+        assertEquals(5.5, profile.getAverage(), 1e-9);
+        assertEquals(5, profile.getPercentile(0.5));
+        assertEquals(10, profile.getPercentile(0.99));
+    }
+
+    @Test
+    public void percentilesAreWithinAnEighth() {
+        CommandProfile profile = new CommandProfile();
+        for (int time = 1; time <= 100000; time++) {
+            profile.record(time);
+        }
+        double[] fractions = {0.1, 0.5, 0.9, 0.99};
+        for (int i = 0; i < fractions.length; i++) {
+            long exact = (long) Math.ceil(fractions[i] * 100000);
+            long percentile = profile.getPercentile(fractions[i]);
+            assertTrue(percentile >= exact);
+            assertTrue(percentile <= exact + exact / 8);
+        }
+        assertEquals(100000, profile.getPercentile(1.0));
+    }
+
+    @Test
+    public void longestAndNegativeTimesAreKept() {
+        CommandProfile profile = new CommandProfile();
+        // times come from differences of the wrapping FPGA clock, so they fit in an int
+        profile.record(-5);
+        profile.record(Integer.MAX_VALUE);
+        assertEquals(2, profile.getCount());
+        assertEquals(0, profile.getPercentile(0.5));
+        assertEquals(Integer.MAX_VALUE, profile.getMax());
+        assertEquals(Integer.MAX_VALUE, profile.getPercentile(1.0));
+    }
+
+    @Test
+    public void resetForgetsEverything() {
+        CommandProfile profile = new CommandProfile();
+        profile.record(100);
+        profile.reset();
+        assertEquals(0, profile.getCount());
+        assertEquals(0, profile.getMax());
+        assertEquals(0, profile.getPercentile(0.5));
+    }
+
+    @Test
+    public void schedulerProfilesEachRun() {
+        LoggingCommand command = new LoggingCommand("profiled", new Vector(), 0);
+        assertNull(command.getProfile());
+        scheduler.setProfilingEnabled(true);
+        command.start();
+        scheduler.run();
+        assertNotNull(command.getProfile());
+        for (int i = 0; i < 5; i++) {
+            scheduler.run();
+        }
+        assertEquals(5, command.getProfile().getCount());
+        assertEquals(6, scheduler.getTickProfile().getCount());
+
+        scheduler.setProfilingEnabled(false);
+        assertNull(command.getProfile());
+        assertNull(scheduler.getTickProfile());
+    }
+
+    @Test
+    public void endedCommandsKeepTheirProfileForAWhile() {
+        scheduler.setProfilingEnabled(true);
+        LoggingCommand[] commands = new LoggingCommand[20];
+        for (int i = 0; i < commands.length; i++) {
+            commands[i] = new LoggingCommand("c" + i, new Vector(), 1);
+            commands[i].start();
+        }
+        scheduler.run();
+        scheduler.run();
+        // only the 16 that ended last keep their profile
+        for (int i = 0; i < commands.length; i++) {
+            assertEquals(i >= 4, commands[i].getProfile() != null);
+        }
+        assertEquals(1, commands[19].getProfile().getCount());
+    }
+}
@@ -0,0 +1,83 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+package edu.wpi.first.wpilibj.command;
+
+import java.util.Vector;
+
+/**
+ * A command that writes each call the {@link Scheduler} makes to it into a
+ * shared log, as "name.method". It runs while disabled, since the desktop
+ * DriverStation always is.
+ */
+class LoggingCommand extends Command {
+
+    private final Vector m_log;
+    private final int m_executions;
+    private int m_executed;
+
+    /**
+     * @param name       the name written to the log
+     * @param log        the log, shared by the commands of one test
+     * @param executions how many times execute() runs before the command
+     *                   finishes, or 0 to never finish
+     */
+    LoggingCommand(String name, Vector log, int executions) {
+        super(name);
+        m_log = log;
+        m_executions = executions;
+        setRunWhenDisabled(true);
+    }
+
+    LoggingCommand require(Subsystem subsystem) {
+        requires(subsystem);
+        return this;
+    }
+
+    LoggingCommand uninterruptible() {
+        setInterruptible(false);
+        return this;
+    }
+
+    protected void initialize() {
+        m_executed = 0;
+        m_log.addElement(getName() + ".initialize");
+    }
+
+    protected void execute() {
+        m_executed++;
+        m_log.addElement(getName() + ".execute");
+    }
+
+    protected boolean isFinished() {
+        return m_executions > 0 && m_executed >= m_executions;
+    }
+
+    protected void end() {
+        m_log.addElement(getName() + ".end");
+    }
+
+    protected void interrupted() {
+        m_log.addElement(getName() + ".interrupted");
+    }
+
+    /**
+     * A subsystem whose default command can be set from a test.
+     */
+    static class TestSubsystem extends Subsystem {
+
+        TestSubsystem(String name) {
+            super(name);
+        }
+
+        protected void initDefaultCommand() {
+        }
+
+        void setDefault(Command command) {
+            setDefaultCommand(command);
+        }
+    }
+}
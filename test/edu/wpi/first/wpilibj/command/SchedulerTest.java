@@ -0,0 +1,367 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+package edu.wpi.first.wpilibj.command;
+
+import static org.junit.Assert.*;
+
+import edu.wpi.first.wpilibj.command.LoggingCommand.TestSubsystem;
+
+import java.util.Vector;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the {@link Scheduler}, which keeps running commands in an array
+ * and requirements in bit sets, calls commands in the same order as the
+ * linked list and hash table version it replaced. Each test logs every call
+ * to its commands, tick by tick, and compares the log with the calls the old
+ * {@link Scheduler} made.
+ */
+public class SchedulerTest {
+
+    private final Vector log = new Vector();
+    private final Vector subsystems = new Vector();
+    private final Scheduler scheduler = Scheduler.getInstance();
+
+    @Before
+    public void setUp() {
+        scheduler.removeAll();
+        scheduler.run();
+    }
+
+    @After
+    public void tearDown() {
+        // subsystems can not be unregistered, so leave them without a default
+        for (int i = 0; i < subsystems.size(); i++) {
+            ((TestSubsystem) subsystems.elementAt(i)).setDefault(null);
+        }
+        scheduler.setParallelism(1);
+        scheduler.removeAll();
+    }
+
+    private TestSubsystem subsystem(String name) {
+        TestSubsystem subsystem = new TestSubsystem(name);
+        subsystems.addElement(subsystem);
+        return subsystem;
+    }
+
+    private LoggingCommand command(String name, int executions) {
+        return new LoggingCommand(name, log, executions);
+    }
+
+    /**
+     * Runs the scheduler once.
+     *
+     * @return the calls made to the commands, separated by spaces
+     */
+    private String tick() {
+        scheduler.run();
+        return flush();
+    }
+
+    private String flush() {
+        StringBuffer calls = new StringBuffer();
+        for (int i = 0; i < log.size(); i++) {
+            if (i > 0) {
+                calls.append(' ');
+            }
+            calls.append(log.elementAt(i));
+        }
+        log.removeAllElements();
+        return calls.toString();
+    }
+
+    @Test
+    public void commandsRunInTheOrderTheyWereStarted() {
+        LoggingCommand a = command("a", 0);
+        LoggingCommand b = command("b", 1);
+        LoggingCommand c = command("c", 0);
+        a.start();
+        b.start();
+        c.start();
+        // started commands are added at the end of the tick
+        assertEquals("", tick());
+        assertEquals("a.initialize a.execute b.initialize b.execute b.end c.initialize c.execute", tick());
+
+        // a finished command's place is not reused
+        LoggingCommand d = command("d", 0);
+        d.start();
+        assertEquals("a.execute c.execute", tick());
+        assertEquals("a.execute c.execute d.initialize d.execute", tick());
+        assertTrue(a.isRunning());
+        assertFalse(b.isRunning());
+    }
+
+    @Test
+    public void startingARunningCommandDoesNothing() {
+        LoggingCommand a = command("a", 0);
+        a.start();
+        tick();
+        assertEquals("a.initialize a.execute", tick());
+        a.start();
+        assertEquals("a.execute", tick());
+        assertEquals("a.execute", tick());
+    }
+
+    @Test
+    public void cancelInterruptsOnTheNextTick() {
+        LoggingCommand a = command("a", 0);
+        a.start();
+        tick();
+        tick();
+        a.cancel();
+        assertEquals("a.interrupted", tick());
+        assertFalse(a.isRunning());
+        assertEquals("", tick());
+    }
+
+    @Test
+    public void newCommandInterruptsConflictingCommand() {
+        TestSubsystem s = subsystem("s");
+        LoggingCommand a = command("a", 0).require(s);
+        LoggingCommand b = command("b", 0).require(s);
+        a.start();
+        tick();
+        assertEquals("a.initialize a.execute", tick());
+        assertSame(a, s.getCurrentCommand());
+
+        b.start();
+        assertEquals("a.execute a.interrupted", tick());
+        assertFalse(a.isRunning());
+        assertTrue(b.isRunning());
+        assertSame(b, s.getCurrentCommand());
+        assertEquals("b.initialize b.execute", tick());
+    }
+
+    @Test
+    public void uninterruptibleCommandKeepsItsSubsystem() {
+        TestSubsystem s = subsystem("s");
+        LoggingCommand a = command("a", 0).require(s).uninterruptible();
+        LoggingCommand b = command("b", 0).require(s);
+        a.start();
+        tick();
+        tick();
+
+        b.start();
+        assertEquals("a.execute", tick());
+        assertEquals("a.execute", tick());
+        assertTrue(a.isRunning());
+        assertFalse(b.isRunning());
+        assertSame(a, s.getCurrentCommand());
+
+        // it can still be canceled, which frees the subsystem
+        a.cancel();
+        assertEquals("a.interrupted", tick());
+        assertNull(s.getCurrentCommand());
+        b.start();
+        tick();
+        assertEquals("b.initialize b.execute", tick());
+    }
+
+    @Test
+    public void lastCommandStartedInATickWins() {
+        TestSubsystem s = subsystem("s");
+        LoggingCommand a = command("a", 0).require(s);
+        LoggingCommand b = command("b", 0).require(s);
+        a.start();
+        b.start();
+        // a was added and then replaced before it ever ran, so it is not told
+        assertEquals("", tick());
+        assertFalse(a.isRunning());
+        assertTrue(b.isRunning());
+        assertEquals("b.initialize b.execute", tick());
+    }
+
+    @Test
+    public void interruptingOneRequirementFreesTheOthers() {
+        TestSubsystem s1 = subsystem("s1");
+        TestSubsystem s2 = subsystem("s2");
+        LoggingCommand a = command("a", 0).require(s1).require(s2);
+        LoggingCommand b = command("b", 0).require(s2);
+        LoggingCommand c = command("c", 0).require(s1);
+        a.start();
+        tick();
+        tick();
+
+        b.start();
+        assertEquals("a.execute a.interrupted", tick());
+        assertNull(s1.getCurrentCommand());
+        assertSame(b, s2.getCurrentCommand());
+
+        c.start();
+        assertEquals("b.initialize b.execute", tick());
+        assertEquals("b.execute c.initialize c.execute", tick());
+        assertTrue(b.isRunning());
+        assertTrue(c.isRunning());
+    }
+
+    @Test
+    public void defaultCommandRunsWhileSubsystemIsFree() {
+        TestSubsystem s = subsystem("s");
+        LoggingCommand idle = command("idle", 0).require(s);
+        s.setDefault(idle);
+        assertEquals("", tick());
+        assertTrue(idle.isRunning());
+        assertEquals("idle.initialize idle.execute", tick());
+
+        LoggingCommand a = command("a", 1).require(s);
+        a.start();
+        assertEquals("idle.execute idle.interrupted", tick());
+        // the default comes back in the tick the command finishes
+        assertEquals("a.initialize a.execute a.end", tick());
+        assertTrue(idle.isRunning());
+        assertEquals("idle.initialize idle.execute", tick());
+    }
+
+    @Test
+    public void defaultCommandSetLaterIsStarted() {
+        TestSubsystem s = subsystem("s");
+        tick();
+        tick();
+        LoggingCommand idle = command("idle", 0).require(s);
+        s.setDefault(idle);
+        tick();
+        assertTrue(idle.isRunning());
+        assertEquals("idle.initialize idle.execute", tick());
+
+        s.setDefault(null);
+        idle.cancel();
+        assertEquals("idle.interrupted", tick());
+        assertEquals("", tick());
+        assertNull(s.getCurrentCommand());
+    }
+
+    @Test
+    public void removeAllEndsEveryCommand() {
+        TestSubsystem s = subsystem("s");
+        LoggingCommand idle = command("idle", 0).require(s);
+        s.setDefault(idle);
+        LoggingCommand a = command("a", 0);
+        LoggingCommand b = command("b", 0);
+        a.start();
+        b.start();
+        tick();
+        // started commands are added before defaults
+        assertEquals("a.initialize a.execute b.initialize b.execute idle.initialize idle.execute", tick());
+
+        // the commands were not canceled, so they are ended
+        scheduler.removeAll();
+        assertEquals("a.end b.end idle.end", flush());
+        assertFalse(a.isRunning());
+        assertFalse(b.isRunning());
+        assertNull(s.getCurrentCommand());
+
+        // defaults are put back on the next tick, the others stay removed
+        assertEquals("", tick());
+        assertEquals("idle.initialize idle.execute", tick());
+    }
+
+    @Test
+    public void removeAllIgnoresUninterruptible() {
+        TestSubsystem s = subsystem("s");
+        LoggingCommand a = command("a", 0).require(s).uninterruptible();
+        a.start();
+        tick();
+        tick();
+        scheduler.removeAll();
+        assertEquals("a.end", flush());
+        assertFalse(a.isRunning());
+        assertNull(s.getCurrentCommand());
+    }
+
+    @Test
+    public void manyCommandsGrowTheArrays() {
+        LoggingCommand[] commands = new LoggingCommand[40];
+        TestSubsystem[] owned = new TestSubsystem[40];
+        for (int i = 0; i < commands.length; i++) {
+            owned[i] = subsystem("s" + i);
+            commands[i] = command("c" + i, i % 3 == 0 ? 1 : 0).require(owned[i]);
+            commands[i].start();
+        }
+        tick();
+        tick();
+        for (int i = 0; i < commands.length; i++) {
+            assertEquals(i % 3 != 0, commands[i].isRunning());
+            assertSame(i % 3 != 0 ? commands[i] : null, owned[i].getCurrentCommand());
+        }
+        flush();
+        StringBuffer expected = new StringBuffer();
+        for (int i = 0; i < commands.length; i++) {
+            if (i % 3 != 0) {
+                expected.append(expected.length() == 0 ? "" : " ").append("c" + i + ".execute");
+            }
+        }
+        assertEquals(expected.toString(), tick());
+    }
+
+    @Test
+    public void parallelRunMatchesOneThread() {
+        assertEquals(runMixedScript(1), runMixedScript(3));
+    }
+
+    /**
+     * Runs conflicts, a default command and commands with no requirements,
+     * and returns which commands ran and which were running after each tick.
+     * Commands that require a subsystem may run in any order with more than
+     * one thread, so only the calls of each command are compared.
+     */
+    private String runMixedScript(int threads) {
+        scheduler.setParallelism(threads);
+        TestSubsystem s1 = subsystem("s1");
+        TestSubsystem s2 = subsystem("s2");
+        LoggingCommand idle = command("idle", 0).require(s1);
+        s1.setDefault(idle);
+        LoggingCommand[] commands = {
+                command("a", 3).require(s1),
+                command("b", 0).require(s2),
+                command("c", 2).require(s1).require(s2),
+                command("d", 0),
+                command("e", 4),
+                idle,
+        };
+        StringBuffer result = new StringBuffer();
+        for (int t = 0; t < 12; t++) {
+            switch (t) {
+                case 1:
+                    commands[0].start();
+                    commands[3].start();
+                    break;
+                case 2:
+                    commands[1].start();
+                    commands[4].start();
+                    break;
+                case 5:
+                    commands[2].start();
+                    break;
+                case 9:
+                    commands[3].cancel();
+                    break;
+            }
+            scheduler.run();
+            for (int i = 0; i < commands.length; i++) {
+                String name = commands[i].getName();
+                result.append(name).append(commands[i].isRunning() ? "+" : "-");
+                for (int j = 0; j < log.size(); j++) {
+                    String call = (String) log.elementAt(j);
+                    if (call.startsWith(name + ".")) {
+                        result.append(' ').append(call);
+                    }
+                }
+                result.append('\n');
+            }
+            result.append('\n');
+            log.removeAllElements();
+        }
+        s1.setDefault(null);
+        scheduler.removeAll();
+        scheduler.setParallelism(1);
+        log.removeAllElements();
+        return result.toString();
+    }
+}
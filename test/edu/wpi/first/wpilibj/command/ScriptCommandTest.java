@@ -0,0 +1,151 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+package edu.wpi.first.wpilibj.command;
+
+import static org.junit.Assert.*;
+
+import edu.wpi.first.wpilibj.command.LoggingCommand.TestSubsystem;
+
+import java.util.Vector;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ScriptCommandTest {
+
+    private final Vector log = new Vector();
+    private final Scheduler scheduler = Scheduler.getInstance();
+    private boolean ready = false;
+
+    @Before
+    public void setUp() {
+        scheduler.removeAll();
+        scheduler.run();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.removeAll();
+    }
+
+    private String tick() {
+        scheduler.run();
+        StringBuffer calls = new StringBuffer();
+        for (int i = 0; i < log.size(); i++) {
+            if (i > 0) {
+                calls.append(' ');
+            }
+            calls.append(log.elementAt(i));
+        }
+        log.removeAllElements();
+        return calls.toString();
+    }
+
+    private Runnable action(final String name) {
+        return new Runnable() {
+            public void run() {
+                log.addElement(name);
+            }
+        };
+    }
+
+    private ScriptCommand.Condition whenReady() {
+        return new ScriptCommand.Condition() {
+            public boolean isTrue() {
+                return ready;
+            }
+        };
+    }
+
+    private ScriptCommand script() {
+        ScriptCommand script = new ScriptCommand("script");
+        script.setRunWhenDisabled(true);
+        return script;
+    }
+
+    @Test
+    public void stepsRunInOrderWithoutBlocking() {
+        TestSubsystem s = new TestSubsystem("s");
+        LoggingCommand child = new LoggingCommand("child", log, 2).require(s);
+        ScriptCommand script = script();
+        script.addAction(action("first"));
+        script.addWaitUntil(whenReady());
+        script.addAction(action("second"));
+        script.addCommand(child);
+        script.addAction(action("third"));
+        assertTrue(script.doesRequire(s));
+
+        script.start();
+        assertEquals("", tick());
+        assertSame(script, s.getCurrentCommand());
+        assertEquals("first", tick());
+        assertEquals("", tick());
+
+        ready = true;
+        // the script keeps going until a step has to wait
+        assertEquals("second child.initialize child.execute", tick());
+        assertEquals("child.execute child.end third", tick());
+        assertFalse(script.isRunning());
+        assertNull(s.getCurrentCommand());
+    }
+
+    @Test
+    public void waitUntilTimesOut() {
+        ScriptCommand script = script();
+        script.addWaitUntil(whenReady(), 0);
+        script.addAction(action("done"));
+
+        script.start();
+        tick();
+        assertEquals("done", tick());
+        assertFalse(script.isRunning());
+    }
+
+    @Test
+    public void interruptingScriptInterruptsCurrentCommand() {
+        TestSubsystem s = new TestSubsystem("s");
+        ScriptCommand script = script();
+        script.addCommand(new LoggingCommand("child", log, 0).require(s));
+        script.addAction(action("never"));
+        script.start();
+        tick();
+        assertEquals("child.initialize child.execute", tick());
+
+        new LoggingCommand("other", log, 0).require(s).start();
+        assertEquals("child.execute child.interrupted", tick());
+        assertFalse(script.isRunning());
+        assertEquals("other.initialize other.execute", tick());
+    }
+
+    @Test
+    public void uninterruptibleCommandMakesScriptUninterruptible() {
+        TestSubsystem s = new TestSubsystem("s");
+        ScriptCommand script = script();
+        script.addAction(action("first"));
+        script.addWaitUntil(whenReady());
+        script.addCommand(new LoggingCommand("child", log, 0).require(s).uninterruptible());
+        script.start();
+        tick();
+        assertEquals("first", tick());
+        assertTrue(script.isInterruptible());
+
+        ready = true;
+        assertEquals("child.initialize child.execute", tick());
+        assertFalse(script.isInterruptible());
+        new LoggingCommand("other", log, 0).require(s).start();
+        assertEquals("child.execute", tick());
+        assertTrue(script.isRunning());
+    }
+
+    @Test(expected = IllegalUseOfCommandException.class)
+    public void stepsCanNotBeAddedOnceStarted() {
+        ScriptCommand script = script();
+        script.start();
+        script.addAction(action("late"));
+    }
+}
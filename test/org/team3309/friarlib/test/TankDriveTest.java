@@ -31,6 +31,7 @@ import org.junit.Test;
 import org.team3309.friarlib.FriarGyro;
 import org.team3309.friarlib.TankDrive;
 import org.team3309.friarlib.TankDrive.GyroConfig;
+import org.team3309.friarlib.loop.LoopEngine;
 
 import edu.wpi.first.wpilibj.DoubleSolenoid;
 import edu.wpi.first.wpilibj.Encoder;
@@ -134,6 +135,25 @@ public class TankDriveTest {
 		verify(right);
 	}
 
+	@Test
+	public void testCommand() {
+		expect(gyro.getAngularVelocity()).andReturn(0d);
+		replay(gyro);
+
+		left.set(-1);
+		right.set(1);
+		replay(left);
+		replay(right);
+
+		LoopEngine engine = new LoopEngine(.01);
+		engine.register(drive);
+		drive.command(1, 0);
+		engine.tick();
+
+		verify(left);
+		verify(right);
+	}
+
 	@Test
 	public void testHighGear() {
 		driveShifter.set(highGear);
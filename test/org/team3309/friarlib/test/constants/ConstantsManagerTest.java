@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2013, FRC Team 3309 All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer. Redistributions in binary
+ * form must reproduce the above copyright notice, this list of conditions and
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.team3309.friarlib.test.constants;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+import org.team3309.friarlib.constants.Constant;
+import org.team3309.friarlib.constants.ConstantListener;
+import org.team3309.friarlib.constants.ConstantsManager;
+
+public class ConstantsManagerTest {
+
+    private static void load(String text) throws IOException {
+        ConstantsManager.loadConstants(new ByteArrayInputStream(text.getBytes()));
+    }
+
+    @Test
+    public void testDefaults() {
+        Constant d = new Constant("defaults.double", 4.5);
+        Constant b = new Constant("defaults.boolean", true);
+        Constant l = new Constant("defaults.list", new double[]{1, 2});
+        assertEquals(4.5, d.getDouble(), 0);
+        assertEquals(4, d.getInt());
+        assertTrue(b.getBoolean());
+        assertEquals(2, l.getList().length);
+    }
+
+    @Test
+    public void testLoad() throws IOException {
+        Constant d = new Constant("load.double", 0.0);
+        Constant b = new Constant("load.boolean", false);
+        Constant l = new Constant("load.list", new double[]{});
+        load("# comment\nload.double = 2.5\nload.boolean=true\nload.list=1, 2,3\n");
+        assertEquals(2.5, d.getDouble(), 0);
+        assertTrue(b.getBoolean());
+        assertEquals(3, l.getList()[2], 0);
+        assertEquals(3, ConstantsManager.getLastReloadChangeCount());
+    }
+
+    @Test
+    public void testOnlyChangedLines() throws IOException {
+        Constant a = new Constant("changed.a", 0.0);
+        Constant b = new Constant("changed.b", 0.0);
+        load("changed.a=1\nchanged.b=2\n");
+        load("changed.a=1\nchanged.b=3\n");
+        assertEquals(1, ConstantsManager.getLastReloadChangeCount());
+        assertEquals(1, a.getDouble(), 0);
+        assertEquals(3, b.getDouble(), 0);
+    }
+
+    @Test
+    public void testSnapshot() throws IOException {
+        Constant a = new Constant("snapshot.a", 1.0);
+        Constant b = new Constant("snapshot.b", 2.0);
+        ConstantsManager.Snapshot before = ConstantsManager.getSnapshot();
+        load("snapshot.a=10\nsnapshot.b=20\n");
+        assertEquals(1, a.getDouble(before), 0);
+        assertEquals(2, b.getDouble(before), 0);
+        assertEquals(10, a.getDouble(), 0);
+        assertEquals(20, b.getDouble(), 0);
+    }
+
+    @Test
+    public void testCreatedAfterLoad() throws IOException {
+        load("after.value=7\n");
+        Constant c = new Constant("after.value", 0.0);
+        assertEquals(7, c.getDouble(), 0);
+    }
+
+    @Test
+    public void testMalformedValueKeepsOld() throws IOException {
+        Constant c = new Constant("malformed.value", 3.0);
+        load("malformed.value=abc\n");
+        assertEquals(3, c.getDouble(), 0);
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissingEquals() throws IOException {
+        load("noequals\n");
+    }
+
+    @Test
+    public void testListener() throws Exception {
+        final Constant c = new Constant("listener.value", 1.0);
+        final double[] seen = new double[]{0};
+        c.addListener(new ConstantListener() {
+            public void constantChanged(Constant constant) {
+                synchronized (seen) {
+                    seen[0] = constant.getDouble();
+                    seen.notifyAll();
+                }
+            }
+        });
+        load("listener.value=42\n");
+        synchronized (seen) {
+            long end = System.currentTimeMillis() + 2000;
+            while (seen[0] != 42 && System.currentTimeMillis() < end) {
+                seen.wait(100);
+            }
+        }
+        assertEquals(42, seen[0], 0);
+    }
+
+    @Test
+    public void testSet() {
+        Constant c = new Constant("set.value", 1.0);
+        c.set(5);
+        assertEquals(5, c.getDouble(), 0);
+    }
+
+    @Test
+    public void testLoadRestoresSetValue() throws IOException {
+        Constant c = new Constant("restore.value", 0.0);
+        load("restore.value=2\n");
+        c.set(5);
+        load("restore.value=2\n");
+        assertEquals(2, c.getDouble(), 0);
+        assertEquals(1, ConstantsManager.getLastReloadChangeCount());
+    }
+}
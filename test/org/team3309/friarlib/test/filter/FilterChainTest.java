@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2013, FRC Team 3309 All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer. Redistributions in binary
+ * form must reproduce the above copyright notice, this list of conditions and
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.team3309.friarlib.test.filter;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.team3309.friarlib.filter.Filter;
+import org.team3309.friarlib.filter.FilterChain;
+import org.team3309.friarlib.filter.IirFilter;
+import org.team3309.friarlib.filter.MaxChangeFilter;
+import org.team3309.friarlib.filter.MovingAverageFilter;
+
+public class FilterChainTest {
+
+	private FilterChain chain = null;
+
+	@Before
+	public void setUp() throws Exception {
+		chain = new FilterChain(new Filter[] { new MaxChangeFilter(1),
+				new MovingAverageFilter(2) });
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFilterChainException() {
+		new FilterChain(new Filter[0]);
+	}
+
+	@Test
+	public void testUpdate() {
+		assertEquals(.5, chain.update(10), 0);
+		assertEquals(1, chain.getStageOutput(0), 0);
+		assertEquals(.5, chain.getStageOutput(1), 0);
+
+		assertEquals(1.5, chain.update(10), 0);
+		assertEquals(2, chain.getStageOutput(0), 0);
+		assertEquals(1.5, chain.get(), 0);
+	}
+
+	@Test
+	public void testUpdateBuffer() {
+		FilterChain reference = new FilterChain(new Filter[] {
+				new MaxChangeFilter(1), new MovingAverageFilter(2),
+				new IirFilter(.5) });
+		FilterChain block = new FilterChain(new Filter[] {
+				new MaxChangeFilter(1), new MovingAverageFilter(2),
+				new IirFilter(.5) });
+
+		double[] buffer = new double[] { 5, 5, 5, -3, -3, 0, 2, 8 };
+		double[] expected = new double[buffer.length];
+		for (int i = 0; i < buffer.length; i++) {
+			expected[i] = reference.update(buffer[i]);
+		}
+
+		block.update(buffer, 0, buffer.length);
+		for (int i = 0; i < buffer.length; i++) {
+			assertEquals(expected[i], buffer[i], 1e-12);
+		}
+		for (int i = 0; i < block.size(); i++) {
+			assertEquals(reference.getStageOutput(i), block.getStageOutput(i), 1e-12);
+		}
+	}
+
+}
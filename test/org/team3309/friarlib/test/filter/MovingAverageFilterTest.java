@@ -76,6 +76,45 @@ public class MovingAverageFilterTest {
 		assertEquals((double) (1+3+5)/3, avg, 0);
 	}
 
+	@Test
+	public void testUpdateBuffer() {
+		MovingAverageFilter reference = new MovingAverageFilter(3);
+		double[] buffer = new double[] { 1, 2, 3, 4, 5, 6, 7, 8 };
+		double[] expected = new double[buffer.length];
+		for (int i = 0; i < buffer.length; i++) {
+			expected[i] = reference.update(buffer[i]);
+		}
+
+		filter.update(buffer, 0, 3);
+		filter.update(buffer, 3, buffer.length - 3);
+		for (int i = 0; i < buffer.length; i++) {
+			assertEquals(expected[i], buffer[i], 0);
+		}
+		assertEquals(reference.get(), filter.get(), 0);
+	}
+
+	@Test
+	public void testNoDrift() {
+		for (int i = 0; i < 100000; i++) {
+			filter.update(i % 2 == 0 ? 1e6 + .1 : .3);
+		}
+		filter.update(1);
+		filter.update(1);
+		assertEquals(1, filter.update(1), 0);
+	}
+
+	@Test
+	public void testRecoversFromNaN() {
+		filter.update(Double.NaN);
+		filter.update(1);
+		assertTrue(Double.isNaN(filter.update(1)));
+		assertEquals(1, filter.update(1), 0);
+		filter.update(Double.POSITIVE_INFINITY);
+		filter.update(2);
+		filter.update(2);
+		assertEquals(2, filter.update(2), 0);
+	}
+
 	@Test
 	public void testGet(){
 		double avg = filter.update(42);
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2013, FRC Team 3309 All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer. Redistributions in binary
+ * form must reproduce the above copyright notice, this list of conditions and
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.team3309.friarlib.test.loop;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.team3309.friarlib.loop.LoopEngine;
+import org.team3309.friarlib.loop.LoopStats;
+import org.team3309.friarlib.loop.Loopable;
+
+public class LoopEngineTest {
+
+	private LoopEngine engine = null;
+	private StringBuffer log = null;
+
+	@Before
+	public void setUp() throws Exception {
+		engine = new LoopEngine(.02);
+		log = new StringBuffer();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testLoopEngineException() {
+		new LoopEngine(0);
+	}
+
+	@Test
+	public void testTickOrder() {
+		engine.register(new RecordingLoop("a"));
+		engine.register(new RecordingLoop("b"));
+		engine.tick();
+		assertEquals("sa sb ca cb wa wb ", log.toString());
+	}
+
+	@Test
+	public void testRegisterTwice() {
+		RecordingLoop loop = new RecordingLoop("a");
+		engine.register(loop);
+		engine.register(loop);
+		engine.tick();
+		assertEquals("sa ca wa ", log.toString());
+	}
+
+	@Test
+	public void testUnregister() {
+		RecordingLoop a = new RecordingLoop("a");
+		engine.register(a);
+		engine.register(new RecordingLoop("b"));
+		engine.unregister(a);
+		engine.tick();
+		assertEquals("sb cb wb ", log.toString());
+	}
+
+	@Test
+	public void testComputeExceptionIsolated() {
+		engine.register(new RecordingLoop("a") {
+			@Override
+			public void compute() {
+				throw new RuntimeException("expected");
+			}
+		});
+		engine.register(new RecordingLoop("b"));
+		engine.tick();
+		assertEquals("sa sb cb wb ", log.toString());
+	}
+
+	@Test
+	public void testGetPeriod() {
+		assertEquals(.02, engine.getPeriod(), 1e-9);
+	}
+
+	@Test
+	public void testStats() {
+		LoopStats stats = new LoopStats();
+		stats.record(100, 1000, false);
+		stats.record(300, 3000, true);
+		stats.record(-50, 2000, false);
+		assertEquals(3, stats.getTickCount());
+		assertEquals(1, stats.getOverrunCount());
+		assertEquals(300, stats.getMaxJitter());
+		assertEquals(0, stats.getLastJitter());
+		assertEquals(400.0 / 3, stats.getAverageJitter(), 1e-9);
+		assertEquals(3000, stats.getMaxExecutionTime());
+		assertEquals(2000, stats.getAverageExecutionTime(), 1e-9);
+
+		stats.reset();
+		assertEquals(0, stats.getTickCount());
+		assertEquals(0, stats.getAverageJitter(), 0);
+	}
+
+	private class RecordingLoop implements Loopable {
+
+		private String name;
+
+		public RecordingLoop(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public void sample() {
+			log.append("s" + name + " ");
+		}
+
+		@Override
+		public void compute() {
+			log.append("c" + name + " ");
+		}
+
+		@Override
+		public void commit() {
+			log.append("w" + name + " ");
+		}
+	}
+
+}
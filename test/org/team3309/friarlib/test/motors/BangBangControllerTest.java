@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2013, FRC Team 3309 All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer. Redistributions in binary
+ * form must reproduce the above copyright notice, this list of conditions and
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.team3309.friarlib.test.motors;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.team3309.friarlib.loop.LoopEngine;
+import org.team3309.friarlib.motors.BangBangController;
+
+import edu.wpi.first.wpilibj.Counter;
+import edu.wpi.first.wpilibj.SpeedController;
+
+public class BangBangControllerTest {
+
+	private LoopEngine engine;
+	private SpeedController motor;
+	private Counter encoder;
+	private BangBangController controller;
+
+	@Before
+	public void setup() {
+		engine = new LoopEngine(.02);
+		motor = createNiceMock(SpeedController.class);
+		encoder = createNiceMock(Counter.class);
+		controller = new BangBangController(motor, encoder, 1, engine, .01);
+	}
+
+	@Test
+	public void testRegistered() {
+		assertTrue(engine.isRegistered(controller));
+		assertNotNull(controller.getStats());
+		controller.stop();
+		assertFalse(engine.isRegistered(controller));
+	}
+
+	@Test
+	public void testBelowTarget() {
+		// a period of .06 seconds with 1 count per rev is 1000 rpm
+		expect(encoder.getPeriod()).andReturn(.06);
+		replay(encoder);
+		motor.set(1);
+		replay(motor);
+
+		controller.setTargetRpm(2000);
+		controller.enable();
+		engine.tick();
+
+		verify(motor);
+		assertEquals(1000, controller.getSpeed(), 1e-9);
+	}
+
+	@Test
+	public void testAboveTarget() {
+		expect(encoder.getPeriod()).andReturn(.06);
+		replay(encoder);
+		motor.set(0);
+		replay(motor);
+
+		controller.setTargetRpm(500);
+		controller.enable();
+		engine.tick();
+
+		verify(motor);
+	}
+
+	@Test
+	public void testDisabled() {
+		expect(encoder.getPeriod()).andReturn(.06);
+		replay(encoder);
+		motor = createStrictMock(SpeedController.class);
+		controller.stop();
+		controller = new BangBangController(motor, encoder, 1, engine, .01);
+		motor.set(1);
+		motor.set(0);
+		replay(motor);
+
+		controller.setTargetRpm(2000);
+		engine.tick();
+		controller.enable();
+		engine.tick();
+		controller.disable();
+		engine.tick();
+		engine.tick();
+
+		verify(motor);
+	}
+
+	@Test
+	public void testNoCommitAfterStop() {
+		motor = createStrictMock(SpeedController.class);
+		BangBangController stopped = new BangBangController(motor, encoder, 1, engine, .01);
+		motor.set(0);
+		replay(motor);
+
+		stopped.stop();
+		stopped.commit();
+
+		verify(motor);
+	}
+
+}
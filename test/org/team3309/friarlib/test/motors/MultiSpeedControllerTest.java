@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2013, FRC Team 3309 All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer. Redistributions in binary
+ * form must reproduce the above copyright notice, this list of conditions and
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.team3309.friarlib.test.motors;
+
+import static org.easymock.EasyMock.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.team3309.friarlib.motors.MultiSpeedController;
+
+import edu.wpi.first.wpilibj.SpeedController;
+
+public class MultiSpeedControllerTest {
+
+	private SpeedController[] motors;
+
+	@Before
+	public void setup() {
+		motors = new SpeedController[4];
+		for (int i = 0; i < motors.length; i++) {
+			motors[i] = createStrictMock(SpeedController.class);
+		}
+	}
+
+	private void replayAll() {
+		for (int i = 0; i < motors.length; i++) {
+			replay(motors[i]);
+		}
+	}
+
+	private void verifyAll() {
+		for (int i = 0; i < motors.length; i++) {
+			verify(motors[i]);
+		}
+	}
+
+	@Test
+	public void testSet() {
+		for (int i = 0; i < motors.length; i++) {
+			motors[i].set(.5);
+		}
+		replayAll();
+
+		new MultiSpeedController.Builder().motors(motors).build().set(.5);
+
+		verifyAll();
+	}
+
+	@Test
+	public void testReverseEveryOther() {
+		motors[0].set(.5);
+		motors[1].set(-.5);
+		motors[2].set(.5);
+		motors[3].set(-.5);
+		replayAll();
+
+		new MultiSpeedController.Builder().motors(motors).reverseEveryOther()
+				.build().set(.5);
+
+		verifyAll();
+	}
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2013, FRC Team 3309 All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer. Redistributions in binary
+ * form must reproduce the above copyright notice, this list of conditions and
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.team3309.friarlib.test.telemetry;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.team3309.friarlib.telemetry.TelemetryBuffer;
+
+public class TelemetryBufferTest {
+
+	private TelemetryBuffer buffer = null;
+
+	@Before
+	public void setUp() throws Exception {
+		buffer = new TelemetryBuffer(new String[] { "a", "b" }, 3);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTelemetryBufferException() {
+		new TelemetryBuffer(new String[0], 4);
+	}
+
+	@Test
+	public void testCapacity() {
+		assertEquals(4, buffer.getCapacity());
+		assertEquals(2, buffer.getFieldCount());
+		assertEquals("b", buffer.getFieldName(1));
+	}
+
+	@Test
+	public void testWriteRead() {
+		double[] record = new double[2];
+		for (int i = 0; i < 3; i++) {
+			record[0] = i;
+			record[1] = -i;
+			assertTrue(buffer.write(i * 10, record));
+		}
+		assertEquals(3, buffer.available());
+		assertEquals(10, buffer.getTimestamp(1));
+		assertEquals(-2, buffer.get(2, 1), 0);
+
+		buffer.release(2);
+		assertEquals(1, buffer.available());
+		assertEquals(20, buffer.getTimestamp(0));
+		assertEquals(2, buffer.get(0, 0), 0);
+	}
+
+	@Test
+	public void testFull() {
+		double[] record = new double[2];
+		for (int i = 0; i < 4; i++) {
+			assertTrue(buffer.write(i, record));
+		}
+		assertFalse(buffer.write(4, record));
+		assertEquals(1, buffer.getDroppedCount());
+
+		buffer.release(1);
+		assertTrue(buffer.write(5, record));
+		assertEquals(1, buffer.getTimestamp(0));
+		assertEquals(5, buffer.getTimestamp(3));
+	}
+
+	@Test
+	public void testWrapAround() {
+		double[] record = new double[2];
+		for (int i = 0; i < 100; i++) {
+			record[0] = i;
+			assertTrue(buffer.write(i, record));
+			assertEquals(i, buffer.get(0, 0), 0);
+			buffer.release(1);
+		}
+		assertEquals(0, buffer.available());
+		assertEquals(0, buffer.getDroppedCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testReleaseException() {
+		buffer.release(1);
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2013, FRC Team 3309 All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer. Redistributions in binary
+ * form must reproduce the above copyright notice, this list of conditions and
+ * the following disclaimer in the documentation and/or other materials provided
+ * with the distribution. THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT
+ * NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS;
+ * OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.team3309.friarlib.test.telemetry;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.team3309.friarlib.telemetry.TelemetryBuffer;
+import org.team3309.friarlib.telemetry.TelemetryReader;
+import org.team3309.friarlib.telemetry.TelemetryWriter;
+
+public class TelemetryWriterTest {
+
+	private TelemetryBuffer buffer = null;
+	private ByteArrayOutputStream log = null;
+	private TelemetryWriter writer = null;
+
+	@Before
+	public void setUp() throws Exception {
+		buffer = new TelemetryBuffer(new String[] { "left", "right" }, 16);
+		log = new ByteArrayOutputStream();
+		writer = new TelemetryWriter(buffer, log);
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		double[] record = new double[2];
+		for (int i = 0; i < 100; i++) {
+			record[0] = i * .5;
+			record[1] = -i;
+			buffer.write(1000L * i, record);
+			if (i % 10 == 9)
+				assertEquals(10, writer.drain());
+		}
+		writer.close();
+		assertEquals(100, writer.getRecordsWritten());
+
+		TelemetryReader reader = new TelemetryReader(new ByteArrayInputStream(
+				log.toByteArray()));
+		assertEquals(2, reader.getFieldCount());
+		assertEquals("right", reader.getFieldName(1));
+		assertEquals(-1, reader.getFieldIndex("omega"));
+		for (int i = 0; i < 100; i++) {
+			assertTrue(reader.next());
+			assertEquals(1000L * i, reader.getTimestamp());
+			assertEquals(i * .5, reader.get(0), 0);
+			assertEquals(-i, reader.get("right"), 0);
+		}
+		assertFalse(reader.next());
+	}
+
+	@Test
+	public void testTruncatedRecord() throws IOException {
+		buffer.write(1, new double[] { 1, 2 });
+		buffer.write(2, new double[] { 3, 4 });
+		writer.close();
+
+		byte[] bytes = log.toByteArray();
+		TelemetryReader reader = new TelemetryReader(new ByteArrayInputStream(
+				bytes, 0, bytes.length - 3));
+		assertTrue(reader.next());
+		assertEquals(2, reader.get(1), 0);
+		assertFalse(reader.next());
+	}
+
+	@Test
+	public void testBackgroundThread() throws Exception {
+		writer.start(1);
+		assertTrue(writer.isRunning());
+		for (int i = 0; i < 1000; i++) {
+			while (!buffer.write(i, new double[] { i, i })) {
+				Thread.sleep(1);
+			}
+		}
+		writer.close();
+		assertFalse(writer.isRunning());
+		assertEquals(1000, writer.getRecordsWritten());
+		assertEquals(0, buffer.available());
+	}
+
+	@Test
+	public void testWriteErrorStopsPlainStream() throws IOException {
+		final boolean[] fail = new boolean[] { false };
+		writer = new TelemetryWriter(buffer, new OutputStream() {
+			public void write(int b) throws IOException {
+				if (fail[0])
+					throw new IOException("expected");
+				log.write(b);
+			}
+		});
+		int header = log.size();
+		buffer.write(1, new double[] { 1, 2 });
+		fail[0] = true;
+		try {
+			writer.drain();
+			fail("the write should have failed");
+		} catch (IOException e) {
+			assertEquals("expected", e.getMessage());
+		}
+		fail[0] = false;
+		try {
+			writer.drain();
+			fail("the log should be unusable");
+		} catch (IOException e) {
+			assertEquals(1, buffer.available());
+		}
+		assertEquals(header, log.size());
+		assertEquals(0, writer.getRecordsWritten());
+	}
+
+	@Test(expected = IOException.class)
+	public void testBadHeader() throws IOException {
+		new TelemetryReader(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4,
+				0, 1, 0, 0 }));
+	}
+}
@@ -47,4 +47,27 @@ public class LatchTest {
 		assertFalse(latch.update(false));
 	}
 
+	@Test
+	public void testEdges() {
+		latch.update(true);
+		assertTrue(latch.wasRising());
+		assertFalse(latch.wasFalling());
+		assertTrue(latch.get());
+		latch.update(true);
+		assertFalse(latch.wasRising());
+		assertFalse(latch.wasFalling());
+		latch.update(false);
+		assertFalse(latch.wasRising());
+		assertTrue(latch.wasFalling());
+		assertFalse(latch.get());
+	}
+
+	@Test
+	public void testInitialValue() {
+		latch = new Latch(true);
+		assertTrue(latch.get());
+		assertFalse(latch.update(true));
+		assertTrue(latch.update(false));
+	}
+
 }
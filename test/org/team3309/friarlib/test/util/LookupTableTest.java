@@ -71,4 +71,134 @@ public class LookupTableTest {
         assertEquals(100, table.get(7), 0);
         assertEquals(100, table.get(10), 0);
     }
+
+    @Test
+    public void outOfOrder() {
+        table.put(15, 4);
+        table.put(5, 0);
+        table.put(10, 2);
+        assertEquals(3, table.size());
+        assertEquals(1, table.get(7.5), 0);
+        assertEquals(3, table.get(12.5), 0);
+    }
+
+    @Test
+    public void replace() {
+        table.put(0, 0);
+        table.put(10, 10);
+        table.put(0, 4);
+        table.put(20, 0);
+        table.put(20, 20);
+        assertEquals(3, table.size());
+        assertEquals(4, table.get(0), 0);
+        assertEquals(15, table.get(15), 0);
+    }
+
+    @Test
+    public void empty() {
+        assertEquals(Double.MIN_VALUE, table.get(0), 0);
+    }
+
+    @Test
+    public void putAll() {
+        table.putAll(new double[]{10, 0, 5, 0}, new double[]{10, 1, 5, 0});
+        assertEquals(3, table.size());
+        assertEquals(0, table.get(0), 0);
+        assertEquals(7.5, table.get(7.5), 0);
+        assertEquals(10, table.get(100), 0);
+        assertEquals(0, table.get(-100), 0);
+    }
+
+    @Test
+    public void manyPoints() {
+        for (int i = 1000; i >= 0; i--) {
+            table.put(i, 2 * i);
+        }
+        assertEquals(1001, table.size());
+        assertEquals(501, table.get(250.5), 1e-9);
+    }
+
+    @Test
+    public void monotoneCubicLinearData() {
+        table.setInterpolator(LookupTable.Interpolator.kMonotoneCubic);
+        table.put(0, 0);
+        table.put(10, 20);
+        table.put(20, 40);
+        assertEquals(10, table.get(5), 1e-9);
+        assertEquals(30, table.get(15), 1e-9);
+    }
+
+    @Test
+    public void monotoneCubicNoOvershoot() {
+        table.setInterpolator(LookupTable.Interpolator.kMonotoneCubic);
+        table.put(0, 0);
+        table.put(1, 0);
+        table.put(2, 1);
+        table.put(3, 1);
+        double last = 0;
+        for (double x = 0; x <= 3; x += .05) {
+            double y = table.get(x);
+            assertTrue(y >= last - 1e-12);
+            assertTrue(y >= 0 && y <= 1);
+            last = y;
+        }
+        assertEquals(1, table.get(2), 0);
+    }
+
+    @Test
+    public void akima() {
+        table.setInterpolator(LookupTable.Interpolator.kAkima);
+        table.put(0, 0);
+        table.put(1, 2);
+        table.put(2, 4);
+        table.put(3, 6);
+        assertEquals(3, table.get(1.5), 1e-9);
+
+        table.put(4, 6);
+        table.put(5, 6);
+        assertEquals(6, table.get(4.5), 1e-9);
+        assertEquals(2, table.get(1), 0);
+    }
+
+    @Test
+    public void cubicTwoPoints() {
+        table.setInterpolator(LookupTable.Interpolator.kAkima);
+        table.put(0, 0);
+        table.put(10, 10);
+        assertEquals(5, table.get(5), 1e-9);
+    }
+
+    @Test
+    public void cubicPutsMatchPutAll() {
+        cubicPutsMatchPutAll(LookupTable.Interpolator.kMonotoneCubic);
+        cubicPutsMatchPutAll(LookupTable.Interpolator.kAkima);
+    }
+
+    private void cubicPutsMatchPutAll(LookupTable.Interpolator interpolator) {
+        java.util.Random random = new java.util.Random(3309);
+        double[] keys = new double[40];
+        double[] values = new double[40];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextInt(1000);
+            values[i] = random.nextDouble() * 10 - 5;
+        }
+        LookupTable loaded = new LookupTable(interpolator, 2);
+        LookupTable put = new LookupTable(interpolator, 2);
+        loaded.putAll(keys, values);
+        for (int i = 0; i < keys.length; i++) {
+            put.put(keys[i], values[i]);
+        }
+        // change some values in place as well
+        for (int i = 0; i < 10; i++) {
+            int j = random.nextInt(keys.length);
+            values[j] = random.nextDouble();
+            put.put(keys[j], values[j]);
+        }
+        loaded.clear();
+        loaded.putAll(keys, values);
+        assertEquals(loaded.size(), put.size());
+        for (double x = -10; x < 1010; x += 0.5) {
+            assertEquals(loaded.get(x), put.get(x), 1e-9);
+        }
+    }
 }